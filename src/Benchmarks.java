@@ -0,0 +1,867 @@
+import dataStructures.*;
+import System.*;
+
+import java.io.*;
+import java.lang.ref.Reference;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Micro-benchmarks for the hot paths of the railway system.
+ * Run with the name of a benchmark as argument, or with no arguments to run them all.
+ */
+public class Benchmarks {
+
+    /** Number of schedules loaded onto a single line */
+    private static final int LINE_SCHEDULES = 10000;
+    /** Number of schedules sharing each group of stations in the line benchmark */
+    private static final int SCHEDULES_PER_GROUP = 1000;
+    /** Number of stations served by each group of schedules */
+    private static final int STATIONS_PER_GROUP = 3;
+    /** Number of best schedule queries answered by each path */
+    private static final int BEST_SCHEDULE_QUERIES = 2000;
+    /** Number of stations of the express line */
+    private static final int EXPRESS_LINE_STATIONS = 21;
+    /** Number of line positions between two stops of the express trains */
+    private static final int EXPRESS_STOP_SPACING = 10;
+    /** One in this many trains of the express line is a local train, which stops at every station */
+    private static final int LOCAL_TRAIN_SPACING = 20;
+    /** Number of keys inserted in the hash table benchmark */
+    private static final int TABLE_KEYS = 1000000;
+    /** Number of keys inserted between two hash table measurements */
+    private static final int TABLE_STEP = 100000;
+    /** Number of passages loaded into the hub station */
+    private static final int HUB_PASSAGES = 50000;
+    /** Number of trains of each page of the hub station pages benchmark */
+    private static final int HUB_PAGE_SIZE = 50;
+    /** Number of pages read by each path of the hub station pages benchmark */
+    private static final int HUB_PAGE_QUERIES = 1000;
+    /** Number of lines of the snapshot benchmark network */
+    private static final int NETWORK_LINES = 20;
+    /** Number of stations of each line of the snapshot benchmark network */
+    private static final int NETWORK_LINE_STATIONS = 40;
+    /** Number of schedules of each line of the snapshot benchmark network */
+    private static final int NETWORK_LINE_SCHEDULES = 500;
+    /** Number of commands of the generated input of the command reader benchmark */
+    private static final int INPUT_COMMANDS = 1000000;
+    /** Number of rows written by the result writer benchmark */
+    private static final int OUTPUT_ROWS = 1000000;
+    /** Number of schedules built by the schedule memory benchmark */
+    private static final int MEMORY_SCHEDULES = 50000;
+    /** Number of stops of each schedule of the schedule memory benchmark */
+    private static final int MEMORY_SCHEDULE_STOPS = 40;
+    /** Number of trips of the headway template benchmark, one departing every minute */
+    private static final int TEMPLATE_TRIPS = 1200;
+    /** Stack size for Java serialization, which recurses through the whole object graph */
+    private static final long SERIALIZATION_STACK = 1L << 29;
+
+    public static void main(String[] args) {
+        String name = args.length > 0 ? args[0] : "";
+
+        if(name.isEmpty() || name.equals("loadLine"))
+            loadLine();
+        if(name.isEmpty() || name.equals("importLine"))
+            importLine();
+        if(name.isEmpty() || name.equals("bestSchedule"))
+            bestSchedule();
+        if(name.isEmpty() || name.equals("expressLine"))
+            expressLine();
+        if(name.isEmpty() || name.equals("hashTable"))
+            hashTable("SepChainHashTable", new SepChainHashTable<>());
+        if(name.isEmpty() || name.equals("hashTable"))
+            hashTable("LinearProbingHashTable", new LinearProbingHashTable<>());
+        if(name.isEmpty() || name.equals("avlBuild"))
+            avlBuild();
+        if(name.isEmpty() || name.equals("scheduleMemory"))
+            scheduleMemory();
+        if(name.isEmpty() || name.equals("headwayTemplate"))
+            headwayTemplate();
+        if(name.isEmpty() || name.equals("hubStation"))
+            hubStation();
+        if(name.isEmpty() || name.equals("hubPages"))
+            hubPages();
+        if(name.isEmpty() || name.equals("snapshot"))
+            snapshot();
+        if(name.isEmpty() || name.equals("startup"))
+            startup();
+        if(name.isEmpty() || name.equals("journal"))
+            journal();
+        if(name.isEmpty() || name.equals("delta"))
+            delta();
+        if(name.isEmpty() || name.equals("commandReader"))
+            commandReader();
+        if(name.isEmpty() || name.equals("resultWriter"))
+            resultWriter();
+    }
+
+    /**
+     * Loads 10k schedules onto one line through insertSchedule, then removes the line.
+     * Schedules are split in groups that stop at different stations, so that every
+     * station sees at most one passage per minute and no schedule overtakes another.
+     */
+    private static void loadLine() {
+        int groups = LINE_SCHEDULES / SCHEDULES_PER_GROUP;
+        RailwaySystem sys = new RailwaySystemClass();
+        sys.insertLine("Bench", stationNames(1 + groups * STATIONS_PER_GROUP));
+
+        long start = System.nanoTime();
+        for(int i = 0; i < LINE_SCHEDULES; i++) {
+            int group = i / SCHEDULES_PER_GROUP;
+            int departure = i % SCHEDULES_PER_GROUP;
+
+            List<String> stations = new ArrayList<>();
+            List<String[]> times = new ArrayList<>();
+            stations.addLast(stationName(0));
+            times.addLast(time(departure));
+            for(int j = 1; j <= STATIONS_PER_GROUP; j++) {
+                stations.addLast(stationName(group * STATIONS_PER_GROUP + j));
+                times.addLast(time(departure + j));
+            }
+            sys.insertSchedule("Bench", String.valueOf(i + 1), stations, times);
+        }
+        report("loadLine", LINE_SCHEDULES + " schedules", start);
+
+        start = System.nanoTime();
+        sys.removeLine("Bench");
+        report("loadLine (removal)", LINE_SCHEDULES + " schedules", start);
+    }
+
+    /**
+     * Loads the 10k schedules of the line benchmark through insertSchedule, one at a time,
+     * and through insertSchedules, all at once
+     */
+    private static void importLine() {
+        int groups = LINE_SCHEDULES / SCHEDULES_PER_GROUP;
+        List<String> trains = new ArrayList<>(LINE_SCHEDULES);
+        List<List<String>> stations = new ArrayList<>(LINE_SCHEDULES);
+        List<List<String[]>> times = new ArrayList<>(LINE_SCHEDULES);
+        for(int i = 0; i < LINE_SCHEDULES; i++) {
+            int group = i / SCHEDULES_PER_GROUP;
+            int departure = i % SCHEDULES_PER_GROUP;
+
+            List<String> scheduleStations = new ArrayList<>();
+            List<String[]> scheduleTimes = new ArrayList<>();
+            scheduleStations.addLast(stationName(0));
+            scheduleTimes.addLast(time(departure));
+            for(int j = 1; j <= STATIONS_PER_GROUP; j++) {
+                scheduleStations.addLast(stationName(group * STATIONS_PER_GROUP + j));
+                scheduleTimes.addLast(time(departure + j));
+            }
+            trains.addLast(String.valueOf(i + 1));
+            stations.addLast(scheduleStations);
+            times.addLast(scheduleTimes);
+        }
+
+        RailwaySystem sys = new RailwaySystemClass();
+        sys.insertLine("Bench", stationNames(1 + groups * STATIONS_PER_GROUP));
+        long start = System.nanoTime();
+        for(int i = 0; i < LINE_SCHEDULES; i++)
+            sys.insertSchedule("Bench", trains.get(i), stations.get(i), times.get(i));
+        report("importLine (one at a time)", LINE_SCHEDULES + " schedules", start);
+
+        sys = new RailwaySystemClass();
+        sys.insertLine("Bench", stationNames(1 + groups * STATIONS_PER_GROUP));
+        start = System.nanoTime();
+        sys.insertSchedules("Bench", trains, stations, times);
+        report("importLine (all at once)", LINE_SCHEDULES + " schedules", start);
+    }
+
+    /**
+     * Compares the indexed best schedule query against a scan of every schedule of the line,
+     * answering the same random queries on the 10k schedule line with both paths.
+     */
+    private static void bestSchedule() {
+        int groups = LINE_SCHEDULES / SCHEDULES_PER_GROUP;
+        SymbolTable stationIds = new SymbolTableClass();
+        List<Station> stations = new ArrayList<>();
+        for(int i = 0; i <= groups * STATIONS_PER_GROUP; i++)
+            stations.addLast(new StationClass(stationName(i), stationIds));
+
+        Line line = new LineClass("Bench", new SymbolTableClass(), stations);
+        for(int i = 0; i < LINE_SCHEDULES; i++) {
+            int group = i / SCHEDULES_PER_GROUP;
+            int departure = i % SCHEDULES_PER_GROUP;
+
+            List<Station> scheduleStations = new ArrayList<>();
+            List<Time> scheduleTimes = new ArrayList<>();
+            scheduleStations.addLast(stations.get(0));
+            scheduleTimes.addLast(timeOf(departure));
+            for(int j = 1; j <= STATIONS_PER_GROUP; j++) {
+                scheduleStations.addLast(stations.get(group * STATIONS_PER_GROUP + j));
+                scheduleTimes.addLast(timeOf(departure + j));
+            }
+            line.insertSchedule(String.valueOf(i + 1), scheduleStations, scheduleTimes);
+        }
+
+        Random random = new Random(42);
+        Station[] departures = new Station[BEST_SCHEDULE_QUERIES];
+        Station[] destinations = new Station[BEST_SCHEDULE_QUERIES];
+        Time[] arrivals = new Time[BEST_SCHEDULE_QUERIES];
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++) {
+            int group = random.nextInt(groups);
+            departures[i] = stations.get(random.nextBoolean() ? 0 : group * STATIONS_PER_GROUP + 1);
+            destinations[i] = stations.get(group * STATIONS_PER_GROUP + STATIONS_PER_GROUP);
+            arrivals[i] = timeOf(STATIONS_PER_GROUP + group + random.nextInt(SCHEDULES_PER_GROUP));
+        }
+
+        int[] indexed = new int[BEST_SCHEDULE_QUERIES];
+        long start = System.nanoTime();
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++)
+            indexed[i] = line.getBestSchedule(departures[i], destinations[i], arrivals[i]).getTrain();
+        report("bestSchedule (indexed)", BEST_SCHEDULE_QUERIES + " queries", start);
+
+        start = System.nanoTime();
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++)
+            if(scanBestSchedule(line, departures[i], destinations[i], arrivals[i]).getTrain() != indexed[i])
+                throw new IllegalStateException("Paths disagree on query " + i);
+        report("bestSchedule (scan)", BEST_SCHEDULE_QUERIES + " queries", start);
+    }
+
+    /**
+     * Finds the best schedule by scanning every schedule of the line
+     * @param line line to search
+     * @param departure departure station
+     * @param destination destination station
+     * @param time arrival time limit
+     * @return schedule arriving latest at the destination, no later than the given time
+     */
+    private static Schedule scanBestSchedule(Line line, Station departure, Station destination, Time time) {
+        Iterator<Entry<Integer, Schedule>> it = line.getScheduleIt();
+        Schedule best = null;
+
+        while(it.hasNext()) {
+            Schedule schedule = it.next().getValue();
+            if(schedule.existsStation(departure)
+                    && schedule.existsStation(destination)
+                    && schedule.isRightOrder(departure, destination)
+                    && schedule.getStationTime(destination).compareTo(time) <= 0
+                    && (best == null || schedule.getStationTime(destination).compareTo(best.getStationTime(destination)) > 0))
+                best = schedule;
+        }
+        return best;
+    }
+
+    /**
+     * Answers best schedule queries on a line of 10k trains where most are express trains, which only stop
+     * every 10 stations, and the others are local trains. Queries depart from stations only the local trains
+     * stop at, so the express trains arriving at the destination are skipped as a whole pattern, while
+     * walking the passages at the destination steps over each of them.
+     */
+    private static void expressLine() {
+        SymbolTable stationIds = new SymbolTableClass();
+        List<Station> stations = new ArrayList<>();
+        for(int i = 0; i < EXPRESS_LINE_STATIONS; i++)
+            stations.addLast(new StationClass(stationName(i), stationIds));
+
+        Line line = new LineClass("Bench", new SymbolTableClass(), stations);
+        for(int i = 0; i < LINE_SCHEDULES; i++) {
+            boolean local = i % LOCAL_TRAIN_SPACING == 0;
+            List<Station> scheduleStations = new ArrayList<>();
+            List<Time> scheduleTimes = new ArrayList<>();
+            for(int j = 0; j < EXPRESS_LINE_STATIONS; j++) {
+                if(local || j % EXPRESS_STOP_SPACING == 0) {
+                    scheduleStations.addLast(stations.get(j));
+                    scheduleTimes.addLast(timeOf(i + j));
+                }
+            }
+            line.insertSchedule(String.valueOf(i + 1), scheduleStations, scheduleTimes);
+        }
+
+        Random random = new Random(42);
+        Station destination = stations.getLast();
+        Station[] departures = new Station[BEST_SCHEDULE_QUERIES];
+        Time[] arrivals = new Time[BEST_SCHEDULE_QUERIES];
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++) {
+            int departure = random.nextInt(EXPRESS_LINE_STATIONS - 1);
+            if(departure % EXPRESS_STOP_SPACING == 0)
+                departure++;
+            departures[i] = stations.get(departure);
+            arrivals[i] = timeOf(EXPRESS_LINE_STATIONS + random.nextInt(LINE_SCHEDULES));
+        }
+
+        int[] indexed = new int[BEST_SCHEDULE_QUERIES];
+        long start = System.nanoTime();
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++)
+            indexed[i] = line.getBestSchedule(departures[i], destination, arrivals[i]).getTrain();
+        report("expressLine (indexed)", BEST_SCHEDULE_QUERIES + " queries", start);
+
+        for(int i = 0; i < BEST_SCHEDULE_QUERIES; i++)
+            if(scanBestSchedule(line, departures[i], destination, arrivals[i]).getTrain() != indexed[i])
+                throw new IllegalStateException("Paths disagree on query " + i);
+    }
+
+    /**
+     * Grows a station-name keyed hash table to a million entries, reporting the average
+     * insert and find latency of each step, which should stay flat as the table grows.
+     * @param kind name of the table implementation, for the report
+     * @param table empty table to grow
+     */
+    private static void hashTable(String kind, Dictionary<String, Integer> table) {
+        Random random = new Random(42);
+
+        for(int size = 0; size < TABLE_KEYS; size += TABLE_STEP) {
+            long start = System.nanoTime();
+            for(int i = size; i < size + TABLE_STEP; i++)
+                table.insert(stationName(i), i);
+            long insertNanos = (System.nanoTime() - start) / TABLE_STEP;
+
+            start = System.nanoTime();
+            for(int i = 0; i < TABLE_STEP; i++)
+                table.find(stationName(random.nextInt(size + TABLE_STEP)));
+            long findNanos = (System.nanoTime() - start) / TABLE_STEP;
+
+            System.out.printf("hashTable (%s): %d keys, %d ns/insert, %d ns/find%n", kind, table.size(), insertNanos, findNanos);
+        }
+    }
+
+    /**
+     * Builds an AVL tree of a million keys by inserting them in order, then from a sorted iterator
+     */
+    private static void avlBuild() {
+        List<Entry<Integer, Integer>> entries = new ArrayList<>(TABLE_KEYS);
+        for(int i = 0; i < TABLE_KEYS; i++)
+            entries.addLast(new EntryClass<>(i, i));
+
+        long start = System.nanoTime();
+        OrderedDictionary<Integer, Integer> tree = new AVLTree<>();
+        for(int i = 0; i < TABLE_KEYS; i++)
+            tree.insert(i, i);
+        report("avlBuild (inserts)", tree.size() + " keys", start);
+
+        start = System.nanoTime();
+        tree = new AVLTree<>(entries.iterator(), entries.size());
+        report("avlBuild (sorted)", tree.size() + " keys", start);
+    }
+
+    /**
+     * Builds 50k schedules of 40 stops, 2M stops in all, with the tree based schedule, the columnar
+     * schedule with a pattern of its own, and the columnar schedule sharing one trip pattern, reporting
+     * the heap they take per stop. Each schedule answers one lookup, so that the columnar schedules
+     * include their index of stops by station.
+     */
+    private static void scheduleMemory() {
+        SymbolTable stationIds = new SymbolTableClass();
+        Station[] stations = new Station[MEMORY_SCHEDULE_STOPS];
+        for(int i = 0; i < MEMORY_SCHEDULE_STOPS; i++)
+            stations[i] = new StationClass(stationName(i), stationIds);
+
+        scheduleMemory("ScheduleClass", stations, () -> new ScheduleClass(MEMORY_SCHEDULE_STOPS));
+        scheduleMemory("CompactScheduleClass", stations, () -> new CompactScheduleClass(MEMORY_SCHEDULE_STOPS));
+
+        TripPattern pattern = new TripPatternClass(MEMORY_SCHEDULE_STOPS);
+        for(Station station : stations)
+            pattern.addStop(station);
+        scheduleMemory("CompactScheduleClass, shared pattern", stations, () -> new CompactScheduleClass(pattern));
+    }
+
+    /**
+     * Builds the schedules of the schedule memory benchmark with one kind of schedule
+     * @param kind name of the schedule implementation, for the report
+     * @param stations stations the schedules stop at, in order
+     * @param factory creates an empty schedule
+     */
+    private static void scheduleMemory(String kind, Station[] stations, Supplier<Schedule> factory) {
+        long before = usedMemory();
+        long start = System.nanoTime();
+        Schedule[] schedules = new Schedule[MEMORY_SCHEDULES];
+        for(int k = 0; k < MEMORY_SCHEDULES; k++) {
+            Schedule schedule = factory.get();
+            schedule.addTrain(String.valueOf(k));
+            for(int j = 0; j < stations.length; j++)
+                schedule.addSchedule(stations[j], timeOf(k % 600 + 2 * j));
+            schedule.getStationTime(stations[stations.length - 1]);
+            schedules[k] = schedule;
+        }
+        report("scheduleMemory (" + kind + ")", MEMORY_SCHEDULES + " schedules", start);
+
+        long stops = (long) MEMORY_SCHEDULES * stations.length;
+        long bytes = usedMemory() - before;
+        System.out.printf("scheduleMemory (%s): %d stops, %d bytes, %d bytes/stop%n", kind, stops, bytes, bytes / stops);
+        Reference.reachabilityFence(schedules);
+    }
+
+    /**
+     * Loads a train every minute on a 40 station line, as 1200 imported schedules and as one headway
+     * template, reporting the time and memory of each and the time to list the trains of the last station
+     */
+    private static void headwayTemplate() {
+        List<String> trains = new ArrayList<>(TEMPLATE_TRIPS);
+        List<List<String>> stations = new ArrayList<>(TEMPLATE_TRIPS);
+        List<List<String[]>> times = new ArrayList<>(TEMPLATE_TRIPS);
+        for(int k = 0; k < TEMPLATE_TRIPS; k++) {
+            List<String> scheduleStations = new ArrayList<>();
+            List<String[]> scheduleTimes = new ArrayList<>();
+            for(int j = 0; j < MEMORY_SCHEDULE_STOPS; j++) {
+                scheduleStations.addLast(stationName(j));
+                scheduleTimes.addLast(time(k + 2 * j));
+            }
+            trains.addLast(String.valueOf(k + 1));
+            stations.addLast(scheduleStations);
+            times.addLast(scheduleTimes);
+        }
+
+        long before = usedMemory();
+        RailwaySystem schedules = new RailwaySystemClass();
+        schedules.insertLine("Bench", stationNames(MEMORY_SCHEDULE_STOPS));
+        long start = System.nanoTime();
+        schedules.insertSchedules("Bench", trains, stations, times);
+        report("headwayTemplate (schedules)", TEMPLATE_TRIPS + " trips", start);
+        System.out.printf("headwayTemplate (schedules): %d bytes%n", usedMemory() - before);
+
+        before = usedMemory();
+        RailwaySystem template = new RailwaySystemClass();
+        template.insertLine("Bench", stationNames(MEMORY_SCHEDULE_STOPS));
+        start = System.nanoTime();
+        template.insertTemplate("Bench", trains.getFirst(), stations.getFirst(), times.getFirst(), 1,
+                time(TEMPLATE_TRIPS - 1));
+        report("headwayTemplate (template)", TEMPLATE_TRIPS + " trips", start);
+        System.out.printf("headwayTemplate (template): %d bytes%n", usedMemory() - before);
+
+        String last = stationName(MEMORY_SCHEDULE_STOPS - 1);
+        start = System.nanoTime();
+        int listed = countTrains(schedules.stationTrains(last));
+        report("headwayTemplate (schedules, LC)", listed + " trains", start);
+        start = System.nanoTime();
+        if(countTrains(template.stationTrains(last)) != listed)
+            throw new IllegalStateException("Template and schedules list different trains");
+        report("headwayTemplate (template, LC)", listed + " trains", start);
+        Reference.reachabilityFence(schedules);
+        Reference.reachabilityFence(template);
+    }
+
+    private static int countTrains(SafeLineIterator<TimeTrainPairClass> it) {
+        int count = 0;
+        for(; it.hasNext(); it.next())
+            count++;
+        return count;
+    }
+
+    /**
+     * Gets the heap in use after collecting the garbage, until a collection frees nothing more
+     * @return bytes in use
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE, previous;
+        do {
+            previous = used;
+            System.gc();
+            used = runtime.totalMemory() - runtime.freeMemory();
+        } while(used < previous);
+        return used;
+    }
+
+    /**
+     * Loads 50k passages into one hub station, in time order and in random order,
+     * then lists them all, as LC does. Both orders should take about the same time.
+     */
+    private static void hubStation() {
+        int[] sorted = new int[HUB_PASSAGES];
+        for(int i = 0; i < HUB_PASSAGES; i++)
+            sorted[i] = i;
+        int[] shuffled = sorted.clone();
+        Random random = new Random(42);
+        for(int i = HUB_PASSAGES - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = tmp;
+        }
+
+        hubStation("sorted", sorted);
+        hubStation("random", shuffled);
+    }
+
+    /**
+     * Loads the passages of the given trains into a new station and lists them
+     * @param order name of the loading order, for the report
+     * @param trains train numbers, in loading order; train i passes at minute i / 35
+     */
+    private static void hubStation(String order, int[] trains) {
+        Station hub = new StationClass("Hub", new SymbolTableClass());
+        List<Station> stations = new ArrayList<>();
+        stations.addLast(hub);
+        Line line = new LineClass("Bench", new SymbolTableClass(), stations);
+
+        long start = System.nanoTime();
+        for(int train : trains)
+            hub.addTrain(String.valueOf(train), timeOf(train / 35), line);
+        report("hubStation (" + order + ")", HUB_PASSAGES + " passages", start);
+
+        start = System.nanoTime();
+        int listed = 0;
+        Iterator<Entry<TimeTrainPairClass, Line>> it = hub.consultTrains();
+        while(it.hasNext()) {
+            it.next();
+            listed++;
+        }
+        report("hubStation (" + order + ", listing)", listed + " passages", start);
+    }
+
+    /**
+     * Reads random pages of 50 of the 50k passages of the hub station, starting each page at its
+     * rank in the tree and by skipping the passages before it, and checks that both agree
+     */
+    private static void hubPages() {
+        Station hub = new StationClass("Hub", new SymbolTableClass());
+        List<Station> stations = new ArrayList<>();
+        stations.addLast(hub);
+        Line line = new LineClass("Bench", new SymbolTableClass(), stations);
+        for(int train = 0; train < HUB_PASSAGES; train++)
+            hub.addTrain(String.valueOf(train), timeOf(train / 35), line);
+
+        Random random = new Random(42);
+        int[] firsts = new int[HUB_PAGE_QUERIES];
+        for(int i = 0; i < HUB_PAGE_QUERIES; i++)
+            firsts[i] = random.nextInt(HUB_PASSAGES / HUB_PAGE_SIZE) * HUB_PAGE_SIZE;
+
+        int[] ranked = new int[HUB_PAGE_QUERIES];
+        long start = System.nanoTime();
+        for(int i = 0; i < HUB_PAGE_QUERIES; i++)
+            ranked[i] = lastTrainOf(hub.consultTrains(firsts[i], HUB_PAGE_SIZE));
+        report("hubPages (rank)", HUB_PAGE_QUERIES + " pages", start);
+
+        start = System.nanoTime();
+        for(int i = 0; i < HUB_PAGE_QUERIES; i++)
+            if(lastTrainOf(new PageIterator<>(hub.consultTrains(), firsts[i], HUB_PAGE_SIZE)) != ranked[i])
+                throw new IllegalStateException("Paths disagree on page " + i);
+        report("hubPages (skip)", HUB_PAGE_QUERIES + " pages", start);
+    }
+
+    private static int lastTrainOf(Iterator<Entry<TimeTrainPairClass, Line>> page) {
+        int train = -1;
+        while(page.hasNext())
+            train = page.next().getKey().getTrain();
+        return train;
+    }
+
+    /**
+     * Saves and loads a network of 20 lines and 400k passages with Java serialization,
+     * as Main used to, and with the binary snapshot format, reporting times and sizes.
+     */
+    private static void snapshot() {
+        RailwaySystem sys = network();
+
+        Thread serialization = new Thread(null, () -> {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                long start = System.nanoTime();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                    oos.writeObject(sys);
+                }
+                report("snapshot (serialization, save)", bytes.size() + " bytes", start);
+
+                start = System.nanoTime();
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                    ois.readObject();
+                }
+                report("snapshot (serialization, load)", bytes.size() + " bytes", start);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "serialization", SERIALIZATION_STACK);
+        serialization.start();
+        try {
+            serialization.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            new SnapshotWriter(bytes).write(sys);
+            report("snapshot (binary, save)", bytes.size() + " bytes", start);
+
+            start = System.nanoTime();
+            RailwaySystem loaded = new SnapshotReader(new ByteArrayInputStream(bytes.toByteArray())).read();
+            report("snapshot (binary, load)", bytes.size() + " bytes", start);
+
+            ByteArrayOutputStream again = new ByteArrayOutputStream();
+            new SnapshotWriter(again).write(loaded);
+            if(again.size() != bytes.size())
+                throw new IllegalStateException("Loaded snapshot differs from the saved one");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Saves the snapshot benchmark network to a file, then measures the time from opening the file
+     * to answering a CL and a CE query, reading the whole snapshot and mapping it.
+     */
+    private static void startup() {
+        try {
+            File file = File.createTempFile("network", ".dat");
+            file.deleteOnExit();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                new SnapshotWriter(out).write(network());
+            }
+
+            long start = System.nanoTime();
+            RailwaySystem read;
+            try (FileInputStream in = new FileInputStream(file)) {
+                read = new SnapshotReader(in).read();
+            }
+            firstQueries(read);
+            report("startup (read)", file.length() + " bytes", start);
+
+            start = System.nanoTime();
+            firstQueries(MappedRailwaySystemClass.open(file.toPath()));
+            report("startup (mapped)", file.length() + " bytes", start);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compares saving the snapshot benchmark network whole, as Main did on exit, with journaling
+     * 100 schedules of a new line on top of its snapshot and committing them.
+     */
+    private static void journal() {
+        try {
+            File file = File.createTempFile("network", ".dat");
+            file.deleteOnExit();
+            new File(file + ".journal").deleteOnExit();
+
+            RailwaySystem network = network();
+            long start = System.nanoTime();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                new SnapshotWriter(out).write(network);
+                out.getFD().sync();
+            }
+            report("journal (full snapshot)", file.length() + " bytes", start);
+
+            Storage storage = new StorageClass(file.getPath());
+            RailwaySystem sys = storage.open();
+            sys.insertLine("Extra", stationNames(NETWORK_LINE_STATIONS));
+            start = System.nanoTime();
+            for(int k = 0; k < 100; k++) {
+                List<String[]> times = new ArrayList<>(NETWORK_LINE_STATIONS);
+                for(int j = 0; j < NETWORK_LINE_STATIONS; j++)
+                    times.addLast(time(k + j));
+                sys.insertSchedule("Extra", String.valueOf(NETWORK_LINES * NETWORK_LINE_SCHEDULES + k),
+                        stationNames(NETWORK_LINE_STATIONS), times);
+            }
+            storage.close();
+            report("journal (100 changes)", new File(file + ".journal").length() + " bytes", start);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Changes one line of the network, then writes it whole and as a delta of the changed line,
+     * and merges the delta into a new full snapshot
+     */
+    private static void delta() {
+        try {
+            File file = File.createTempFile("network", ".dat");
+            File deltaFile = new File(file + ".delta.1");
+            file.deleteOnExit();
+            deltaFile.deleteOnExit();
+
+            RailwaySystemClass network = (RailwaySystemClass) network();
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                new SnapshotWriter(out).write(network);
+            }
+            network.markClean();
+
+            for(int k = 0; k < 10; k++) {
+                List<String[]> times = new ArrayList<>(NETWORK_LINE_STATIONS);
+                List<String> stations = new ArrayList<>(NETWORK_LINE_STATIONS);
+                stations.addLast("Hub");
+                times.addLast(time(1000 + k));
+                for(int j = 1; j < NETWORK_LINE_STATIONS; j++) {
+                    stations.addLast("Line 0 " + stationName(j));
+                    times.addLast(time(1000 + k + j));
+                }
+                network.insertSchedule("Line 0", String.valueOf(NETWORK_LINES * NETWORK_LINE_SCHEDULES + k),
+                        stations, times);
+            }
+
+            ByteArrayOutputStream full = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            new SnapshotWriter(full).write(network, 1);
+            report("delta (full snapshot)", full.size() + " bytes", start);
+
+            start = System.nanoTime();
+            try (FileOutputStream out = new FileOutputStream(deltaFile)) {
+                new SnapshotWriter(out).writeDelta(network, 1);
+            }
+            report("delta (changed line)", deltaFile.length() + " bytes", start);
+
+            start = System.nanoTime();
+            new StorageClass(file.getPath()).merge();
+            report("delta (merge)", file.length() + " bytes", start);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates an input file of 1M IH commands, then reads it as Main does,
+     * with a Scanner and with a CommandReader
+     */
+    private static void commandReader() {
+        try {
+            File file = File.createTempFile("commands", ".txt");
+            file.deleteOnExit();
+            try (Writer out = new BufferedWriter(new FileWriter(file))) {
+                for(int i = 0; i < INPUT_COMMANDS; i++) {
+                    out.write("IH Line " + i % NETWORK_LINES + "\n" + i + "\n");
+                    for(int j = 0; j < 3; j++) {
+                        String[] time = time(i % 1000 + j);
+                        out.write("Station " + stationName(j) + " " + time[0] + ":" + time[1] + "\n");
+                    }
+                    out.write("\n");
+                }
+                out.write("TA\n");
+            }
+
+            long start = System.nanoTime();
+            try (FileInputStream fis = new FileInputStream(file)) {
+                java.util.Scanner in = new java.util.Scanner(fis);
+                int stops = readCommands(in::next, in::nextLine);
+                report("commandReader (Scanner)", stops + " stops of " + file.length() + " bytes", start);
+            }
+
+            start = System.nanoTime();
+            try (FileInputStream fis = new FileInputStream(file)) {
+                CommandReader in = new CommandReader(fis);
+                int stops = readCommands(in::next, in::nextLine);
+                report("commandReader (CommandReader)", stops + " stops of " + file.length() + " bytes", start);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes 1M LC rows to a file, with printf on a stream set up as System.out is
+     * (autoflushing, over a 128 byte buffer), and with a ResultWriter in batch mode
+     */
+    private static void resultWriter() {
+        try {
+            File file = File.createTempFile("results", ".txt");
+            file.deleteOnExit();
+
+            long start = System.nanoTime();
+            try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file), 128), true)) {
+                for(int i = 0; i < OUTPUT_ROWS; i++) {
+                    Time time = timeOf(i % 1440);
+                    out.printf("Comboio %d %s:%s\n", i, time.hour(), time.minute());
+                }
+            }
+            report("resultWriter (printf)", OUTPUT_ROWS + " rows of " + file.length() + " bytes", start);
+
+            start = System.nanoTime();
+            try (FileOutputStream fos = new FileOutputStream(file)) {
+                ResultWriter out = new ResultWriter(fos, true);
+                for(int i = 0; i < OUTPUT_ROWS; i++) {
+                    out.print("Comboio ");
+                    out.print(i);
+                    out.print(' ');
+                    out.print(timeOf(i % 1440));
+                    out.print('\n');
+                }
+                out.flush();
+            }
+            report("resultWriter (ResultWriter)", OUTPUT_ROWS + " rows of " + file.length() + " bytes", start);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads IH commands until TA, splitting their stops as Main does
+     * @param next reads the next token
+     * @param nextLine reads the rest of the line
+     * @return number of stops read
+     */
+    private static int readCommands(java.util.function.Supplier<String> next,
+                                    java.util.function.Supplier<String> nextLine) {
+        int stops = 0;
+        while(!next.get().equals("TA")) {
+            nextLine.get();
+            nextLine.get();
+            String stop = nextLine.get();
+            while(!stop.isBlank()) {
+                stops += stop.split(" ").length > 1 ? 1 : 0;
+                stop = nextLine.get();
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * Answers the CL and CE queries of the startup benchmark
+     * @param sys railway system to query
+     */
+    private static void firstQueries(RailwaySystem sys) {
+        SafeStationIterator stations = sys.consultLine("Line " + (NETWORK_LINES - 1));
+        while(stations.hasNext())
+            stations.next();
+        SafeLineIterator<String> lines = sys.consultStation("Hub");
+        while(lines.hasNext())
+            lines.next();
+    }
+
+    /**
+     * Builds the snapshot benchmark network. Every line starts at a shared hub station,
+     * and schedule k of a line leaves the hub at minute k and takes a minute between stations.
+     * @return the network
+     */
+    private static RailwaySystem network() {
+        RailwaySystem sys = new RailwaySystemClass();
+        for(int l = 0; l < NETWORK_LINES; l++) {
+            String line = "Line " + l;
+            List<String> stations = new ArrayList<>(NETWORK_LINE_STATIONS);
+            stations.addLast("Hub");
+            for(int j = 1; j < NETWORK_LINE_STATIONS; j++)
+                stations.addLast(line + " " + stationName(j));
+            sys.insertLine(line, stations);
+
+            for(int k = 0; k < NETWORK_LINE_SCHEDULES; k++) {
+                List<String[]> times = new ArrayList<>(NETWORK_LINE_STATIONS);
+                for(int j = 0; j < NETWORK_LINE_STATIONS; j++)
+                    times.addLast(time(k + j));
+                sys.insertSchedule(line, String.valueOf(l * NETWORK_LINE_SCHEDULES + k), stations, times);
+            }
+        }
+        return sys;
+    }
+
+    /**
+     * Builds the names of the stations of a benchmark line
+     * @param count number of stations
+     * @return list of station names
+     */
+    private static List<String> stationNames(int count) {
+        List<String> names = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+            names.addLast(stationName(i));
+        return names;
+    }
+
+    private static String stationName(int i) {
+        return "Station " + i;
+    }
+
+    /**
+     * Formats minutes since midnight as the hour and minute components read by Main
+     * @param minutes minutes since midnight
+     * @return array with hour and minute
+     */
+    private static String[] time(int minutes) {
+        return new String[] { String.format("%02d", minutes / 60), String.format("%02d", minutes % 60) };
+    }
+
+    private static Time timeOf(int minutes) {
+        return new TimeClass(minutes);
+    }
+
+    private static void report(String name, String work, long start) {
+        System.out.printf("%s: %s in %d ms%n", name, work, (System.nanoTime() - start) / 1000000);
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the commands of the application from a byte stream, a buffer at a time.
+ * Tokens and lines are read as by Scanner with its default delimiter, so that the command handlers
+ * get the same strings, but without regular expressions and decoding only the bytes returned.
+ * Lines end at '\n', '\r' or "\r\n"; the input is decoded with the default charset, as Scanner does.
+ * Unlike Scanner, errors reading the stream are thrown instead of ending the input.
+ */
+public class CommandReader {
+
+    /** Number of bytes read from the stream at a time */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Stream the commands are read from */
+    private final InputStream in;
+    /** Charset the input is decoded with */
+    private final Charset charset;
+    /** Bytes read from the stream */
+    private final byte[] buffer;
+    /** Position of the next byte of the buffer to read */
+    private int position;
+    /** Number of bytes in the buffer */
+    private int limit;
+    /** Bytes of a token or line that spans more than one buffer */
+    private byte[] pending;
+    /** Number of bytes in pending */
+    private int pendingLength;
+
+    /**
+     * Creates a reader for the given stream
+     * @param in stream to read the commands from
+     */
+    public CommandReader(InputStream in) {
+        this.in = in;
+        this.charset = Charset.defaultCharset();
+        this.buffer = new byte[BUFFER_SIZE];
+        this.pending = new byte[64];
+    }
+
+    /**
+     * Reads the next token, skipping the whitespace before it
+     * @return the token
+     * @throws NoSuchElementException if the input has no more tokens
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    public String next() {
+        while(available() && isWhitespace(buffer[position]))
+            position++;
+        if(!available())
+            throw new NoSuchElementException();
+
+        pendingLength = 0;
+        while(true) {
+            int start = position;
+            while(position < limit && !isWhitespace(buffer[position]))
+                position++;
+            if(position < limit)
+                return text(start);
+            keep(start);
+            if(!available())
+                return text(position);
+        }
+    }
+
+    /**
+     * Reads the rest of the current line, and skips its line separator
+     * @return the rest of the line, without the separator
+     * @throws NoSuchElementException if the input has ended
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    public String nextLine() {
+        if(!available())
+            throw new NoSuchElementException("No line found");
+
+        pendingLength = 0;
+        int start = position;
+        while(true) {
+            while(position < limit && buffer[position] != '\n' && buffer[position] != '\r')
+                position++;
+            if(position < limit)
+                break;
+            keep(start);
+            if(!available())
+                return text(position);
+            start = position;
+        }
+
+        String line = text(start);
+        if(buffer[position++] == '\r' && available() && buffer[position] == '\n')
+            position++;
+        return line;
+    }
+
+    /**
+     * Closes the stream
+     */
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // The commands have all been read, so an error closing the stream loses no input
+        }
+    }
+
+    /**
+     * Checks if there are bytes left to read, reading more from the stream if the buffer is empty
+     * @return true if the buffer has a byte to read
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    private boolean available() {
+        if(position < limit)
+            return true;
+        position = 0;
+        try {
+            limit = in.read(buffer, 0, buffer.length);
+        } catch (IOException e) {
+            limit = 0;
+            throw new UncheckedIOException("Cannot read the commands", e);
+        }
+        if(limit < 0) {
+            limit = 0;
+            return false;
+        }
+        return limit > 0;
+    }
+
+    /**
+     * Keeps the bytes of the buffer from start to the current position, before the buffer is refilled
+     * @param start position of the first byte to keep
+     */
+    private void keep(int start) {
+        int length = position - start;
+        if(pendingLength + length > pending.length) {
+            byte[] larger = new byte[Math.max(pending.length * 2, pendingLength + length)];
+            System.arraycopy(pending, 0, larger, 0, pendingLength);
+            pending = larger;
+        }
+        System.arraycopy(buffer, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * Decodes the token or line ending at the current position
+     * @param start position of its first byte in the buffer, after the bytes kept before
+     * @return the decoded text
+     */
+    private String text(int start) {
+        if(pendingLength == 0)
+            return new String(buffer, start, position - start, charset);
+        keep(start);
+        String text = new String(pending, 0, pendingLength, charset);
+        pendingLength = 0;
+        return text;
+    }
+
+    /**
+     * Checks if a byte is whitespace, as Character.isWhitespace for the ASCII characters
+     * @param b byte to check
+     * @return true if the byte is whitespace
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+}
@@ -0,0 +1,198 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.Test;
+
+public class CommandReaderTests {
+
+	/** Number of bytes the reader reads from the stream at a time */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Number of random reads made on every input */
+	private static final int READS = 2000;
+
+	/**
+	 * Reads commands with lines ending in "\r\n", some of them empty, and checks that
+	 * the separators are not part of the tokens and lines read.
+	 */
+	@Test public void readsCrLfLines() {
+		String input = "IL Norte\r\nLisboa\r\nPorto\r\n\r\nCL Norte\r\nTA\r\n";
+		CommandReader in = reader(input, BUFFER_SIZE);
+		assertEquals("IL", in.next());
+		assertEquals(" Norte", in.nextLine());
+		assertEquals("Lisboa", in.nextLine());
+		assertEquals("Porto", in.nextLine());
+		assertEquals("", in.nextLine());
+		assertEquals("CL", in.next());
+		assertEquals("Norte", in.next());
+		assertEquals("", in.nextLine());
+		assertEquals("TA", in.next());
+		assertEquals("", in.nextLine());
+		assertEnded(in);
+		readsAsScanner(input);
+	}
+
+	/**
+	 * Places tokens and lines, and the "\r\n" after them, across the end of the buffer,
+	 * and across the ends of the few bytes a slow stream returns at a time.
+	 */
+	@Test public void readsTokensAcrossBufferBoundary() {
+		for (int offset = BUFFER_SIZE - 4; offset <= BUFFER_SIZE + 1; offset++) {
+			String input = " ".repeat(offset) + "RH Norte\r\nLisboa 08:34\r\nTA\r\n";
+			CommandReader in = reader(input, BUFFER_SIZE);
+			assertEquals("RH", in.next());
+			assertEquals(" Norte", in.nextLine());
+			assertEquals("Lisboa", in.next());
+			assertEquals("08:34", in.next());
+			assertEquals("", in.nextLine());
+			assertEquals("TA", in.next());
+		}
+		for (int chunk = 1; chunk <= 7; chunk++)
+			readsAsScanner(randomCommands(chunk), chunk);
+	}
+
+	/**
+	 * Reads a token and a line several times longer than the buffer
+	 */
+	@Test public void readsTokensLongerThanBuffer() {
+		String token = "Estacao".repeat(3 * BUFFER_SIZE / 7 + 1);
+		String line = token + " de " + token;
+		CommandReader in = reader(token + "\n" + line + "\r\nTA", BUFFER_SIZE);
+		assertEquals(token, in.next());
+		assertEquals("", in.nextLine());
+		assertEquals(line, in.nextLine());
+		assertEquals("TA", in.next());
+		assertEnded(in);
+	}
+
+	/**
+	 * Reads input that ends without a line separator, after a token and after a line
+	 */
+	@Test public void readsLastLineWithoutNewline() {
+		CommandReader in = reader("CL Norte\nTA", 3);
+		assertEquals("CL", in.next());
+		assertEquals(" Norte", in.nextLine());
+		assertEquals("TA", in.next());
+		assertEnded(in);
+
+		in = reader("CH Norte\nLisboa", 3);
+		assertEquals("CH", in.next());
+		assertEquals(" Norte", in.nextLine());
+		assertEquals("Lisboa", in.nextLine());
+		assertEnded(in);
+		readsAsScanner("CH Norte\nLisboa");
+		readsAsScanner("CL Norte\r");
+	}
+
+	/**
+	 * Reads from a stream that fails after its first bytes, and checks that the error is thrown,
+	 * instead of the input ending, when a token needs the bytes after them.
+	 */
+	@Test public void throwsReadErrors() {
+		IOException failure = new IOException("Input/output error");
+		CommandReader in = new CommandReader(new InputStream() {
+			private final InputStream first = new ByteArrayInputStream("CL Norte\nLC".getBytes());
+
+			@Override
+			public int read() throws IOException {
+				int b = first.read();
+				if (b < 0)
+					throw failure;
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = first.read(b, off, len);
+				if (n < 0)
+					throw failure;
+				return n;
+			}
+		});
+		assertEquals("CL", in.next());
+		assertEquals(" Norte", in.nextLine());
+		for (int i = 0; i < 2; i++) {
+			try {
+				in.next();
+				fail("Read past a failed stream");
+			} catch (UncheckedIOException e) {
+				assertEquals(failure, e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Checks that the reader and a Scanner read the same tokens and lines from the input
+	 * @param input input read
+	 * @param chunk largest number of bytes the stream returns at a time
+	 */
+	private static void readsAsScanner(String input, int chunk) {
+		Random random = new Random(input.length());
+		CommandReader in = reader(input, chunk);
+		Scanner scanner = new Scanner(input);
+		for (int i = 0; i < READS; i++) {
+			boolean line = random.nextInt(3) == 0;
+			String expected = read(scanner, line);
+			assertEquals(expected, read(in, line));
+			if (expected == null)
+				return;
+		}
+	}
+
+	private static void readsAsScanner(String input) {
+		readsAsScanner(input, BUFFER_SIZE);
+	}
+
+	private static String read(Scanner scanner, boolean line) {
+		try {
+			return line ? scanner.nextLine() : scanner.next();
+		} catch (NoSuchElementException e) {
+			return null;
+		}
+	}
+
+	private static String read(CommandReader in, boolean line) {
+		try {
+			return line ? in.nextLine() : in.next();
+		} catch (NoSuchElementException e) {
+			return null;
+		}
+	}
+
+	private static void assertEnded(CommandReader in) {
+		assertEquals(null, read(in, false));
+		assertEquals(null, read(in, true));
+	}
+
+	/**
+	 * Gets random commands, with short tokens and lines separated by spaces, tabs, '\n', '\r' and "\r\n"
+	 */
+	private static String randomCommands(long seed) {
+		Random random = new Random(seed);
+		String[] separators = { " ", "  ", "\t", "\n", "\r", "\r\n", "\r\n\r\n" };
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < READS; i++)
+			input.append("Estacao".substring(random.nextInt(7))).append(random.nextInt(100))
+					.append(separators[random.nextInt(separators.length)]);
+		return input.toString();
+	}
+
+	/**
+	 * Creates a reader of the input from a stream that returns at most a number of bytes at a time
+	 */
+	private static CommandReader reader(String input, int chunk) {
+		return new CommandReader(new ByteArrayInputStream(input.getBytes()) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, chunk));
+			}
+		});
+	}
+}
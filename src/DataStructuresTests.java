@@ -0,0 +1,372 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import dataStructures.*;
+
+public class DataStructuresTests {
+
+	private static final int MANY_KEYS = 1000000;
+	private static final int BUILT_KEYS = 10000;
+
+	@Test public void sepChainGrowsToManyKeys() { growsToManyKeys(new SepChainHashTable<Integer, Integer>()); }
+	@Test public void sepChainKeepsSizeOnReplaceAndRemove() { keepsSizeOnReplaceAndRemove(new SepChainHashTable<String, Integer>()); }
+	@Test public void sepChainHashesNegativeKeys() { hashesNegativeKeys(new SepChainHashTable<Integer, Integer>(11)); }
+	@Test public void linearProbingGrowsToManyKeys() { growsToManyKeys(new LinearProbingHashTable<Integer, Integer>()); }
+	@Test public void linearProbingKeepsSizeOnReplaceAndRemove() { keepsSizeOnReplaceAndRemove(new LinearProbingHashTable<String, Integer>()); }
+	@Test public void linearProbingHashesNegativeKeys() { hashesNegativeKeys(new LinearProbingHashTable<Integer, Integer>(11)); }
+	@Test public void linearProbingMatchesSepChain() { matchesReference(new LinearProbingHashTable<Integer, Integer>(11)); }
+	@Test public void avlTreeKeepsOrderOnSortedInserts() { keepsOrderOnSortedInserts(new AVLTree<Integer, Integer>()); }
+	@Test public void avlTreeBuildsFromSortedEntries() { buildsFromSortedEntries(new AVLTree<Integer, Integer>(evenEntries(), BUILT_KEYS)); }
+	@Test public void bstBuildsFromSortedEntries() { buildsFromSortedEntries(new BinarySearchTree<Integer, Integer>(evenEntries(), BUILT_KEYS)); }
+	@Test public void avlTreeRanksAndSelects() { ranksAndSelects(new AVLTree<Integer, Integer>(evenEntries(), BUILT_KEYS)); }
+	@Test public void bstRanksAndSelects() { ranksAndSelects(new BinarySearchTree<Integer, Integer>(evenEntries(), BUILT_KEYS)); }
+
+	/**
+	 * Sorts the positions of random keys with many repeats, and checks that they end up
+	 * ordered by key and, for the same key, by position.
+	 */
+	@Test public void mergeSortSortsIndexesStably() {
+		Random random = new Random(42);
+		int[] keys = new int[BUILT_KEYS];
+		int[] indexes = new int[BUILT_KEYS + 1];
+		for (int i = 0; i < BUILT_KEYS; i++) {
+			keys[i] = random.nextInt(100);
+			indexes[i] = i;
+		}
+		indexes[BUILT_KEYS] = -1;
+
+		MergeSort.sortIndexes(indexes, keys, BUILT_KEYS);
+		for (int i = 1; i < BUILT_KEYS; i++) {
+			int previous = indexes[i - 1], current = indexes[i];
+			assertEquals(true, keys[previous] < keys[current] || (keys[previous] == keys[current] && previous < current));
+		}
+		assertEquals(-1, indexes[BUILT_KEYS]);
+	}
+
+	/**
+	 * Merges trees of multiples of 2 and of 3, and checks that every entry comes out in key order,
+	 * keys in both trees coming from the first, and only once if the trees are merged as a dictionary.
+	 */
+	@Test public void mergeIteratorMergesInKeyOrder() {
+		AVLTree<Integer, Integer> twos = new AVLTree<Integer, Integer>(), threes = new AVLTree<Integer, Integer>();
+		for (int i = 0; i < BUILT_KEYS; i++) {
+			twos.insert(2 * i, 2);
+			threes.insert(3 * i, 3);
+		}
+		List<Iterator<Entry<Integer, Integer>>> iterators = new ArrayList<Iterator<Entry<Integer, Integer>>>();
+		iterators.addLast(twos.iterator());
+		iterators.addLast(threes.iterator());
+
+		for (int pass = 0; pass < 2; pass++) {
+			boolean distinct = pass == 1;
+			Iterator<Entry<Integer, Integer>> it = new MergeIterator<Integer, Integer>(iterators, distinct);
+			Entry<Integer, Integer> previous = null;
+			int merged = 0;
+			while (it.hasNext()) {
+				Entry<Integer, Integer> entry = it.next();
+				int order = previous == null ? -1 : previous.getKey().compareTo(entry.getKey());
+				assertEquals(true, order < 0 || (!distinct && order == 0 && previous.getValue() == 2 && entry.getValue() == 3));
+				if (order < 0 && entry.getKey() % 2 == 0 && entry.getKey() < 2 * BUILT_KEYS)
+					assertEquals(2, (int) entry.getValue());
+				previous = entry;
+				merged++;
+			}
+			int shared = (BUILT_KEYS + 2) / 3;
+			assertEquals(distinct ? 2 * BUILT_KEYS - shared : 2 * BUILT_KEYS, merged);
+		}
+	}
+
+
+	/**
+	 * Adds many elements to an array list of capacity one, and checks that it grows
+	 * keeping them in order, at their positions.
+	 */
+	@Test public void arrayListGrowsFromCapacityOne() {
+		List<Integer> list = new ArrayList<Integer>(1);
+		for (int i = 0; i < BUILT_KEYS; i++)
+			list.addLast(i);
+		assertEquals(BUILT_KEYS, list.size());
+		for (int i = 0; i < BUILT_KEYS; i++)
+			assertEquals(i, (int) list.get(i));
+		assertEquals(0, (int) list.getFirst());
+		assertEquals(BUILT_KEYS - 1, (int) list.getLast());
+		assertEquals(BUILT_KEYS / 2, list.find(BUILT_KEYS / 2));
+		assertEquals(-1, list.find(BUILT_KEYS));
+	}
+
+	/**
+	 * Applies the same random adds and removes, at any position, to an array list and to a
+	 * double list, and checks that both always hold the same elements in the same positions.
+	 */
+	@Test public void arrayListShiftsLikeDoubleList() {
+		List<Integer> list = new ArrayList<Integer>(1);
+		List<Integer> reference = new DoubleList<Integer>();
+		Random random = new Random(42);
+		for (int i = 0; i < BUILT_KEYS; i++) {
+			int size = reference.size();
+			int position = random.nextInt(size + 1);
+			switch (size == 0 ? random.nextInt(2) : random.nextInt(7)) {
+			case 0 -> {
+				list.addLast(i);
+				reference.addLast(i);
+			}
+			case 1 -> {
+				list.add(position, i);
+				reference.add(position, i);
+			}
+			case 2 -> {
+				list.addFirst(i);
+				reference.addFirst(i);
+			}
+			case 3 -> assertEquals(reference.remove(position % size), list.remove(position % size));
+			case 4 -> assertEquals(reference.removeFirst(), list.removeFirst());
+			case 5 -> assertEquals(reference.removeLast(), list.removeLast());
+			default -> {
+				Integer element = reference.get(position % size);
+				assertEquals(reference.remove(element), list.remove(element));
+			}
+			}
+			assertEquals(reference.size(), list.size());
+			if (i % 100 == 0)
+				for (int j = 0; j < list.size(); j++)
+					assertEquals(reference.get(j), list.get(j));
+		}
+		for (int j = 0; j < list.size(); j++)
+			assertEquals(reference.get(j), list.get(j));
+	}
+
+	/**
+	 * Walks the iterators of an array list and of a double list with the same elements back and
+	 * forth at random, rewinding and forwarding them, and checks that they return the same elements.
+	 */
+	@Test public void arrayListIteratorWalksLikeDoubleList() {
+		List<Integer> list = new ArrayList<Integer>();
+		List<Integer> reference = new DoubleList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			list.addLast(i);
+			reference.addLast(i);
+		}
+		list.remove(50);
+		reference.remove(50);
+		list.addLast(100);
+		reference.addLast(100);
+
+		TwoWayIterator<Integer> it = (TwoWayIterator<Integer>) list.iterator();
+		TwoWayIterator<Integer> expected = (TwoWayIterator<Integer>) reference.iterator();
+		int iterated = 0;
+		while (it.hasNext()) {
+			assertEquals(expected.next(), it.next());
+			iterated++;
+		}
+		assertEquals(false, expected.hasNext());
+		assertEquals(100, iterated);
+
+		Random random = new Random(42);
+		for (int i = 0; i < BUILT_KEYS; i++) {
+			switch (random.nextInt(10)) {
+			case 0 -> {
+				it.rewind();
+				expected.rewind();
+			}
+			case 1 -> {
+				it.fullForward();
+				expected.fullForward();
+			}
+			default -> {
+				assertEquals(expected.hasNext(), it.hasNext());
+				assertEquals(expected.hasPrevious(), it.hasPrevious());
+				if (random.nextBoolean() ? it.hasNext() : !it.hasPrevious())
+					assertEquals(expected.next(), it.next());
+				else
+					assertEquals(expected.previous(), it.previous());
+			}
+			}
+		}
+		it.rewind();
+		assertEquals(0, (int) it.next());
+	}
+
+	/**
+	 * Inserts a million keys, starting from the default capacity, and checks that
+	 * every key can be found, iterated and removed after the table has grown.
+	 */
+	private void growsToManyKeys(Dictionary<Integer, Integer> table) {
+		for (int i = 0; i < MANY_KEYS; i++)
+			assertNull(table.insert(i, -i));
+		assertEquals(MANY_KEYS, table.size());
+
+		for (int i = 0; i < MANY_KEYS; i++)
+			assertEquals(Integer.valueOf(-i), table.find(i));
+		assertNull(table.find(MANY_KEYS));
+
+		int iterated = 0;
+		Iterator<Entry<Integer, Integer>> it = table.iterator();
+		while (it.hasNext()) {
+			Entry<Integer, Integer> entry = it.next();
+			assertEquals(-entry.getKey(), (int) entry.getValue());
+			iterated++;
+		}
+		assertEquals(MANY_KEYS, iterated);
+
+		for (int i = 0; i < MANY_KEYS; i += 2)
+			assertEquals(Integer.valueOf(-i), table.remove(i));
+		assertEquals(MANY_KEYS / 2, table.size());
+		for (int i = 0; i < MANY_KEYS; i++)
+			assertEquals(i % 2 == 0 ? null : Integer.valueOf(-i), table.find(i));
+	}
+
+	/**
+	 * Applies the same random inserts and removes, on a small key range that
+	 * makes probe sequences collide and wrap around, to the table and to a
+	 * separate chaining table, and checks that both always agree.
+	 */
+	private void matchesReference(Dictionary<Integer, Integer> table) {
+		Dictionary<Integer, Integer> reference = new SepChainHashTable<Integer, Integer>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 200000; i++) {
+			int key = random.nextInt(500) * 23;
+			if (random.nextInt(3) == 0)
+				assertEquals(reference.remove(key), table.remove(key));
+			else
+				assertEquals(reference.insert(key, i), table.insert(key, i));
+			assertEquals(reference.size(), table.size());
+		}
+		for (int key = 0; key < 500 * 23; key++)
+			assertEquals(reference.find(key), table.find(key));
+	}
+
+	/**
+	 * Inserts keys in increasing order, as timetables are loaded, removes every
+	 * third one, and checks the iteration order and the ceiling and floor queries.
+	 */
+	private void keepsOrderOnSortedInserts(OrderedDictionary<Integer, Integer> tree) {
+		int keys = 100000;
+		for (int i = 0; i < keys; i++)
+			assertNull(tree.insert(i, -i));
+		for (int i = 0; i < keys; i += 3)
+			assertEquals(Integer.valueOf(-i), tree.remove(i));
+		assertEquals(keys - (keys + 2) / 3, tree.size());
+
+		int previous = -1;
+		Iterator<Entry<Integer, Integer>> it = tree.iterator();
+		while (it.hasNext()) {
+			int key = it.next().getKey();
+			assertEquals(true, key > previous && key % 3 != 0);
+			previous = key;
+		}
+		assertEquals(Integer.valueOf(1), tree.ceilingEntry(0).getKey());
+		assertEquals(Integer.valueOf(keys - 2), tree.floorEntry(keys - 1).getKey());
+		assertEquals(Integer.valueOf(4), tree.ceilingEntry(3).getKey());
+		assertEquals(Integer.valueOf(2), tree.floorEntry(3).getKey());
+	}
+
+	/**
+	 * Applies random inserts and removes to a tree built from the even keys, which also
+	 * rotate an AVL tree, and checks every few of them that rank, select and the iterators
+	 * starting at a rank agree with the keys in the tree.
+	 */
+	private void ranksAndSelects(OrderedDictionary<Integer, Integer> tree) {
+		boolean[] present = new boolean[2 * BUILT_KEYS];
+		for (int i = 0; i < 2 * BUILT_KEYS; i += 2)
+			present[i] = true;
+		Random random = new Random(42);
+
+		for (int round = 0; round < 4; round++) {
+			for (int i = 0; i < BUILT_KEYS; i++) {
+				int key = random.nextInt(2 * BUILT_KEYS);
+				present[key] = random.nextBoolean();
+				if (present[key])
+					tree.insert(key, -key);
+				else
+					tree.remove(key);
+			}
+
+			int rank = 0;
+			for (int key = 0; key < 2 * BUILT_KEYS; key++) {
+				assertEquals(rank, tree.rank(key));
+				if (present[key]) {
+					assertEquals(Integer.valueOf(key), tree.select(rank).getKey());
+					rank++;
+				}
+			}
+			assertEquals(tree.size(), rank);
+			assertEquals(rank, tree.rank(2 * BUILT_KEYS));
+
+			int first = random.nextInt(rank);
+			Iterator<Entry<Integer, Integer>> it = tree.iterator(first);
+			for (int pass = 0; pass < 2; pass++) {
+				for (int i = first; i < rank; i++)
+					assertEquals(tree.select(i), it.next());
+				assertEquals(false, it.hasNext());
+				it.rewind();
+			}
+			assertEquals(false, tree.iterator(rank).hasNext());
+		}
+
+		boolean thrown = false;
+		try {
+			tree.select(tree.size());
+		} catch (InvalidPositionException e) {
+			thrown = true;
+		}
+		assertEquals(true, thrown);
+	}
+
+	private static Iterator<Entry<Integer, Integer>> evenEntries() {
+		List<Entry<Integer, Integer>> entries = new ArrayList<>(BUILT_KEYS);
+		for (int i = 0; i < BUILT_KEYS; i++)
+			entries.addLast(new EntryClass<>(2 * i, -2 * i));
+		return entries.iterator();
+	}
+
+	/**
+	 * Checks a tree built from the even keys, then inserts the odd keys and removes
+	 * every fourth key, so that updates start from the built shape.
+	 */
+	private void buildsFromSortedEntries(OrderedDictionary<Integer, Integer> tree) {
+		assertEquals(BUILT_KEYS, tree.size());
+		for (int i = 0; i < 2 * BUILT_KEYS; i++)
+			assertEquals(i % 2 == 0 ? Integer.valueOf(-i) : null, tree.find(i));
+		assertEquals(Integer.valueOf(2), tree.ceilingEntry(1).getKey());
+		assertEquals(Integer.valueOf(0), tree.floorEntry(1).getKey());
+
+		for (int i = 1; i < 2 * BUILT_KEYS; i += 2)
+			assertNull(tree.insert(i, -i));
+		for (int i = 0; i < 2 * BUILT_KEYS; i += 4)
+			assertEquals(Integer.valueOf(-i), tree.remove(i));
+		assertEquals(2 * BUILT_KEYS - BUILT_KEYS / 2, tree.size());
+
+		int previous = -1;
+		Iterator<Entry<Integer, Integer>> it = tree.iterator();
+		while (it.hasNext()) {
+			int key = it.next().getKey();
+			assertEquals(true, key > previous && key % 4 != 0);
+			previous = key;
+		}
+	}
+
+	private void keepsSizeOnReplaceAndRemove(Dictionary<String, Integer> table) {
+		assertNull(table.insert("Station", 1));
+		assertEquals(Integer.valueOf(1), table.insert("Station", 2));
+		assertEquals(1, table.size());
+		assertNull(table.remove("Line"));
+		assertEquals(1, table.size());
+		assertEquals(Integer.valueOf(2), table.remove("Station"));
+		assertEquals(0, table.size());
+		assertNull(table.find("Station"));
+	}
+
+	private void hashesNegativeKeys(Dictionary<Integer, Integer> table) {
+		int[] keys = { Integer.MIN_VALUE, -1, -12345, Integer.MAX_VALUE };
+		for (int key : keys)
+			table.insert(key, key);
+		for (int key : keys)
+			assertEquals(Integer.valueOf(key), table.find(key));
+	}
+
+}
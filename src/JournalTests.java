@@ -0,0 +1,144 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import dataStructures.*;
+import System.*;
+
+public class JournalTests {
+
+	/** Number of records written to the journals */
+	private static final int RECORDS = 10;
+	/** Journal size from which the storage in the sessions compacts it, small enough to make many deltas */
+	private static final long COMPACTION_SIZE = 2000;
+
+	/**
+	 * Cuts the last record of a journal short, as if the application stopped while writing it,
+	 * and checks that the records before it are replayed and it is not.
+	 */
+	@Test public void stopsAtTornRecord() throws IOException {
+		Path path = Files.createTempDirectory("journal").resolve("journal");
+		long lastStart = writeLines(path);
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.setLength(file.length() - 3);
+		}
+		checkReplayedBefore(path, lastStart);
+	}
+
+	/**
+	 * Damages the payload of the last record of a journal, keeping its length,
+	 * and checks that its checksum stops the replay before it.
+	 */
+	@Test public void stopsAtRecordWithWrongChecksum() throws IOException {
+		Path path = Files.createTempDirectory("journal").resolve("journal");
+		long lastStart = writeLines(path);
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			int last = file.read();
+			file.seek(file.length() - 1);
+			file.write(last ^ 1);
+		}
+		checkReplayedBefore(path, lastStart);
+	}
+
+	/**
+	 * Opens a journal with a torn last record at the length of its complete records, appends
+	 * a record, and checks that the torn bytes are gone and the new record is replayed.
+	 */
+	@Test public void appendsAfterValidLength() throws IOException {
+		Path path = Files.createTempDirectory("journal").resolve("journal");
+		long lastStart = writeLines(path);
+		try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		JournalReader reader = new JournalReader(path);
+		reader.replay(new RailwaySystemClass(), 0);
+		assertEquals(lastStart, reader.getValidLength());
+		Journal journal = new JournalClass(path, reader.getValidLength(), reader.getSequence());
+		journal.logInsertLine("Nova", stations(RECORDS));
+		long size = journal.size();
+		journal.close();
+		assertEquals(size, Files.size(path));
+
+		RailwaySystem sys = new RailwaySystemClass();
+		reader = new JournalReader(path);
+		assertEquals(RECORDS, reader.replay(sys, 0));
+		assertEquals(size, reader.getValidLength());
+		assertEquals("Estacao0\nEstacao" + RECORDS + "\nLinha inexistente.\nAplicação terminada.\n",
+				Scenarios.run(sys, "CL Nova\nCL Linha " + (RECORDS - 1) + "\nTA\n"));
+	}
+
+	/**
+	 * Makes random changes in several sessions of a storage that compacts its journal often, leaving
+	 * a torn record at the end of some of them, and checks that every session starts with the
+	 * system the changes made, once the deltas are merged too.
+	 */
+	@Test public void replaysSessionsAsOneSystem() throws IOException {
+		Path file = Files.createTempDirectory("sessions").resolve("storedsystem.dat");
+		Path journalFile = Path.of(file + ".journal");
+		RailwaySystem expected = new RailwaySystemClass();
+		Scenarios scenarios = new Scenarios(42);
+
+		for (int session = 0; session < 12; session++) {
+			Storage storage = new StorageClass(file.toString(), COMPACTION_SIZE);
+			RailwaySystem sys = storage.open();
+			assertEquals(Scenarios.run(expected, scenarios.queries()), Scenarios.run(sys, scenarios.queries()));
+			scenarios.change(150, expected, sys);
+			storage.close();
+			if (session % 3 == 1)
+				Files.write(journalFile, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+		}
+
+		new StorageClass(file.toString(), COMPACTION_SIZE).merge();
+		Storage storage = new StorageClass(file.toString(), COMPACTION_SIZE);
+		assertEquals(Scenarios.run(expected, scenarios.queries()), Scenarios.run(storage.open(), scenarios.queries()));
+		storage.close();
+	}
+
+	/**
+	 * Writes a journal inserting a line per record, with one more station each time
+	 * @param path journal file
+	 * @return position of the last record
+	 */
+	private static long writeLines(Path path) throws IOException {
+		Journal journal = new JournalClass(path, 0, 0);
+		long lastStart = 0;
+		for (int i = 0; i < RECORDS; i++) {
+			lastStart = journal.size();
+			journal.logInsertLine("Linha " + i, stations(i + 1));
+		}
+		journal.close();
+		return lastStart;
+	}
+
+	/**
+	 * Checks that the records before the last one, and not the last one, are replayed
+	 * @param path journal file
+	 * @param lastStart position of the last record
+	 */
+	private static void checkReplayedBefore(Path path, long lastStart) throws IOException {
+		RailwaySystem sys = new RailwaySystemClass();
+		JournalReader reader = new JournalReader(path);
+		assertEquals(RECORDS - 1, reader.replay(sys, 0));
+		assertEquals(lastStart, reader.getValidLength());
+		assertEquals("Estacao0\nEstacao" + (RECORDS - 1) + "\nLinha inexistente.\nAplicação terminada.\n",
+				Scenarios.run(sys, "CL Linha " + (RECORDS - 2) + "\nCL Linha " + (RECORDS - 1) + "\nTA\n"));
+	}
+
+	/**
+	 * Gets the stations of a line: the first and the last of a number of them
+	 */
+	private static List<String> stations(int count) {
+		List<String> stations = new ArrayList<String>();
+		stations.addLast(Scenarios.stationName(0));
+		stations.addLast(Scenarios.stationName(count));
+		return stations;
+	}
+}
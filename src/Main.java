@@ -1,10 +1,12 @@
 
-import java.io.*;
-import java.util.Scanner;
 import dataStructures.*;
 import System.exceptions.*;
 import System.*;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.UncheckedIOException;
+
 
 /**
 * @author GUILHERME ROCHA (69112) gm.rocha@campus.fct.unl.pt
@@ -12,8 +14,10 @@ import System.*;
 
 public class Main {
 
-    /** File name for persisting system state */
+    /** File name for persisting system state; changes are journaled next to it */
     private static final String DATA_FILE = "storedsystem.dat";
+    /** Argument that writes the results only in large chunks, for batch input files */
+    private static final String BATCH_OPTION = "-batch";
 
     // Command constants
 
@@ -50,10 +54,8 @@ public class Main {
     private static final String SCHEDULE_REMOVE_SUCCESS = "Remoção de horário com sucesso.";
     /** Message for successful application termination */
     private static final String APP_TERMINATED_SUCCESS = "Aplicação terminada.";
-    /** Format string for train output */
-    private static final String TRAIN = "Comboio %d %s:%s\n";
-    /** Format string for schedule output */
-    private static final String STATION = "%s %s:%s\n";
+    /** Start of the rows of trains passing through a station */
+    private static final String TRAIN = "Comboio ";
 
     // Error messages
 
@@ -71,121 +73,158 @@ public class Main {
     private static final String IMPOSSIBLE_ROUTE = "Percurso impossível.";
     /** Message for nonexistent station error */
     private static final String NONEXISTENT_STATION = "Estação inexistente.";
+    /** Message for a saved system that cannot be read or written */
+    private static final String STORAGE_ERROR = "Erro no sistema guardado: ";
+    /** Message for commands that could not be read */
+    private static final String INPUT_ERROR = "Erro na leitura dos comandos: ";
+    /** Message for results that could not be written */
+    private static final String OUTPUT_ERROR = "Erro na escrita dos resultados.";
 
     public static void main(String[] args) {
-        Scanner in = new Scanner(System.in);
-        RailwaySystem sys = load();
-        exec(in, sys);
+        CommandReader in = new CommandReader(System.in);
+        // The results are written to standard output directly, as System.out would hide write errors
+        ResultWriter out = new ResultWriter(new FileOutputStream(FileDescriptor.out),
+                args.length > 0 && args[0].equals(BATCH_OPTION));
+        Storage storage = new StorageClass(DATA_FILE);
+        RailwaySystem sys;
+        try {
+            sys = storage.open();
+        } catch (StorageException e) {
+            System.err.println(STORAGE_ERROR + e.getMessage());
+            return;
+        }
+        try {
+            exec(in, out, sys);
+        } catch (StorageException e) {
+            System.err.println(STORAGE_ERROR + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.err.println(INPUT_ERROR + e.getCause().getMessage());
+        } finally {
+            if(out.checkError())
+                System.err.println(OUTPUT_ERROR);
+        }
         in.close();
-        save(sys);
+        try {
+            storage.close();
+        } catch (StorageException e) {
+            System.err.println(STORAGE_ERROR + e.getMessage());
+        }
     }
 
     /**
      * Main execution loop that processes user commands.
      * Continues until TERMINATE_APP command is received.
-     * @param in Scanner for user input
+     * Package-private so that the tests can run commands on systems they load themselves.
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void exec(Scanner in, RailwaySystem sys) {
+    static void exec(CommandReader in, ResultWriter out, RailwaySystem sys) {
         String comm;
         do {
             comm = in.next();
             switch(comm.toUpperCase()) {
-                case INSERT_LINE -> insertLine(in, sys);
-                case REMOVE_LINE -> removeLine(in, sys);
-                case CONSULT_LINE -> consultLine(in, sys);
-                case CONSULT_STATION_LINES -> consultStationLines(in, sys);
-                case INSERT_SCHEDULE -> insertSchedule(in, sys);
-                case REMOVE_SCHEDULE -> removeSchedule(in, sys);
-                case CONSULT_SCHEDULES -> consultSchedule(in, sys);
-                case CONSULT_STATION_TRAINS -> consultStationTrains(in, sys);
-                case BEST_SCHEDULE -> bestSchedule(in, sys);
-                case TERMINATE_APP -> terminate();
+                case INSERT_LINE -> insertLine(in, out, sys);
+                case REMOVE_LINE -> removeLine(in, out, sys);
+                case CONSULT_LINE -> consultLine(in, out, sys);
+                case CONSULT_STATION_LINES -> consultStationLines(in, out, sys);
+                case INSERT_SCHEDULE -> insertSchedule(in, out, sys);
+                case REMOVE_SCHEDULE -> removeSchedule(in, out, sys);
+                case CONSULT_SCHEDULES -> consultSchedule(in, out, sys);
+                case CONSULT_STATION_TRAINS -> consultStationTrains(in, out, sys);
+                case BEST_SCHEDULE -> bestSchedule(in, out, sys);
+                case TERMINATE_APP -> terminate(out);
             }
+            out.endCommand();
         }while (!comm.equalsIgnoreCase(TERMINATE_APP));
     }
 
     /**
      * Processes command to insert a new line.
      * Reads line name and stations from input.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void insertLine(Scanner in, RailwaySystem sys) {
+    private static void insertLine(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String name = in.nextLine().trim();
-            DoubleList<String> stations = makeList(in);
+            List<String> stations = makeList(in);
             sys.insertLine(name, stations);
-            System.out.println(LINE_INSERT_SUCCESS);
+            out.println(LINE_INSERT_SUCCESS);
 
             } catch (ExistentLineException e) {
-                System.out.println(EXISTING_LINE);
+                out.println(EXISTING_LINE);
             }
     }
 
     /**
      * Processes command to remove an existing line.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void removeLine(Scanner in, RailwaySystem sys) {
+    private static void removeLine(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String name = in.nextLine().trim();
             sys.removeLine(name);
-            System.out.println(LINE_REMOVE_SUCCESS);
+            out.println(LINE_REMOVE_SUCCESS);
 
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             }
     }
 
     /**
      * Processes command to consult stations in a line.
      * Lists all stations in order.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void consultLine(Scanner in, RailwaySystem sys) {
+    private static void consultLine(CommandReader in, ResultWriter out, RailwaySystem sys) {
        try {
             String name = in.nextLine().trim();
            SafeStationIterator it = sys.consultLine(name);
             while(it.hasNext())
-                System.out.println(it.next().getName());
+                out.println(it.next().getName());
 
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             }
     }
 
     /**
      * Processes command to consult lines passing through a station.
      * Lists all lines that serve the station.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void consultStationLines(Scanner in, RailwaySystem sys) {
+    private static void consultStationLines(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String name = in.nextLine().trim();
             SafeLineIterator<String> it = sys.consultStation(name);
             while(it.hasNext())
-                System.out.println(it.next().getKey());
+                out.println(it.next().getKey());
             }
             catch (NonexistentStationException e) {
-                System.out.println(NONEXISTENT_STATION);
+                out.println(NONEXISTENT_STATION);
             }
     }
 
     /**
      * Processes command to insert a new schedule.
      * Reads line, train, and station-time pairs.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void insertSchedule(Scanner in, RailwaySystem sys) {
+    private static void insertSchedule(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String name = in.nextLine().trim();
             String train = in.nextLine().trim();
-            DoubleList<String[]> schedule = new DoubleList<>();
+            List<String[]> schedule = new ArrayList<>();
             String[] endLine = getStationTime(in);
             int i = 0;
             while(!endLine[0].isBlank()) {
@@ -193,27 +232,28 @@ public class Main {
                 endLine = getStationTime(in);
             }
 
-            DoubleList<String> stationNames = extractStationNames(schedule);
-            DoubleList<String[]> times = extractTimes(schedule);
+            List<String> stationNames = extractStationNames(schedule);
+            List<String[]> times = extractTimes(schedule);
 
             sys.insertSchedule(name, train, stationNames, times);
-            System.out.println(SCHEDULE_INSERT_SUCCESS);
+            out.println(SCHEDULE_INSERT_SUCCESS);
 
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             }
             catch (InvalidScheduleException e) {
-                System.out.println(INVALID_SCHEDULE);
+                out.println(INVALID_SCHEDULE);
             }
     }
 
     /**
      * Processes command to remove a schedule.
      * Removes schedule based on line and departure information.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void removeSchedule(Scanner in, RailwaySystem sys) {
+    private static void removeSchedule(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String lineName = in.nextLine().trim();
 
@@ -225,65 +265,71 @@ public class Main {
 
             sys.removeSchedule(lineName, stationName, time);
 
-            System.out.println(SCHEDULE_REMOVE_SUCCESS);
+            out.println(SCHEDULE_REMOVE_SUCCESS);
 
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             } catch (NonexistentScheduleException e) {
-                System.out.println(NONEXISTENT_SCHEDULE);
+                out.println(NONEXISTENT_SCHEDULE);
             }
     }
 
     /**
      * Processes command to consult schedules.
      * Lists all schedules for a line from a specific station.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void consultSchedule(Scanner in, RailwaySystem sys) {
+    private static void consultSchedule(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String lineName = in.nextLine().trim();
             String stationName = in.nextLine().trim();
 
-            SafeScheduleIterator<Time> it = sys.consultSchedules(lineName, stationName);
+            SafeScheduleIterator<TimeTrainPairClass> it = sys.consultSchedules(lineName, stationName);
             while(it.hasNext()) {
                 SafeSchedule schedule = it.next().getValue();
-                printSchedule(schedule);
+                printSchedule(out, schedule);
             }
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             } catch (NonexistentStationException e) {
-                System.out.println(NONEXISTENT_DEPART_STATION);
+                out.println(NONEXISTENT_DEPART_STATION);
             }
     }
 
     /**
      * Processes command to consult trains passing through a station.
      * Lists all trains with their times at the station.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void consultStationTrains(Scanner in, RailwaySystem sys) {
+    private static void consultStationTrains(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String stationName = in.nextLine().trim();
             SafeLineIterator<TimeTrainPairClass> it = sys.stationTrains(stationName);
             while(it.hasNext()) {
-                Entry<TimeTrainPairClass, SafeLine> entry = it.next();
-                Time time = entry.getKey().getTime();
-                System.out.printf(TRAIN, entry.getKey().getTrain(), time.hour(), time.minute());
+                TimeTrainPairClass passage = it.next().getKey();
+                out.print(TRAIN);
+                out.print(passage.getTrain());
+                out.print(' ');
+                out.print(passage.getTime());
+                out.print('\n');
             }
             } catch(NonexistentStationException e) {
-                System.out.println(NONEXISTENT_STATION);
+                out.println(NONEXISTENT_STATION);
             }
     }
 
     /**
      * Processes command to find best schedule.
      * Finds optimal schedule between stations before specified time.
-     * @param in Scanner for user input
+     * @param in Reader of user input
+     * @param out Writer of the results
      * @param sys Railway system instance
      */
-    private static void bestSchedule(Scanner in, RailwaySystem sys) {
+    private static void bestSchedule(CommandReader in, ResultWriter out, RailwaySystem sys) {
         try {
             String lineName = in.nextLine().trim();
             String departureName = in.nextLine().trim();
@@ -292,31 +338,32 @@ public class Main {
 
             SafeSchedule schedule = sys.bestSchedule(lineName, departureName, destinationName, timeOfArrival);
 
-            printSchedule(schedule);
+            printSchedule(out, schedule);
 
             } catch (NonexistentLineException e) {
-                System.out.println(NONEXISTENT_LINE);
+                out.println(NONEXISTENT_LINE);
             } catch (NonexistentStationException e) {
-                System.out.println(NONEXISTENT_DEPART_STATION);
+                out.println(NONEXISTENT_DEPART_STATION);
             } catch (ImpossibleRouteException e) {
-                System.out.println(IMPOSSIBLE_ROUTE);
+                out.println(IMPOSSIBLE_ROUTE);
         }
     }
 
     /**
      * Processes termination command.
      * Displays termination message.
+     * @param out Writer of the results
      */
-    private static void terminate() {
-        System.out.println(APP_TERMINATED_SUCCESS);
+    private static void terminate(ResultWriter out) {
+        out.println(APP_TERMINATED_SUCCESS);
     }
 
     /**
      * Reads and parses station and time information from input.
-     * @param in Scanner for user input
+     * @param in Reader of user input
      * @return Array containing station name parts and time
      */
-    private static String[] getStationTime(Scanner in) {
+    private static String[] getStationTime(CommandReader in) {
         String[] input;
         input = in.nextLine().split(" ");
         return input;
@@ -325,11 +372,11 @@ public class Main {
     /**
      * Creates a list of strings from input until empty line.
      * Used for reading station lists.
-     * @param in Scanner for user input
-     * @return DoubleList containing the input strings
+     * @param in Reader of user input
+     * @return list containing the input strings
      */
-    private static DoubleList<String> makeList(Scanner in) {
-        DoubleList<String> stations = new DoubleList<>();
+    private static List<String> makeList(CommandReader in) {
+        List<String> stations = new ArrayList<>();
         String station;
 
         do{
@@ -347,10 +394,10 @@ public class Main {
      * @return List containing only station names
      * @throws InvalidScheduleException if schedule data is invalid
      */
-    private static DoubleList<String> extractStationNames(DoubleList<String[]> stations)
+    private static List<String> extractStationNames(List<String[]> stations)
             throws InvalidScheduleException {
 
-        DoubleList<String> stationList = new DoubleList<>();
+        List<String> stationList = new ArrayList<>(stations.size());
 
         for(int i = 0; i < stations.size(); i++) {
             stationList.addLast(arrangeStationName(stations.get(i)));
@@ -375,9 +422,9 @@ public class Main {
      * @param stations List of station-time pairs
      * @return List of time arrays in HH:MM format
      */
-    private static DoubleList<String[]> extractTimes(DoubleList<String[]> stations) {
+    private static List<String[]> extractTimes(List<String[]> stations) {
 
-        DoubleList<String[]> timesList = new DoubleList<>();
+        List<String[]> timesList = new ArrayList<>(stations.size());
 
         for(int i = 0; i < stations.size(); i++) {
             String[] tmp = stations.get(i);
@@ -395,40 +442,16 @@ public class Main {
         return timeLine.split(":");
     }
 
-    private static void printSchedule(SafeSchedule schedule) {
+    private static void printSchedule(ResultWriter out, SafeSchedule schedule) {
         SafeStationIterator it = schedule.getStationIt();
-        System.out.println(schedule.getTrain());
+        out.println(schedule.getTrain());
 
         while(it.hasNext()) {
             SafeStation station = it.next();
-            Time time = schedule.getStationTime(station);
-            System.out.printf(STATION, station.getName(), time.hour(), time.minute());
-        }
-    }
-
-    /**
-     * Saves current system state to file.
-     * @param sys Railway system to save
-     */
-    private static void save(RailwaySystem sys) {
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(DATA_FILE));
-             ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-            oos.writeObject(sys);
-            oos.flush();
-        } catch (IOException e) {}
-    }
-
-    /**
-     * Loads system state from file.
-     * Creates new system if file doesn't exist or is corrupted.
-     * @return Loaded or new RailwaySystem instance
-     */
-    private static RailwaySystem load() {
-        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(DATA_FILE));
-             ObjectInputStream ois = new ObjectInputStream(bis)) {
-            return (RailwaySystem) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            return new RailwaySystemClass();
+            out.print(station.getName());
+            out.print(' ');
+            out.print(schedule.getStationTime(station));
+            out.print('\n');
         }
     }
 }
@@ -0,0 +1,216 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import dataStructures.*;
+import System.*;
+
+public class PagingTests {
+
+	/** Number of random systems paged */
+	private static final int SEEDS = 10;
+	/** Number of random changes made to build each system */
+	private static final int CHANGES = 300;
+	/** Sizes of the pages the listings are read in */
+	private static final int[] PAGE_SIZES = { 1, 3, 7, 50 };
+	/** Number of station names the random systems use */
+	private static final int STATIONS = 12;
+	/** Number of line names the random systems use */
+	private static final int LINES = 5;
+	/** Start of the row of a listing rejected with an exception */
+	private static final String REJECTED = "rejected by ";
+
+	/**
+	 * Pages the schedules and trains of every station of random systems, with templates and removed
+	 * lines and schedules, and checks that the pages joined list what the whole listings list.
+	 */
+	@Test public void pagesAsWholeListings() throws IOException {
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			RailwaySystem sys = new RailwaySystemClass();
+			scenarios.change(CHANGES, sys);
+			checkPages(sys);
+		}
+	}
+
+	/**
+	 * Pages the schedules and trains of every station of snapshots of random systems, mapped,
+	 * and checks that they are paged in place as the systems written page them.
+	 */
+	@Test public void pagesMappedAsWholeListings() throws IOException {
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			RailwaySystem sys = new RailwaySystemClass();
+			scenarios.change(CHANGES, sys);
+			MappedRailwaySystemClass mapped = map(sys);
+			checkPages(mapped);
+			assertEquals(true, mapped.isMapped());
+			for (int station = 0; station < STATIONS; station++)
+				assertArrayEquals(rows(trains(sys, Scenarios.stationName(station), 0, Integer.MAX_VALUE)),
+						rows(trains(mapped, Scenarios.stationName(station), 0, Integer.MAX_VALUE)));
+		}
+	}
+
+	/**
+	 * Pages a station where the trips of two templates are listed between schedules,
+	 * so that pages start and end inside the trips of the templates, before and after mapping it.
+	 */
+	@Test public void pagesTemplatesBetweenSchedules() throws IOException {
+		RailwaySystem sys = new RailwaySystemClass();
+		sys.insertLine("Norte", strings("Lisboa", "Coimbra", "Porto"));
+		sys.insertLine("Oeste", strings("Lisboa", "Leiria"));
+		sys.insertTemplate("Norte", "100", strings("Lisboa", "Coimbra", "Porto"), times("06:00", "07:00", "08:00"), 20,
+				new String[] { "09", "00" });
+		sys.insertTemplate("Oeste", "300", strings("Lisboa", "Leiria"), times("06:10", "07:30"), 30, new String[] { "10", "10" });
+		for (int i = 0; i < 10; i++)
+			sys.insertSchedule("Norte", String.valueOf(200 + i), strings("Lisboa", "Porto"),
+					times(String.format("%02d:05", 6 + i), String.format("%02d:05", 8 + i)));
+		sys.removeSchedule("Norte", "Lisboa", new String[] { "07", "00" });
+
+		assertEquals(28, trains(sys, "Lisboa", 0, Integer.MAX_VALUE).size());
+		assertEquals(19, schedules(sys, "Norte", "Lisboa", 0, Integer.MAX_VALUE).size());
+		String[] lines = { "Norte", "Oeste" };
+		String[] stations = { "Lisboa", "Coimbra", "Leiria" };
+		checkPages(sys, lines, stations);
+		MappedRailwaySystemClass mapped = map(sys);
+		checkPages(mapped, lines, stations);
+		assertEquals(true, mapped.isMapped());
+	}
+
+	/**
+	 * Checks the pages of the schedules of every line of the random systems at every station,
+	 * and of the trains of every station
+	 */
+	private static void checkPages(RailwaySystem sys) {
+		String[] lines = new String[LINES];
+		String[] stations = new String[STATIONS];
+		for (int line = 0; line < LINES; line++)
+			lines[line] = Scenarios.lineName(line);
+		for (int station = 0; station < STATIONS; station++)
+			stations[station] = Scenarios.stationName(station);
+		checkPages(sys, lines, stations);
+	}
+
+	/**
+	 * Checks the pages of the schedules of the lines at the stations, and of the trains of the stations
+	 */
+	private static void checkPages(RailwaySystem sys, String[] lines, String[] stations) {
+		for (String station : stations) {
+			checkPages(trains(sys, station, 0, Integer.MAX_VALUE), (first, count) -> trains(sys, station, first, count));
+			for (String line : lines)
+				checkPages(schedules(sys, line, station, 0, Integer.MAX_VALUE),
+						(first, count) -> schedules(sys, line, station, first, count));
+		}
+	}
+
+	/**
+	 * Checks that the pages of a listing, of every size, joined list the whole listing, and that
+	 * pages from its end or past it, and pages of no rows, are empty
+	 * @param whole rows of the whole listing, or the exception that rejects it
+	 * @param pages reader of the pages of the listing
+	 */
+	private static void checkPages(List<String> whole, Pages pages) {
+		if (whole.size() == 1 && whole.getFirst().startsWith(REJECTED)) {
+			assertArrayEquals(rows(whole), rows(pages.read(0, 1)));
+			return;
+		}
+		for (int size : PAGE_SIZES) {
+			List<String> joined = new ArrayList<String>(whole.size());
+			for (int first = 0; first < whole.size(); first += size) {
+				List<String> page = pages.read(first, size);
+				assertEquals(Math.min(size, whole.size() - first), page.size());
+				Iterator<String> it = page.iterator();
+				while (it.hasNext())
+					joined.addLast(it.next());
+			}
+			assertArrayEquals(rows(whole), rows(joined));
+		}
+		assertEquals(0, pages.read(whole.size(), 10).size());
+		assertEquals(0, pages.read(whole.size() + 5, 10).size());
+		assertEquals(0, pages.read(0, 0).size());
+		assertEquals(0, pages.read(whole.size() / 2, 0).size());
+	}
+
+	/**
+	 * Reader of the rows of the pages of a listing
+	 */
+	private interface Pages {
+		List<String> read(int first, int count);
+	}
+
+	/**
+	 * Gets the trains of a page of the trains of a station, as train and time, through the
+	 * whole listing when count is Integer.MAX_VALUE
+	 * @return the rows, or the exception that rejected the station
+	 */
+	private static List<String> trains(RailwaySystem sys, String station, int first, int count) {
+		List<String> rows = new ArrayList<String>();
+		try {
+			Iterator<Entry<TimeTrainPairClass, SafeLine>> it = count == Integer.MAX_VALUE
+					? sys.stationTrains(station) : sys.stationTrains(station, first, count);
+			while (it.hasNext()) {
+				TimeTrainPairClass key = it.next().getKey();
+				rows.addLast(key.getTrain() + " " + key.getTime().hour() + ":" + key.getTime().minute());
+			}
+		} catch (RuntimeException e) {
+			rows.addLast(REJECTED + e.getClass().getName());
+		}
+		return rows;
+	}
+
+	/**
+	 * Gets the schedules of a page of the schedules departing from a station in a line, as train
+	 * and departure, through the whole listing when count is Integer.MAX_VALUE
+	 * @return the rows, or the exception that rejected the line or station
+	 */
+	private static List<String> schedules(RailwaySystem sys, String line, String station, int first, int count) {
+		List<String> rows = new ArrayList<String>();
+		try {
+			Iterator<Entry<TimeTrainPairClass, SafeSchedule>> it = count == Integer.MAX_VALUE
+					? sys.consultSchedules(line, station) : sys.consultSchedules(line, station, first, count);
+			while (it.hasNext()) {
+				Entry<TimeTrainPairClass, SafeSchedule> entry = it.next();
+				Time time = entry.getKey().getTime();
+				rows.addLast(entry.getValue().getTrain() + " " + time.hour() + ":" + time.minute());
+			}
+		} catch (RuntimeException e) {
+			rows.addLast(REJECTED + e.getClass().getName());
+		}
+		return rows;
+	}
+
+	private static String[] rows(List<String> list) {
+		String[] rows = new String[list.size()];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = list.get(i);
+		return rows;
+	}
+
+	/**
+	 * Maps a snapshot of a system
+	 */
+	private static MappedRailwaySystemClass map(RailwaySystem sys) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(out).write(sys, 0);
+		return new MappedRailwaySystemClass(ByteBuffer.wrap(out.toByteArray()));
+	}
+
+	private static List<String> strings(String... values) {
+		List<String> list = new ArrayList<String>(values.length);
+		for (String value : values)
+			list.addLast(value);
+		return list;
+	}
+
+	private static List<String[]> times(String... values) {
+		List<String[]> list = new ArrayList<String[]>(values.length);
+		for (String value : values)
+			list.addLast(value.split(":"));
+		return list;
+	}
+}
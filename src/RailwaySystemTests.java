@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import dataStructures.*;
+import System.*;
+import System.exceptions.InvalidScheduleException;
+
+public class RailwaySystemTests {
+
+	/** Number of random systems the schedules are imported into */
+	private static final int SEEDS = 10;
+	/** Number of random changes made to build each system */
+	private static final int CHANGES = 200;
+	/** Number of imports made on each system */
+	private static final int IMPORTS = 30;
+	/** First train number of the imported schedules, above the ones of the random changes */
+	private static final int FIRST_IMPORTED = 1000;
+
+	/**
+	 * Imports random schedules into random systems, and checks that each import is accepted
+	 * exactly when inserting its schedules one at a time would accept them all, and that
+	 * the system is then listed as if they had been, or left as it was.
+	 */
+	@Test public void importsSchedulesAsOneAtATime() throws IOException {
+		int accepted = 0;
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			Random random = new Random(seed);
+			RailwaySystem imported = new RailwaySystemClass();
+			RailwaySystem inserted = new RailwaySystemClass();
+			scenarios.change(CHANGES, imported, inserted);
+			int train = FIRST_IMPORTED;
+
+			for (int i = 0; i < IMPORTS; i++) {
+				int line = random.nextInt(5);
+				if (scenarios.stationsOf(line) == null)
+					continue;
+				int count = 1 + random.nextInt(4);
+				List<String> trains = new ArrayList<String>(count);
+				List<List<String>> stations = new ArrayList<List<String>>(count);
+				List<List<String[]>> times = new ArrayList<List<String[]>>(count);
+				for (int j = 0; j < count; j++) {
+					trains.addLast(String.valueOf(train++));
+					stations.addLast(scenarios.tripStations(line));
+					times.addLast(scenarios.tripTimes(line, stations.getLast()));
+				}
+
+				String before = Scenarios.run(imported, scenarios.queries());
+				String outcome = outcome(() -> imported.insertSchedules(Scenarios.lineName(line), trains, stations, times));
+				RailwaySystem oneAtATime = copy(inserted);
+				String expected = "accepted";
+				for (int j = 0; j < count && expected.equals("accepted"); j++) {
+					int k = j;
+					expected = outcome(() -> oneAtATime.insertSchedule(Scenarios.lineName(line), trains.get(k), stations.get(k), times.get(k)));
+				}
+				assertEquals(expected, outcome);
+
+				if (outcome.equals("accepted")) {
+					inserted = oneAtATime;
+					accepted++;
+				}
+				assertEquals(Scenarios.run(inserted, scenarios.queries()), Scenarios.run(imported, scenarios.queries()));
+				if (!outcome.equals("accepted"))
+					assertEquals(before, Scenarios.run(imported, scenarios.queries()));
+			}
+		}
+		assertEquals(true, accepted > 0);
+	}
+
+	/**
+	 * Imports two schedules that are accepted one at a time but not together, because the
+	 * second overtakes the first, and checks that neither is inserted.
+	 */
+	@Test public void rejectsImportOvertakingItself() {
+		RailwaySystem sys = line();
+		List<String> trains = strings("101", "102");
+		List<List<String>> stations = new ArrayList<List<String>>();
+		stations.addLast(strings("Lisboa", "Coimbra", "Porto"));
+		stations.addLast(strings("Lisboa", "Coimbra", "Porto"));
+		List<List<String[]>> times = new ArrayList<List<String[]>>();
+		times.addLast(times("08:00", "09:30", "11:00"));
+		times.addLast(times("08:10", "09:20", "10:50"));
+
+		assertEquals(InvalidScheduleException.class.getName(),
+				outcome(() -> sys.insertSchedules("Norte", trains, stations, times)));
+		String empty = Scenarios.run(sys, "CH Norte\nLisboa\nTA\n");
+		assertEquals("Aplicação terminada.\n", empty);
+
+		RailwaySystem oneAtATime = line();
+		assertEquals("accepted", outcome(() -> oneAtATime.insertSchedule("Norte", trains.get(0), stations.get(0), times.get(0))));
+		assertEquals(InvalidScheduleException.class.getName(),
+				outcome(() -> oneAtATime.insertSchedule("Norte", trains.get(1), stations.get(1), times.get(1))));
+		for (int i = 0; i < 2; i++) {
+			RailwaySystem alone = line();
+			int k = i;
+			assertEquals("accepted", outcome(() -> alone.insertSchedule("Norte", trains.get(k), stations.get(k), times.get(k))));
+		}
+	}
+
+	/**
+	 * Imports schedules with a train repeated in the import, and with a train already in the line,
+	 * and checks that they are rejected and the line is left as it was.
+	 */
+	@Test public void rejectsImportOfRepeatedTrains() {
+		RailwaySystem sys = line();
+		List<List<String>> stations = new ArrayList<List<String>>();
+		stations.addLast(strings("Lisboa", "Porto"));
+		stations.addLast(strings("Porto", "Lisboa"));
+		List<List<String[]>> times = new ArrayList<List<String[]>>();
+		times.addLast(times("08:00", "11:00"));
+		times.addLast(times("12:00", "15:00"));
+
+		assertEquals(InvalidScheduleException.class.getName(),
+				outcome(() -> sys.insertSchedules("Norte", strings("101", "101"), stations, times)));
+		sys.insertSchedule("Norte", "102", strings("Lisboa", "Porto"), times("07:00", "10:00"));
+		String before = Scenarios.run(sys, "CH Norte\nLisboa\nCH Norte\nPorto\nTA\n");
+		assertEquals(InvalidScheduleException.class.getName(),
+				outcome(() -> sys.insertSchedules("Norte", strings("101", "102"), stations, times)));
+		assertEquals(before, Scenarios.run(sys, "CH Norte\nLisboa\nCH Norte\nPorto\nTA\n"));
+	}
+
+	/**
+	 * Change made on a system
+	 */
+	private interface Change {
+		void apply();
+	}
+
+	/**
+	 * Makes a change and tells if it was accepted
+	 * @return "accepted", or the name of the exception that rejected the change
+	 */
+	private static String outcome(Change change) {
+		try {
+			change.apply();
+			return "accepted";
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	/**
+	 * Copies a system through a snapshot
+	 */
+	private static RailwaySystem copy(RailwaySystem sys) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(out).write(sys, 0);
+		return new SnapshotReader(new ByteArrayInputStream(out.toByteArray())).read();
+	}
+
+	/**
+	 * Creates a system with a line from Lisboa to Porto, through Coimbra
+	 */
+	private static RailwaySystem line() {
+		RailwaySystem sys = new RailwaySystemClass();
+		sys.insertLine("Norte", strings("Lisboa", "Coimbra", "Porto"));
+		return sys;
+	}
+
+	private static List<String> strings(String... values) {
+		List<String> list = new ArrayList<String>(values.length);
+		for (String value : values)
+			list.addLast(value);
+		return list;
+	}
+
+	private static List<String[]> times(String... values) {
+		List<String[]> list = new ArrayList<String[]>(values.length);
+		for (String value : values)
+			list.addLast(value.split(":"));
+		return list;
+	}
+}
@@ -0,0 +1,187 @@
+import System.Time;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the results of the commands to a byte stream through a reusable buffer.
+ * Rows are written as System.out.println and printf would write them, with times formatted
+ * by hand, and the buffer is written to the stream when it fills up and at the end of each command,
+ * or, in batch mode, only when it fills up and when the writer is flushed.
+ * As with PrintStream, errors writing to the stream are not thrown but kept for checkError.
+ */
+public class ResultWriter {
+
+    /** Number of bytes written to the stream at a time */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Number of minutes in an hour */
+    private static final int MINUTES_PER_HOUR = 60;
+
+    /** Stream the results are written to */
+    private final OutputStream out;
+    /** Charset the results are encoded with */
+    private final Charset charset;
+    /** Line separator written by println */
+    private final String lineSeparator;
+    /** Whether the buffer is only written to the stream when full or flushed */
+    private final boolean batch;
+    /** Bytes not yet written to the stream */
+    private final byte[] buffer;
+    /** Number of bytes in the buffer */
+    private int length;
+    /** Whether writing to the stream has failed */
+    private boolean error;
+
+    /**
+     * Creates a writer for the given stream
+     * @param out stream to write the results to
+     * @param batch true to write to the stream only when the buffer fills up or is flushed
+     */
+    public ResultWriter(OutputStream out, boolean batch) {
+        this.out = out;
+        this.charset = Charset.defaultCharset();
+        this.lineSeparator = System.lineSeparator();
+        this.batch = batch;
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Writes a string
+     * @param s string to write
+     */
+    public void print(String s) {
+        int n = s.length();
+        if(length + n > buffer.length)
+            drain();
+
+        int i = 0;
+        if(n <= buffer.length) {
+            while(i < n) {
+                char c = s.charAt(i);
+                if(c >= 0x80)
+                    break;
+                buffer[length + i++] = (byte) c;
+            }
+        }
+        if(i == n) {
+            length += n;
+            return;
+        }
+
+        byte[] bytes = s.getBytes(charset);
+        if(length + bytes.length > buffer.length)
+            drain();
+        if(bytes.length > buffer.length)
+            write(bytes, bytes.length);
+        else {
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+    }
+
+    /**
+     * Writes a number in decimal
+     * @param n number to write
+     */
+    public void print(int n) {
+        print(Integer.toString(n));
+    }
+
+    /**
+     * Writes a time as HH:MM
+     * @param time time to write
+     */
+    public void print(Time time) {
+        if(length + 16 > buffer.length)
+            drain();
+        int minutes = time.toMinutes();
+        int hour = minutes / MINUTES_PER_HOUR;
+        if(hour < 10)
+            buffer[length++] = '0';
+        if(hour < 100) {
+            if(hour >= 10)
+                buffer[length++] = (byte) ('0' + hour / 10);
+            buffer[length++] = (byte) ('0' + hour % 10);
+        } else
+            print(Integer.toString(hour));
+        buffer[length++] = ':';
+        buffer[length++] = (byte) ('0' + minutes % MINUTES_PER_HOUR / 10);
+        buffer[length++] = (byte) ('0' + minutes % 10);
+    }
+
+    /**
+     * Writes a character, which must be ASCII
+     * @param c character to write
+     */
+    public void print(char c) {
+        if(length == buffer.length)
+            drain();
+        buffer[length++] = (byte) c;
+    }
+
+    /**
+     * Writes a string followed by the line separator, as println does
+     * @param s string to write
+     */
+    public void println(String s) {
+        print(s);
+        print(lineSeparator);
+    }
+
+    /**
+     * Writes a number followed by the line separator, as println does
+     * @param n number to write
+     */
+    public void println(int n) {
+        print(n);
+        print(lineSeparator);
+    }
+
+    /**
+     * Ends the results of a command, writing them to the stream unless in batch mode
+     */
+    public void endCommand() {
+        if(!batch)
+            flush();
+    }
+
+    /**
+     * Writes the buffered results to the stream, and flushes it
+     */
+    public void flush() {
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+
+    /**
+     * Flushes the writer and checks if writing to the stream has ever failed, as PrintStream.checkError does
+     * @return true if some results could not be written
+     */
+    public boolean checkError() {
+        flush();
+        return error;
+    }
+
+    /**
+     * Writes the buffered bytes to the stream, emptying the buffer
+     */
+    private void drain() {
+        write(buffer, length);
+        length = 0;
+    }
+
+    private void write(byte[] bytes, int count) {
+        if(count == 0)
+            return;
+        try {
+            out.write(bytes, 0, count);
+        } catch (IOException e) {
+            error = true;
+        }
+    }
+}
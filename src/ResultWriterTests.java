@@ -0,0 +1,199 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import System.*;
+
+public class ResultWriterTests {
+
+	/** Number of bytes the writer keeps before writing them to the stream */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Number of random rows written */
+	private static final int ROWS = 20000;
+	/** Files of inputs and of the results expected for them */
+	private static final File BASE = new File("tests");
+
+	/**
+	 * Writes random rows, with accented names, numbers, times and strings longer than the buffer,
+	 * and checks that the bytes written are the ones System.out wrote for the same rows.
+	 */
+	@Test public void writesAsPrintStream() {
+		for (boolean batch : new boolean[] { false, true }) {
+			Random random = new Random(42);
+			ByteArrayOutputStream expected = new ByteArrayOutputStream();
+			PrintStream printStream = new PrintStream(expected);
+			ByteArrayOutputStream written = new ByteArrayOutputStream();
+			ResultWriter out = new ResultWriter(written, batch);
+
+			for (int i = 0; i < ROWS; i++) {
+				switch (random.nextInt(5)) {
+				case 0 -> {
+					String name = random.nextBoolean() ? "Estação " + i : "Linha " + i;
+					printStream.println(name);
+					out.println(name);
+				}
+				case 1 -> {
+					printStream.println(i);
+					out.println(i);
+				}
+				case 2 -> {
+					int minutes = random.nextInt(24 * 60);
+					printStream.printf("Comboio %d %02d:%02d\n", i, minutes / 60, minutes % 60);
+					out.print("Comboio ");
+					out.print(i);
+					out.print(' ');
+					out.print(new TimeClass(minutes));
+					out.print('\n');
+				}
+				case 3 -> {
+					int words = random.nextInt(50) == 0 ? BUFFER_SIZE / 4 : random.nextInt(100);
+					String row = (random.nextBoolean() ? "Inserção " : "Remocao ").repeat(words);
+					printStream.println(row);
+					out.println(row);
+				}
+				default -> {
+					printStream.println("Aplicação terminada.");
+					out.println("Aplicação terminada.");
+					out.endCommand();
+				}
+				}
+			}
+			printStream.flush();
+			out.flush();
+			assertArrayEquals(expected.toByteArray(), written.toByteArray());
+		}
+	}
+
+	/**
+	 * Runs the commands of the test inputs in order on one stored system, as the application does,
+	 * with and without batch mode, and checks that the results are the ones expected.
+	 */
+	@Test public void writesResultsOfTestInputs() throws IOException {
+		File[] inputs = BASE.listFiles((dir, name) -> name.endsWith("-in.txt"));
+		Arrays.sort(inputs);
+		for (boolean batch : new boolean[] { false, true }) {
+			String file = Files.createTempDirectory("results").resolve("storedsystem.dat").toString();
+			for (File input : inputs) {
+				String expected = new String(Files.readAllBytes(new File(BASE, input.getName().replace("-in", "-out")).toPath()));
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				ResultWriter out = new ResultWriter(bytes, batch);
+				Storage storage = new StorageClass(file);
+				CommandReader in = new CommandReader(new FileInputStream(input));
+				Main.exec(in, out, storage.open());
+				out.flush();
+				in.close();
+				storage.close();
+				assertEquals(input.getName(), expected.replaceAll("\r\n", "\n"), new String(bytes.toByteArray()).replaceAll("\r\n", "\n"));
+			}
+		}
+	}
+
+	/**
+	 * Checks that the results of every command are written to the stream when it ends,
+	 * and, in batch mode, only when the buffer fills up and when the writer is flushed.
+	 */
+	@Test public void flushesOnlyFullBuffersInBatch() {
+		CountingOutputStream counted = new CountingOutputStream();
+		ResultWriter out = new ResultWriter(counted, false);
+		out.println("Inserção de linha com sucesso.");
+		assertEquals(0, counted.size());
+		out.endCommand();
+		assertEquals("Inserção de linha com sucesso.".getBytes().length + System.lineSeparator().length(), counted.size());
+		assertEquals(1, counted.flushes);
+
+		counted = new CountingOutputStream();
+		out = new ResultWriter(counted, true);
+		int rows = 0;
+		while (counted.size() == 0) {
+			out.println(rows++);
+			out.endCommand();
+		}
+		assertEquals(true, counted.size() > BUFFER_SIZE - 16 && counted.size() <= BUFFER_SIZE);
+		assertEquals(0, counted.flushes);
+		int written = 0;
+		for (int i = 0; i < rows; i++)
+			written += Integer.toString(i).length() + System.lineSeparator().length();
+		out.flush();
+		assertEquals(written, counted.size());
+		assertEquals(1, counted.flushes);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Main.exec(new CommandReader(new ByteArrayInputStream("IL Norte\nLisboa\nPorto\n\nCL Norte\nTA\n".getBytes())),
+				new ResultWriter(bytes, true), new RailwaySystemClass());
+		assertEquals(0, bytes.size());
+	}
+
+	/**
+	 * Writes to a stream that fails, and checks that the failure is kept for checkError
+	 * whether it comes from writing the buffer or from flushing the stream.
+	 */
+	@Test public void keepsWriteErrors() {
+		ResultWriter out = new ResultWriter(new ByteArrayOutputStream(), false);
+		out.println("Inserção de linha com sucesso.");
+		assertEquals(false, out.checkError());
+
+		for (boolean failOnFlush : new boolean[] { false, true }) {
+			out = new ResultWriter(new FailingOutputStream(failOnFlush), true);
+			out.println("Inserção de linha com sucesso.");
+			out.endCommand();
+			assertEquals(true, out.checkError());
+			out.println("Aplicação terminada.");
+			assertEquals(true, out.checkError());
+		}
+	}
+
+	/**
+	 * Stream that counts the times it is flushed
+	 */
+	private static class CountingOutputStream extends ByteArrayOutputStream {
+
+		private int flushes;
+
+		@Override
+		public void flush() {
+			flushes++;
+		}
+	}
+
+	/**
+	 * Stream that fails to write, or only to flush
+	 */
+	private static class FailingOutputStream extends OutputStream {
+
+		private final boolean failOnFlush;
+
+		FailingOutputStream(boolean failOnFlush) {
+			this.failOnFlush = failOnFlush;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!failOnFlush)
+				throw new IOException("Broken pipe");
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (!failOnFlush)
+				throw new IOException("Broken pipe");
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (failOnFlush)
+				throw new IOException("No space left on device");
+		}
+	}
+}
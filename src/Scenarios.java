@@ -0,0 +1,246 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import dataStructures.*;
+import System.RailwaySystem;
+
+/**
+ * Random changes and queries on railway systems, shared by the tests.
+ * Every change is made on several systems at once, which must all accept or reject it,
+ * so that their answers to the queries can be compared afterwards.
+ */
+class Scenarios {
+
+	/** Number of stations the lines are made of */
+	private static final int STATIONS = 12;
+	/** Number of line names */
+	private static final int LINES = 5;
+	/** Largest train number */
+	private static final int TRAINS = 400;
+
+	private final Random random;
+	/** Stations of each line, in order, or null if the line is not in the systems */
+	private final String[][] lineStations = new String[LINES][];
+	/** Line, departure station, hour and minute of the schedules inserted, to remove some of them */
+	private final List<String[]> departures = new ArrayList<String[]>();
+
+	/**
+	 * Creates the scenario of a seed
+	 * @param seed seed of the changes
+	 */
+	Scenarios(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Runs commands on a system, as the application does
+	 * @param sys railway system
+	 * @param commands commands, ending with the command that terminates the application
+	 * @return the results written
+	 */
+	static String run(RailwaySystem sys, String commands) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ResultWriter out = new ResultWriter(bytes, false);
+		Main.exec(new CommandReader(new ByteArrayInputStream(commands.getBytes())), out, sys);
+		out.flush();
+		return new String(bytes.toByteArray()).replaceAll("\r\n", "\n");
+	}
+
+	/**
+	 * Makes a random change on every system, mostly schedule insertions, and checks
+	 * that they all accept it or all reject it with the same exception
+	 * @param systems systems to change
+	 */
+	void change(RailwaySystem... systems) {
+		int line = random.nextInt(LINES);
+		int kind = lineStations[line] == null ? 0 : random.nextInt(20);
+		Change change;
+		if (kind == 0)
+			change = insertLine(line);
+		else if (kind == 1)
+			change = removeLine(line);
+		else if (kind < 4 && !departures.isEmpty())
+			change = removeSchedule();
+		else if (kind < 6)
+			change = insertSchedules(line);
+		else if (kind < 8)
+			change = insertTemplate(line);
+		else
+			change = insertSchedule(line);
+
+		String expected = null;
+		for (RailwaySystem sys : systems) {
+			String outcome = "accepted";
+			try {
+				change.apply(sys);
+			} catch (RuntimeException e) {
+				outcome = e.getClass().getName();
+			}
+			if (expected == null)
+				expected = outcome;
+			assertEquals(expected, outcome);
+		}
+	}
+
+	/**
+	 * Makes random changes on every system
+	 * @param count number of changes
+	 * @param systems systems to change
+	 */
+	void change(int count, RailwaySystem... systems) {
+		for (int i = 0; i < count; i++)
+			change(systems);
+	}
+
+	/**
+	 * Gets the commands that list every line, station, schedule and train, and the best schedule
+	 * between the ends of every line, ending with the command that terminates the application
+	 * @return the commands
+	 */
+	String queries() {
+		StringBuilder commands = new StringBuilder();
+		for (int line = 0; line < LINES; line++) {
+			commands.append("CL ").append(lineName(line)).append('\n');
+			for (int station = 0; station < STATIONS; station++)
+				commands.append("CH ").append(lineName(line)).append('\n').append(stationName(station)).append('\n');
+			String[] stations = lineStations[line];
+			if (stations != null)
+				for (String arrival : new String[] { "09:00", "14:30", "23:59" }) {
+					commands.append("MH ").append(lineName(line)).append('\n').append(stations[0]).append('\n')
+							.append(stations[stations.length - 1]).append('\n').append(arrival).append('\n');
+					commands.append("MH ").append(lineName(line)).append('\n').append(stations[stations.length - 1])
+							.append('\n').append(stations[0]).append('\n').append(arrival).append('\n');
+				}
+		}
+		for (int station = 0; station < STATIONS; station++) {
+			commands.append("CE ").append(stationName(station)).append('\n');
+			commands.append("LC ").append(stationName(station)).append('\n');
+		}
+		return commands.append("TA\n").toString();
+	}
+
+	/**
+	 * Gets the stations of a line, in order
+	 * @param line line number
+	 * @return the station names, or null if the line is not in the systems
+	 */
+	String[] stationsOf(int line) {
+		return lineStations[line];
+	}
+
+	static String lineName(int line) {
+		return "Linha " + line;
+	}
+
+	static String stationName(int station) {
+		return "Estacao" + station;
+	}
+
+	/**
+	 * Change made on every system
+	 */
+	private interface Change {
+		void apply(RailwaySystem sys);
+	}
+
+	private Change insertLine(int line) {
+		boolean[] taken = new boolean[STATIONS];
+		String[] stations = new String[2 + random.nextInt(5)];
+		for (int i = 0; i < stations.length; i++) {
+			int station;
+			do
+				station = random.nextInt(STATIONS);
+			while (taken[station]);
+			taken[station] = true;
+			stations[i] = stationName(station);
+		}
+		lineStations[line] = stations;
+		return sys -> sys.insertLine(lineName(line), list(stations));
+	}
+
+	private Change removeLine(int line) {
+		lineStations[line] = null;
+		return sys -> sys.removeLine(lineName(line));
+	}
+
+	private Change removeSchedule() {
+		String[] departure = departures.remove(random.nextInt(departures.size()));
+		return sys -> sys.removeSchedule(departure[0], departure[1], new String[] { departure[2], departure[3] });
+	}
+
+	private Change insertSchedule(int line) {
+		String train = String.valueOf(1 + random.nextInt(TRAINS));
+		List<String> stations = tripStations(line);
+		List<String[]> times = tripTimes(line, stations);
+		return sys -> sys.insertSchedule(lineName(line), train, stations, times);
+	}
+
+	private Change insertSchedules(int line) {
+		int count = 2 + random.nextInt(3);
+		List<String> trains = new ArrayList<String>(count);
+		List<List<String>> stations = new ArrayList<List<String>>(count);
+		List<List<String[]>> times = new ArrayList<List<String[]>>(count);
+		for (int i = 0; i < count; i++) {
+			trains.addLast(String.valueOf(1 + random.nextInt(TRAINS)));
+			stations.addLast(tripStations(line));
+			times.addLast(tripTimes(line, stations.getLast()));
+		}
+		return sys -> sys.insertSchedules(lineName(line), trains, stations, times);
+	}
+
+	private Change insertTemplate(int line) {
+		String train = String.valueOf(1 + random.nextInt(TRAINS));
+		List<String> stations = tripStations(line);
+		List<String[]> times = tripTimes(line, stations);
+		int headway = 5 + random.nextInt(60);
+		String[] first = times.getFirst();
+		int last = Integer.parseInt(first[0]) * 60 + Integer.parseInt(first[1]) + headway * random.nextInt(6)
+				+ random.nextInt(headway);
+		String[] lastDeparture = time(Math.min(last, 23 * 60 + 59));
+		return sys -> sys.insertTemplate(lineName(line), train, stations, times, headway, lastDeparture);
+	}
+
+	/**
+	 * Picks the stations of a trip from either end of a line, skipping some of the ones in between
+	 */
+	List<String> tripStations(int line) {
+		String[] stations = lineStations[line];
+		boolean reverse = random.nextBoolean();
+		List<String> trip = new ArrayList<String>(stations.length);
+		for (int i = 0; i < stations.length; i++) {
+			String station = stations[reverse ? stations.length - 1 - i : i];
+			if (i == 0 || i == stations.length - 1 || random.nextInt(4) != 0)
+				trip.addLast(station);
+		}
+		return trip;
+	}
+
+	/**
+	 * Picks increasing times for the stations of a trip, and keeps its departure to remove it later
+	 */
+	List<String[]> tripTimes(int line, List<String> stations) {
+		List<String[]> times = new ArrayList<String[]>(stations.size());
+		int minutes = 5 * 60 + random.nextInt(15 * 60);
+		for (int i = 0; i < stations.size(); i++) {
+			times.addLast(time(minutes));
+			minutes += 2 + random.nextInt(25);
+		}
+		String[] departure = times.getFirst();
+		departures.addLast(new String[] { lineName(line), stations.getFirst(), departure[0], departure[1] });
+		return times;
+	}
+
+	private static String[] time(int minutes) {
+		return new String[] { String.format("%02d", minutes / 60), String.format("%02d", minutes % 60) };
+	}
+
+	private static List<String> list(String[] names) {
+		List<String> list = new ArrayList<String>(names.length);
+		for (String name : names)
+			list.addLast(name);
+		return list;
+	}
+}
@@ -0,0 +1,175 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import System.*;
+import System.exceptions.StorageException;
+
+public class SnapshotTests {
+
+	/** Number of random systems written */
+	private static final int SEEDS = 20;
+	/** Number of random changes made to build each system */
+	private static final int CHANGES = 300;
+	/** Number of delta snapshots written on top of each snapshot */
+	private static final int DELTAS = 5;
+	/** Journal size from which the storage compacts it, to write a few deltas but fewer than make a merge */
+	private static final long COMPACTION_SIZE = 4000;
+	/** Position in a snapshot of the length of its first name, after the magic, version, sequence and name count */
+	private static final int FIRST_NAME_POSITION = 20;
+
+	/**
+	 * Writes snapshots of random systems, with templates and removed lines and schedules,
+	 * and checks that the systems read back whole list the same as the systems written.
+	 */
+	@Test public void readsSnapshotAsWritten() throws IOException {
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			RailwaySystem written = new RailwaySystemClass();
+			scenarios.change(CHANGES, written);
+
+			SnapshotReader reader = new SnapshotReader(new ByteArrayInputStream(snapshot(written, seed)));
+			RailwaySystem read = reader.read();
+			assertEquals(seed, reader.getSequence());
+			assertEquals(Scenarios.run(written, scenarios.queries()), Scenarios.run(read, scenarios.queries()));
+		}
+	}
+
+	/**
+	 * Maps snapshots of random systems and checks that they are answered in place as the systems
+	 * written would answer, then changes both and checks that the mapped system, read whole on its
+	 * first change, still answers the same.
+	 */
+	@Test public void answersMappedSnapshotAsWritten() throws IOException {
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			RailwaySystem written = new RailwaySystemClass();
+			scenarios.change(CHANGES, written);
+
+			MappedRailwaySystemClass mapped = new MappedRailwaySystemClass(ByteBuffer.wrap(snapshot(written, seed)));
+			assertEquals(seed, mapped.getSequence());
+			assertEquals(Scenarios.run(written, scenarios.queries()), Scenarios.run(mapped, scenarios.queries()));
+			assertEquals(true, mapped.isMapped());
+
+			scenarios.change(CHANGES / 3, written, mapped);
+			assertEquals(Scenarios.run(written, scenarios.queries()), Scenarios.run(mapped, scenarios.queries()));
+		}
+	}
+
+	/**
+	 * Maps a snapshot whose first name is longer than the rest of the snapshot, and checks that
+	 * reading it whole on its first change fails as a storage error.
+	 */
+	@Test public void rejectsCorruptMappedSnapshot() throws IOException {
+		RailwaySystem written = new RailwaySystemClass();
+		new Scenarios(0).change(CHANGES, written);
+		byte[] bytes = snapshot(written, 0);
+		ByteBuffer.wrap(bytes).putInt(FIRST_NAME_POSITION, bytes.length);
+
+		MappedRailwaySystemClass mapped = new MappedRailwaySystemClass(ByteBuffer.wrap(bytes));
+		try {
+			mapped.materialize();
+			fail("Corrupt snapshot read");
+		} catch (StorageException e) {
+			assertEquals(true, e.getCause() instanceof IOException);
+		}
+		assertEquals(true, mapped.isMapped());
+	}
+
+	/**
+	 * Writes deltas on top of snapshots of random systems, each from the snapshot with the deltas
+	 * before it applied and then changed, as a compaction does, and checks that applying them in
+	 * order on the snapshot gives back the system after every delta.
+	 */
+	@Test public void appliesDeltasAsWritten() throws IOException {
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			RailwaySystem expected = new RailwaySystemClass();
+			scenarios.change(CHANGES, expected);
+			byte[] base = snapshot(expected, 0);
+			byte[][] deltas = new byte[DELTAS][];
+
+			for (int i = 0; i < DELTAS; i++) {
+				RailwaySystem compacted = load(base, deltas, i);
+				scenarios.change(CHANGES / DELTAS, expected, compacted);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				new SnapshotWriter(out).writeDelta(compacted, i + 1);
+				deltas[i] = out.toByteArray();
+
+				assertEquals(Scenarios.run(expected, scenarios.queries()),
+						Scenarios.run(load(base, deltas, i + 1), scenarios.queries()));
+			}
+		}
+	}
+
+	/**
+	 * Makes changes in sessions of a storage that compacts its journal into deltas, merges them,
+	 * and checks that no delta is left and that the new snapshot, mapped, with the journal records
+	 * not yet compacted replayed on it, answers as the system that got the same changes.
+	 */
+	@Test public void mergesDeltasIntoSnapshot() throws IOException {
+		Path file = Files.createTempDirectory("merge").resolve("storedsystem.dat");
+		Scenarios scenarios = new Scenarios(42);
+		RailwaySystem expected = new RailwaySystemClass();
+		for (int session = 0; session < 3; session++) {
+			Storage storage = new StorageClass(file.toString(), COMPACTION_SIZE);
+			scenarios.change(CHANGES / 3, expected, storage.open());
+			storage.close();
+		}
+		assertEquals(true, countDeltas(file) > 0);
+
+		new StorageClass(file.toString(), COMPACTION_SIZE).merge();
+		assertEquals(0, countDeltas(file));
+		MappedRailwaySystemClass merged = MappedRailwaySystemClass.open(file);
+		assertEquals(true, merged.isMapped());
+		new JournalReader(Path.of(file + ".journal")).replay(merged, merged.getSequence());
+		assertEquals(Scenarios.run(expected, scenarios.queries()), Scenarios.run(merged, scenarios.queries()));
+
+		Storage storage = new StorageClass(file.toString());
+		assertEquals(Scenarios.run(expected, scenarios.queries()), Scenarios.run(storage.open(), scenarios.queries()));
+		storage.close();
+	}
+
+	/**
+	 * Reads a snapshot and applies deltas on it in order
+	 * @param base full snapshot
+	 * @param deltas delta snapshots written after it
+	 * @param count number of deltas to apply
+	 * @return the railway system
+	 */
+	private static RailwaySystem load(byte[] base, byte[][] deltas, int count) throws IOException {
+		RailwaySystem sys = new SnapshotReader(new ByteArrayInputStream(base)).read();
+		for (int i = 0; i < count; i++) {
+			SnapshotReader reader = new SnapshotReader(new ByteArrayInputStream(deltas[i]));
+			reader.readDelta(sys);
+			assertEquals(i + 1, reader.getSequence());
+		}
+		return sys;
+	}
+
+	private static long countDeltas(Path file) throws IOException {
+		try (java.util.stream.Stream<Path> files = Files.list(file.getParent())) {
+			return files.filter(f -> f.getFileName().toString().startsWith(file.getFileName() + ".delta.")).count();
+		}
+	}
+
+	/**
+	 * Writes a full snapshot of a system
+	 * @param sys railway system
+	 * @param sequence number of the last journal record included in the system
+	 * @return the snapshot
+	 */
+	private static byte[] snapshot(RailwaySystem sys, long sequence) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(out).write(sys, sequence);
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,100 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import System.*;
+import System.exceptions.StorageException;
+
+public class StorageTests {
+
+	/** Files of a system saved by the first version, with Java serialization, from saved-in.txt */
+	private static final File LEGACY = new File("tests/legacy");
+	/** Name of the saved system in a storage directory */
+	private static final String DATA_FILE = "storedsystem.dat";
+
+	/**
+	 * Loads the system saved by the first version and checks that its lines, stations, schedules
+	 * and trains are listed as that version listed them.
+	 */
+	@Test public void loadsSystemSavedBeforeSnapshots() throws IOException {
+		Path file = copyLegacy();
+		Storage storage = new StorageClass(file.toString());
+		assertEquals(read("queries-out.txt"), Scenarios.run(storage.open(), read("queries-in.txt")));
+		storage.close();
+	}
+
+	/**
+	 * Changes the system saved by the first version, and checks that the changes are kept,
+	 * on top of it, when it is opened again.
+	 */
+	@Test public void keepsChangesToSystemSavedBeforeSnapshots() throws IOException {
+		Path file = copyLegacy();
+		String change = "IH Ramal\n303\nAveiro 10:00\nViseu 11:20\n\nRL Oeste\nTA\n";
+		String queries = "CE Lisboa\nCH Ramal\nAveiro\nLC Aveiro\nTA\n";
+
+		Storage storage = new StorageClass(file.toString());
+		RailwaySystem sys = storage.open();
+		Scenarios.run(sys, change);
+		String expected = Scenarios.run(sys, queries);
+		storage.close();
+
+		storage = new StorageClass(file.toString());
+		assertEquals(expected, Scenarios.run(storage.open(), queries));
+		storage.close();
+	}
+
+	/**
+	 * Reads the system saved by the first version as the current classes, and checks that
+	 * its lines are rejected instead of being read without the indexes added since.
+	 */
+	@Test public void rejectsLinesOfFirstVersion() throws IOException, ClassNotFoundException {
+		boolean thrown = false;
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File(LEGACY, DATA_FILE)))) {
+			in.readObject();
+		} catch (InvalidClassException e) {
+			thrown = e.classname.equals("System.LineClass");
+		}
+		assertEquals(true, thrown);
+	}
+
+	/**
+	 * Damages the saved system and checks that it is not loaded as an empty one,
+	 * and that the file is left as it was.
+	 */
+	@Test public void refusesDamagedSystem() throws IOException {
+		Path file = copyLegacy();
+		byte[] saved = Files.readAllBytes(file);
+		byte[] damaged = saved.clone();
+		for (int i = saved.length / 2; i < saved.length; i++)
+			damaged[i] = (byte) i;
+		Files.write(file, damaged);
+
+		boolean thrown = false;
+		try {
+			new StorageClass(file.toString()).open();
+		} catch (StorageException e) {
+			thrown = true;
+		}
+		assertEquals(true, thrown);
+		assertArrayEquals(damaged, Files.readAllBytes(file));
+	}
+
+	private static Path copyLegacy() throws IOException {
+		Path file = Files.createTempDirectory("storage").resolve(DATA_FILE);
+		Files.copy(new File(LEGACY, DATA_FILE).toPath(), file);
+		return file;
+	}
+
+	private static String read(String name) throws IOException {
+		return new String(Files.readAllBytes(new File(LEGACY, name).toPath())).replaceAll("\r\n", "\n");
+	}
+}
@@ -0,0 +1,204 @@
+package System;
+
+import dataStructures.*;
+
+import java.io.Serial;
+
+/**
+ * Schedule kept as its trip pattern and an array with the time of each stop of the pattern,
+ * in minutes since midnight. Times are created when they are asked for.
+ * A schedule created with a shared pattern is given the times of the stops of the pattern, in order;
+ * a stop that does not follow the pattern gives the schedule a copy of its own.
+ */
+public class CompactScheduleClass implements Schedule, SafeSchedule {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Stations the train stops at, in travel order */
+    protected TripPattern pattern;
+    /** Whether the pattern may be shared with other schedules, and so must not be changed */
+    protected boolean sharedPattern;
+    /** Times of the stops, in minutes since midnight, in travel order */
+    protected int[] minutes;
+    /** Number of stops */
+    protected int stops;
+    /** Unique identifier for the train running this schedule */
+    protected int train;
+
+    /**
+     * Creates a new empty schedule, with a pattern of its own
+     * @param stops expected number of stations in the schedule
+     */
+    public CompactScheduleClass(int stops) {
+        this.pattern = new TripPatternClass(stops);
+        this.minutes = new int[Math.max(stops, 1)];
+    }
+
+    /**
+     * Creates a new empty schedule
+     */
+    public CompactScheduleClass() {
+        this(ArrayList.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty schedule that stops at the stations of a shared pattern
+     * @param pattern stations the train stops at, in travel order
+     */
+    public CompactScheduleClass(TripPattern pattern) {
+        this.pattern = pattern;
+        this.sharedPattern = true;
+        this.minutes = new int[Math.max(pattern.size(), 1)];
+    }
+
+    @Override
+    public void addTrain(String train) {
+        this.train = Integer.parseInt(train);
+    }
+
+    @Override
+    public void addSchedule(Station station, Time time) {
+        boolean follows = stops < pattern.size() && pattern.getStationId(stops) == station.getId();
+        if(!follows) {
+            if(sharedPattern) {
+                pattern = pattern.copy(stops);
+                sharedPattern = false;
+            }
+            pattern.addStop(station);
+        }
+        if(stops == minutes.length) {
+            int[] larger = new int[2 * stops];
+            System.arraycopy(minutes, 0, larger, 0, stops);
+            minutes = larger;
+        }
+        minutes[stops++] = time.toMinutes();
+    }
+
+    @Override
+    public Station getDepartureStation() {
+        return pattern.getStation(0);
+    }
+
+    @Override
+    public Time getDepartureTime() {
+        return getStationTime(getDepartureStation());
+    }
+
+    @Override
+    public Time getStationTime(SafeStation station) {
+        return getStationTime((Station) station);
+    }
+
+    @Override
+    public int getTrain() {
+        return train;
+    }
+
+    @Override
+    public TripPattern getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public SafeStationIterator getStationIt() {
+        return new SafeStationIterator(getStationsIt());
+    }
+
+    @Override
+    public Iterator<Station> getStationsIt() {
+        return new StopIterator<Station>() {
+            @Override
+            Station stop(int position) {
+                return pattern.getStation(position);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Time> getTimesIt() {
+        return new StopIterator<Time>() {
+            @Override
+            Time stop(int position) {
+                return new TimeClass(minutes[position]);
+            }
+        };
+    }
+
+    /**
+     * Gets the time of the last stop at a station, as an index by station would keep it
+     * @param station station to get time for
+     * @return time at the station, or null if the train does not stop there
+     */
+    @Override
+    public Time getStationTime(Station station) {
+        int position = pattern.getLastStop(station);
+        return position == -1 ? null : new TimeClass(minutes[position]);
+    }
+
+    @Override
+    public int getStationOrdinal(Station station) {
+        return pattern.getFirstStop(station);
+    }
+
+    @Override
+    public boolean existsStation(Station station) {
+        return getStationOrdinal(station) != -1;
+    }
+
+    @Override
+    public void deleteSchedule(Line line) {
+        for(int i = 0; i < stops; i++)
+            pattern.getStation(i).removeTrain(train, new TimeClass(minutes[i]), line);
+    }
+
+    @Override
+    public boolean isRightOrder(Station departure, Station arrival) {
+        return getStationOrdinal(departure) < getStationOrdinal(arrival);
+    }
+
+    /**
+     * Compares schedules by train number, the order the line indexes keep them in
+     */
+    @Override
+    public int compareTo(Schedule o) {
+        return Integer.compare(train, o.getTrain());
+    }
+
+    /**
+     * Iterator over the stops of the schedule, in travel order
+     * @param <E> element given for each stop
+     */
+    private abstract class StopIterator<E> implements Iterator<E> {
+
+        @Serial
+        static final long serialVersionUID = 0L;
+
+        /** Position of the next stop to return */
+        private int next;
+
+        /**
+         * Gets the element of a stop
+         * @param position position of the stop
+         * @return the element of that stop
+         */
+        abstract E stop(int position);
+
+        @Override
+        public boolean hasNext() {
+            return next < stops;
+        }
+
+        @Override
+        public E next() throws NoSuchElementException {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            return stop(next++);
+        }
+
+        @Override
+        public void rewind() {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package System;
+
+import java.io.Serializable;
+
+/**
+ * Interface representing trains that run the same trip pattern at a fixed headway, such as a train
+ * every 7 minutes from 06:00 to 23:00. The pattern and the time of each stop after the departure are
+ * stored once, and the trips, numbered from 0 in departure order, are materialized when asked for.
+ * Trip i departs i headways after the first trip and is run by the train i after the first train.
+ */
+public interface HeadwayTemplate extends Serializable {
+
+    /**
+     * Gets the stations the trains stop at
+     * @return trip pattern of every trip
+     */
+    TripPattern getPattern();
+
+    /**
+     * Gets the train running the first trip
+     * @return train identifier
+     */
+    int getFirstTrain();
+
+    /**
+     * Gets the time between the departures of two consecutive trips
+     * @return headway, in minutes
+     */
+    int getHeadway();
+
+    /**
+     * Gets the number of trips
+     * @return number of trips
+     */
+    int getTrips();
+
+    /**
+     * Gets the train running a trip
+     * @param trip number of the trip
+     * @return train identifier
+     */
+    int getTrain(int trip);
+
+    /**
+     * Gets the trip run by a train
+     * @param train train identifier
+     * @return number of the trip, or -1 if the train runs no trip of the template
+     */
+    int getTripOfTrain(int train);
+
+    /**
+     * Gets the time of a stop of a trip
+     * @param trip number of the trip
+     * @param stop position of the stop in the pattern
+     * @return minutes since midnight
+     */
+    int getMinutes(int trip, int stop);
+
+    /**
+     * Gets the last trip that passes a stop no later than a given time
+     * @param stop position of the stop in the pattern
+     * @param minutes time limit, in minutes since midnight
+     * @return number of the trip, or -1 if every trip passes later
+     */
+    int getLastTripBy(int stop, int minutes);
+
+    /**
+     * Checks if a trip departs within a period
+     * @param from start of the period, in minutes since midnight
+     * @param to end of the period, included, in minutes since midnight
+     * @return true if some trip departs from the first stop within the period
+     */
+    boolean departsBetween(int from, int to);
+
+    /**
+     * Materializes a trip as a schedule sharing the pattern of the template
+     * @param trip number of the trip
+     * @return schedule of the trip
+     */
+    Schedule getSchedule(int trip);
+
+    /**
+     * Creates a template with some consecutive trips of this one, run by the same trains
+     * @param from number of the first trip to keep
+     * @param to number of the trip after the last one to keep
+     * @return the new template, whose trip 0 is trip from of this one
+     */
+    HeadwayTemplate subTemplate(int from, int to);
+}
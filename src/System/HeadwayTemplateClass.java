@@ -0,0 +1,112 @@
+package System;
+
+import java.io.Serial;
+
+/**
+ * Headway template kept as its pattern, the minutes of each stop after the departure, and the
+ * first train, first departure, headway and number of trips; every time is computed from those.
+ */
+public class HeadwayTemplateClass implements HeadwayTemplate {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Stations the trains stop at, in travel order */
+    protected TripPattern pattern;
+    /** Minutes from the departure to each stop, in travel order */
+    protected int[] offsets;
+    /** Train running the first trip */
+    protected int firstTrain;
+    /** Departure of the first trip, in minutes since midnight */
+    protected int firstDeparture;
+    /** Minutes between two consecutive departures */
+    protected int headway;
+    /** Number of trips */
+    protected int trips;
+
+    /**
+     * Creates a template from the schedule of its first trip
+     * @param pattern stations the trains stop at, in travel order
+     * @param times time of the first trip at each stop of the pattern, in minutes since midnight
+     * @param firstTrain train running the first trip
+     * @param headway minutes between two consecutive departures, at least 1
+     * @param trips number of trips, at least 1
+     */
+    public HeadwayTemplateClass(TripPattern pattern, int[] times, int firstTrain, int headway, int trips) {
+        this.pattern = pattern;
+        this.offsets = new int[pattern.size()];
+        for(int i = 0; i < offsets.length; i++)
+            offsets[i] = times[i] - times[0];
+        this.firstTrain = firstTrain;
+        this.firstDeparture = times[0];
+        this.headway = headway;
+        this.trips = trips;
+    }
+
+    @Override
+    public TripPattern getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public int getFirstTrain() {
+        return firstTrain;
+    }
+
+    @Override
+    public int getHeadway() {
+        return headway;
+    }
+
+    @Override
+    public int getTrips() {
+        return trips;
+    }
+
+    @Override
+    public int getTrain(int trip) {
+        return firstTrain + trip;
+    }
+
+    @Override
+    public int getTripOfTrain(int train) {
+        long trip = (long) train - firstTrain;
+        return trip >= 0 && trip < trips ? (int) trip : -1;
+    }
+
+    @Override
+    public int getMinutes(int trip, int stop) {
+        return firstDeparture + trip * headway + offsets[stop];
+    }
+
+    @Override
+    public int getLastTripBy(int stop, int minutes) {
+        int first = getMinutes(0, stop);
+        if(minutes < first)
+            return -1;
+        return Math.min((minutes - first) / headway, trips - 1);
+    }
+
+    @Override
+    public boolean departsBetween(int from, int to) {
+        int trip = from <= firstDeparture ? 0 : (from - firstDeparture + headway - 1) / headway;
+        return trip < trips && firstDeparture + trip * headway <= to;
+    }
+
+    @Override
+    public Schedule getSchedule(int trip) {
+        Schedule schedule = new CompactScheduleClass(pattern);
+        schedule.addTrain(String.valueOf(getTrain(trip)));
+        for(int i = 0; i < pattern.size(); i++)
+            schedule.addSchedule(pattern.getStation(i), new TimeClass(getMinutes(trip, i)));
+        return schedule;
+    }
+
+    @Override
+    public HeadwayTemplate subTemplate(int from, int to) {
+        int[] times = new int[offsets.length];
+        for(int i = 0; i < times.length; i++)
+            times[i] = getMinutes(from, i);
+        return new HeadwayTemplateClass(pattern, times, getTrain(from), headway, to - from);
+    }
+}
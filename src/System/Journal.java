@@ -0,0 +1,90 @@
+package System;
+
+import dataStructures.*;
+
+import java.io.IOException;
+
+/**
+ * Append-only log of the changes made to a railway system.
+ * Records are numbered in sequence and written in groups, so that several
+ * changes share a single synchronization with the disk.
+ * Records that cannot be written throw StorageException.
+ */
+public interface Journal {
+
+    /**
+     * Records the insertion of a line
+     * @param name line name
+     * @param stationNames names of the stations of the line
+     */
+    void logInsertLine(String name, List<String> stationNames);
+
+    /**
+     * Records the removal of a line
+     * @param name line name
+     */
+    void logRemoveLine(String name);
+
+    /**
+     * Records the insertion of a schedule
+     * @param lineName line name
+     * @param train train identifier
+     * @param stations names of the stations of the schedule
+     * @param times hour and minute at each station
+     */
+    void logInsertSchedule(String lineName, String train, List<String> stations, List<String[]> times);
+
+    /**
+     * Records the import of several schedules into a line at once
+     * @param lineName line name
+     * @param trains train identifiers
+     * @param stations names of the stations of each schedule
+     * @param times hour and minute of each schedule at each station
+     */
+    void logInsertSchedules(String lineName, List<String> trains, List<List<String>> stations,
+                            List<List<String[]>> times);
+
+    /**
+     * Records the insertion of a headway template
+     * @param lineName line name
+     * @param train train running the first trip
+     * @param stations names of the stations of the trips
+     * @param times hour and minute of the first trip at each station
+     * @param headway minutes between two consecutive departures
+     * @param lastDeparture hour and minute of the latest departure
+     */
+    void logInsertTemplate(String lineName, String train, List<String> stations, List<String[]> times, int headway,
+                           String[] lastDeparture);
+
+    /**
+     * Records the removal of a schedule
+     * @param lineName line name
+     * @param stationName departure station name
+     * @param departure hour and minute of departure
+     */
+    void logRemoveSchedule(String lineName, String stationName, String[] departure);
+
+    /**
+     * Gets the number of the last record written
+     * @return sequence number of the last record
+     */
+    long getSequence();
+
+    /**
+     * Gets the size of the journal file
+     * @return number of bytes written to the journal
+     */
+    long size();
+
+    /**
+     * Writes the records still waiting for their group and synchronizes the file with the disk
+     * @throws IOException if the journal cannot be written
+     */
+    void commit() throws IOException;
+
+    /**
+     * Commits the pending records and closes the journal
+     * @throws IOException if the journal cannot be written
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,280 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.StorageException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Journal file, written with group commit.
+ * <p>
+ * Each record is framed as
+ * <pre>
+ * payloadLength crc32(payload) payload
+ * payload = sequence(long) type(byte) fields
+ * </pre>
+ * where strings are written in modified UTF-8 and times as minutes since midnight.
+ * Records are written to the disk, and synchronized with it, as soon as GROUP_SIZE of them
+ * are waiting, and otherwise at most COMMIT_INTERVAL milliseconds after they were logged.
+ */
+public class JournalClass implements Journal {
+
+    /** Type of the records of line insertions */
+    static final byte INSERT_LINE = 1;
+    /** Type of the records of line removals */
+    static final byte REMOVE_LINE = 2;
+    /** Type of the records of schedule insertions */
+    static final byte INSERT_SCHEDULE = 3;
+    /** Type of the records of schedule removals */
+    static final byte REMOVE_SCHEDULE = 4;
+    /** Type of the records of headway template insertions */
+    static final byte INSERT_TEMPLATE = 5;
+    /** Type of the records of schedule imports */
+    static final byte INSERT_SCHEDULES = 6;
+    /** Number of bytes before the payload of a record */
+    static final int FRAME_SIZE = 8;
+
+    /** Number of records that are committed together */
+    private static final int GROUP_SIZE = 64;
+    /** Longest time a record waits to be committed, in milliseconds */
+    private static final long COMMIT_INTERVAL = 50;
+
+    /** Journal file */
+    private final FileChannel channel;
+    /** Stream of the records waiting to be committed */
+    private final DataOutputStream out;
+    /** Payload of the record being written */
+    private final ByteArrayOutputStream payload;
+    /** Stream over the payload of the record being written */
+    private final DataOutputStream payloadOut;
+    /** Checksum of the payload of the record being written */
+    private final CRC32 crc;
+    /** Thread committing the records that wait longer than COMMIT_INTERVAL */
+    private final Thread committer;
+    /** Number of the last record written */
+    private long sequence;
+    /** Number of bytes of the journal, including the records waiting to be committed */
+    private long size;
+    /** Number of records waiting to be committed */
+    private int pending;
+    /** Whether the journal has been closed */
+    private boolean closed;
+    /** Error of the last commit done by the committer thread, reported on close */
+    private IOException failure;
+
+    /**
+     * Opens a journal to append records after its last complete one
+     * @param path journal file, created if it does not exist
+     * @param validLength number of bytes of complete records in the file; anything after them is discarded
+     * @param sequence number of the last record already in the journal or before it
+     * @throws IOException if the file cannot be opened
+     */
+    public JournalClass(Path path, long validLength, long sequence) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        this.payload = new ByteArrayOutputStream();
+        this.payloadOut = new DataOutputStream(payload);
+        this.crc = new CRC32();
+        this.sequence = sequence;
+        this.size = validLength;
+        this.committer = new Thread(this::commitPeriodically, "journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @Override
+    public synchronized void logInsertLine(String name, List<String> stationNames) {
+        try {
+            begin(INSERT_LINE);
+            payloadOut.writeUTF(name);
+            writeStrings(stationNames);
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void logRemoveLine(String name) {
+        try {
+            begin(REMOVE_LINE);
+            payloadOut.writeUTF(name);
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void logInsertSchedule(String lineName, String train, List<String> stations, List<String[]> times) {
+        try {
+            begin(INSERT_SCHEDULE);
+            payloadOut.writeUTF(lineName);
+            payloadOut.writeInt(Integer.parseInt(train));
+            writeStrings(stations);
+            Iterator<String[]> it = times.iterator();
+            while(it.hasNext())
+                payloadOut.writeInt(minutes(it.next()));
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void logInsertSchedules(String lineName, List<String> trains, List<List<String>> stations,
+                                                List<List<String[]>> times) {
+        try {
+            begin(INSERT_SCHEDULES);
+            payloadOut.writeUTF(lineName);
+            payloadOut.writeInt(trains.size());
+            for(int i = 0; i < trains.size(); i++) {
+                payloadOut.writeInt(Integer.parseInt(trains.get(i)));
+                writeStrings(stations.get(i));
+                Iterator<String[]> it = times.get(i).iterator();
+                while(it.hasNext())
+                    payloadOut.writeInt(minutes(it.next()));
+            }
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void logInsertTemplate(String lineName, String train, List<String> stations,
+                                               List<String[]> times, int headway, String[] lastDeparture) {
+        try {
+            begin(INSERT_TEMPLATE);
+            payloadOut.writeUTF(lineName);
+            payloadOut.writeInt(Integer.parseInt(train));
+            writeStrings(stations);
+            Iterator<String[]> it = times.iterator();
+            while(it.hasNext())
+                payloadOut.writeInt(minutes(it.next()));
+            payloadOut.writeInt(headway);
+            payloadOut.writeInt(minutes(lastDeparture));
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized void logRemoveSchedule(String lineName, String stationName, String[] departure) {
+        try {
+            begin(REMOVE_SCHEDULE);
+            payloadOut.writeUTF(lineName);
+            payloadOut.writeUTF(stationName);
+            payloadOut.writeInt(minutes(departure));
+            end();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write the journal", e);
+        }
+    }
+
+    @Override
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public synchronized long size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void commit() throws IOException {
+        if(pending == 0)
+            return;
+        out.flush();
+        channel.force(false);
+        pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            if(closed)
+                return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized(this) {
+            commit();
+            out.close();
+            if(failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Commits the waiting records every COMMIT_INTERVAL milliseconds, until the journal is closed
+     */
+    private synchronized void commitPeriodically() {
+        while(!closed) {
+            try {
+                wait(COMMIT_INTERVAL);
+                commit();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Starts the payload of a new record
+     * @param type type of the record
+     * @throws IOException if the payload cannot be written
+     */
+    private void begin(byte type) throws IOException {
+        payload.reset();
+        payloadOut.writeLong(sequence + 1);
+        payloadOut.writeByte(type);
+    }
+
+    /**
+     * Frames the payload of the record and adds it to the group waiting to be committed
+     * @throws IOException if the journal cannot be written
+     */
+    private void end() throws IOException {
+        crc.reset();
+        crc.update(payload.toByteArray());
+        out.writeInt(payload.size());
+        out.writeInt((int) crc.getValue());
+        payload.writeTo(out);
+
+        sequence++;
+        size += FRAME_SIZE + payload.size();
+        if(++pending >= GROUP_SIZE)
+            commit();
+    }
+
+    private void writeStrings(List<String> strings) throws IOException {
+        payloadOut.writeInt(strings.size());
+        Iterator<String> it = strings.iterator();
+        while(it.hasNext())
+            payloadOut.writeUTF(it.next());
+    }
+
+    private static int minutes(String[] time) {
+        return new TimeClass(time[0], time[1]).toMinutes();
+    }
+}
@@ -0,0 +1,176 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Replays the records of a journal written by JournalClass.
+ * Reading stops at the first incomplete or damaged record, which was being written
+ * when the application stopped and was therefore never committed.
+ * Changes are logged before they are applied, so the records of changes that failed
+ * are replayed too, and fail again without changing anything.
+ */
+public class JournalReader {
+
+    /** Journal file */
+    private final Path path;
+    /** Number of the last record read */
+    private long sequence;
+    /** Number of bytes of the complete records read */
+    private long validLength;
+
+    /**
+     * Creates a reader for a journal file
+     * @param path journal file; a missing file is read as an empty journal
+     */
+    public JournalReader(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Applies the records of the journal that come after a given one to a railway system
+     * @param sys railway system to change
+     * @param after number of the last record the system already includes
+     * @return number of the last record included in the system
+     * @throws IOException if the journal cannot be read
+     */
+    public long replay(RailwaySystem sys, long after) throws IOException {
+        sequence = after;
+        validLength = 0;
+        if(!Files.exists(path))
+            return sequence;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long fileSize = Files.size(path);
+            CRC32 crc = new CRC32();
+            while(true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    if(length < 0 || length > fileSize - validLength - JournalClass.FRAME_SIZE)
+                        break;
+                    payload = new byte[length];
+                    checksum = in.readInt();
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if((int) crc.getValue() != checksum)
+                    break;
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long number = record.readLong();
+                if(number > sequence) {
+                    apply(sys, record);
+                    sequence = number;
+                }
+                validLength += JournalClass.FRAME_SIZE + payload.length;
+            }
+        } catch (NoSuchFileException e) {
+            return sequence;
+        }
+        return sequence;
+    }
+
+    /**
+     * Gets the number of the last record included in the system by the last replay
+     * @return sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the number of bytes of the complete records found by the last replay
+     * @return length of the journal up to its last complete record
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    /**
+     * Applies one record to a railway system.
+     * The system is in the state the change was logged in, so it succeeds or fails as it did then.
+     * @param sys railway system to change
+     * @param record record, after its sequence number
+     * @throws IOException if the record cannot be read
+     */
+    private void apply(RailwaySystem sys, DataInputStream record) throws IOException {
+        try {
+            switch(record.readByte()) {
+                case JournalClass.INSERT_LINE -> sys.insertLine(record.readUTF(), readStrings(record));
+                case JournalClass.REMOVE_LINE -> sys.removeLine(record.readUTF());
+                case JournalClass.INSERT_SCHEDULE -> {
+                    String lineName = record.readUTF();
+                    String train = String.valueOf(record.readInt());
+                    List<String> stations = readStrings(record);
+                    List<String[]> times = new ArrayList<String[]>(stations.size());
+                    for(int i = 0; i < stations.size(); i++)
+                        times.addLast(time(record.readInt()));
+                    sys.insertSchedule(lineName, train, stations, times);
+                }
+                case JournalClass.INSERT_SCHEDULES -> {
+                    String lineName = record.readUTF();
+                    int count = record.readInt();
+                    List<String> trains = new ArrayList<String>(count);
+                    List<List<String>> stations = new ArrayList<List<String>>(count);
+                    List<List<String[]>> times = new ArrayList<List<String[]>>(count);
+                    for(int i = 0; i < count; i++) {
+                        trains.addLast(String.valueOf(record.readInt()));
+                        stations.addLast(readStrings(record));
+                        List<String[]> scheduleTimes = new ArrayList<String[]>(stations.getLast().size());
+                        for(int j = 0; j < stations.getLast().size(); j++)
+                            scheduleTimes.addLast(time(record.readInt()));
+                        times.addLast(scheduleTimes);
+                    }
+                    sys.insertSchedules(lineName, trains, stations, times);
+                }
+                case JournalClass.INSERT_TEMPLATE -> {
+                    String lineName = record.readUTF();
+                    String train = String.valueOf(record.readInt());
+                    List<String> stations = readStrings(record);
+                    List<String[]> times = new ArrayList<String[]>(stations.size());
+                    for(int i = 0; i < stations.size(); i++)
+                        times.addLast(time(record.readInt()));
+                    int headway = record.readInt();
+                    sys.insertTemplate(lineName, train, stations, times, headway, time(record.readInt()));
+                }
+                case JournalClass.REMOVE_SCHEDULE -> sys.removeSchedule(record.readUTF(), record.readUTF(), time(record.readInt()));
+                default -> throw new IOException("Unknown journal record type");
+            }
+        } catch (ExistentLineException | NonexistentLineException | InvalidScheduleException
+                 | NonexistentScheduleException e) {
+            // The change failed when it was made too, and changed nothing.
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream record) throws IOException {
+        int count = record.readInt();
+        List<String> strings = new ArrayList<String>(count);
+        for(int i = 0; i < count; i++)
+            strings.addLast(record.readUTF());
+        return strings;
+    }
+
+    /**
+     * Formats minutes since midnight as the hour and minute read by the system
+     * @param minutes minutes since midnight
+     * @return array with hour and minute
+     */
+    private static String[] time(int minutes) {
+        return new String[] { String.valueOf(minutes / 60), String.valueOf(minutes % 60) };
+    }
+}
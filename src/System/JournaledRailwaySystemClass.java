@@ -0,0 +1,118 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.*;
+
+import java.io.Serial;
+
+/**
+ * Railway system that logs every change in the journal of its storage before applying it,
+ * so that a change the journal cannot record is not applied either.
+ * Queries go straight to the system it wraps.
+ */
+public class JournaledRailwaySystemClass implements RailwaySystem {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** System the commands are applied to */
+    private final RailwaySystem system;
+    /** Storage whose journal records the changes */
+    private final transient Storage storage;
+
+    /**
+     * Wraps a railway system
+     * @param system system the commands are applied to
+     * @param storage storage whose journal records the changes
+     */
+    public JournaledRailwaySystemClass(RailwaySystem system, Storage storage) {
+        this.system = system;
+        this.storage = storage;
+    }
+
+    @Override
+    public void insertLine(String name, List<String> stationNames) throws ExistentLineException {
+        storage.getJournal().logInsertLine(name, stationNames);
+        system.insertLine(name, stationNames);
+        storage.checkpoint();
+    }
+
+    @Override
+    public void removeLine(String name) throws NonexistentLineException {
+        storage.getJournal().logRemoveLine(name);
+        system.removeLine(name);
+        storage.checkpoint();
+    }
+
+    @Override
+    public SafeStationIterator consultLine(String name) throws NonexistentLineException {
+        return system.consultLine(name);
+    }
+
+    @Override
+    public SafeLineIterator<String> consultStation(String name) throws NonexistentStationException {
+        return system.consultStation(name);
+    }
+
+    @Override
+    public void insertSchedule(String lineName, String train, List<String> stations, List<String[]> times)
+            throws NonexistentLineException, InvalidScheduleException {
+        storage.getJournal().logInsertSchedule(lineName, train, stations, times);
+        system.insertSchedule(lineName, train, stations, times);
+        storage.checkpoint();
+    }
+
+    @Override
+    public void insertSchedules(String lineName, List<String> trains, List<List<String>> stations, List<List<String[]>> times)
+            throws NonexistentLineException, InvalidScheduleException {
+        storage.getJournal().logInsertSchedules(lineName, trains, stations, times);
+        system.insertSchedules(lineName, trains, stations, times);
+        storage.checkpoint();
+    }
+
+    @Override
+    public void insertTemplate(String lineName, String train, List<String> stations, List<String[]> times, int headway,
+                               String[] lastDeparture) throws NonexistentLineException, InvalidScheduleException {
+        storage.getJournal().logInsertTemplate(lineName, train, stations, times, headway, lastDeparture);
+        system.insertTemplate(lineName, train, stations, times, headway, lastDeparture);
+        storage.checkpoint();
+    }
+
+    @Override
+    public void removeSchedule(String lineName, String stationName, String[] departure)
+            throws NonexistentLineException, NonexistentScheduleException {
+        storage.getJournal().logRemoveSchedule(lineName, stationName, departure);
+        system.removeSchedule(lineName, stationName, departure);
+        storage.checkpoint();
+    }
+
+    @Override
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName)
+            throws NonexistentLineException, NonexistentStationException {
+        return system.consultSchedules(lineName, stationName);
+    }
+
+    @Override
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName, int first,
+                                                                     int count)
+            throws NonexistentLineException, NonexistentStationException {
+        return system.consultSchedules(lineName, stationName, first, count);
+    }
+
+    @Override
+    public SafeLineIterator<TimeTrainPairClass> stationTrains(String name) throws NonexistentStationException {
+        return system.stationTrains(name);
+    }
+
+    @Override
+    public SafeLineIterator<TimeTrainPairClass> stationTrains(String name, int first, int count)
+            throws NonexistentStationException {
+        return system.stationTrains(name, first, count);
+    }
+
+    @Override
+    public SafeSchedule bestSchedule(String lineName, String departure, String destination, String[] timeOfArrival)
+            throws NonexistentLineException, NonexistentStationException, ImpossibleRouteException {
+        return system.bestSchedule(lineName, departure, destination, timeOfArrival);
+    }
+}
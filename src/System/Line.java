@@ -20,6 +20,18 @@ public interface Line extends Comparable<Line>, Serializable {
      */
     String getName();
 
+    /**
+     * Gets the normalized line name, used for lookups and comparisons
+     * @return line name key
+     */
+    NameKey getKey();
+
+    /**
+     * Gets the identifier of the line, interned from its normalized name
+     * @return line identifier
+     */
+    int getId();
+
     /**
      * Gets iterator over all stations in the line
      * @return Iterator of stations
@@ -27,10 +39,16 @@ public interface Line extends Comparable<Line>, Serializable {
     Iterator<Station> getStationsIt();
 
     /**
-     * Gets iterator over all schedules in the line
-     * @return Iterator of schedule entries
+     * Gets iterator over the schedules inserted in the line one at a time, without the trips of its templates
+     * @return Iterator of schedule entries, by train
+     */
+    Iterator<Entry<Integer, Schedule>> getScheduleIt();
+
+    /**
+     * Gets iterator over the headway templates of the line
+     * @return Iterator of templates
      */
-    Iterator<Entry<String, Schedule>> getScheduleIt();
+    Iterator<HeadwayTemplate> getTemplatesIt();
 
     /**
      * Checks if a station is not a terminal station (first or last)
@@ -46,11 +64,38 @@ public interface Line extends Comparable<Line>, Serializable {
      * @param scheduleTimes list of times for each station
      * @throws InvalidScheduleException if schedule is invalid
      */
-    void insertSchedule(String train, DoubleList<Station> scheduleStations, DoubleList<Time> scheduleTimes)
+    void insertSchedule(String train, List<Station> scheduleStations, List<Time> scheduleTimes)
             throws InvalidScheduleException;
 
     /**
-     * Removes a schedule from the line
+     * Inserts several new schedules at once, or none of them if any is invalid.
+     * The schedules are valid if inserting them one at a time, in the order of their departure times,
+     * would accept every one; schedules departing at the same time are taken in the given order.
+     * @param trains train identifiers, none of them already in the line
+     * @param scheduleStations stations of each schedule
+     * @param scheduleTimes times of each schedule, for each of its stations
+     * @throws InvalidScheduleException if a schedule is invalid, or a train repeats or is already in the line
+     */
+    void insertSchedules(List<String> trains, List<List<Station>> scheduleStations, List<List<Time>> scheduleTimes)
+            throws InvalidScheduleException;
+
+    /**
+     * Inserts a headway template, whose trips depart every headway from the departure of the first one
+     * up to a last departure. The template is valid if inserting its trips one at a time, in the order
+     * of their departures, would accept every one.
+     * @param train train running the first trip; each next trip is run by the next train
+     * @param scheduleStations stations of the trips, in travel order
+     * @param scheduleTimes times of the first trip at each station
+     * @param headway minutes between two consecutive departures
+     * @param lastDeparture latest departure of a trip
+     * @throws InvalidScheduleException if a trip is invalid, the headway is not positive, the last departure
+     *                                  is before the first one, or a train is already in the line
+     */
+    void insertTemplate(String train, List<Station> scheduleStations, List<Time> scheduleTimes, int headway,
+                        Time lastDeparture) throws InvalidScheduleException;
+
+    /**
+     * Removes the schedule departing from a terminal station at the given time
      * @param station departure station
      * @param time departure time
      * @throws NonexistentScheduleException if schedule doesn't exist
@@ -58,12 +103,59 @@ public interface Line extends Comparable<Line>, Serializable {
     void removeSchedule(Station station, Time time) throws NonexistentScheduleException;
 
     /**
-     * Gets all schedules departing from a station
+     * Inserts the schedules of a line without schedules, known to be valid, such as those read
+     * from a snapshot, without validating them; the indexes of the line are built at once
+     * @param trains train identifiers, preferably in increasing order
+     * @param scheduleStations stations of each schedule, in travel order
+     * @param scheduleTimes times of each schedule, at each of its stations
+     */
+    void restoreSchedules(int[] trains, List<List<Station>> scheduleStations, List<List<Time>> scheduleTimes);
+
+    /**
+     * Inserts a headway template known to be valid, such as one read from a snapshot, without validating it
+     * @param train train running the first trip
+     * @param scheduleStations stations of the trips, in travel order
+     * @param scheduleTimes times of the first trip at each station
+     * @param headway minutes between two consecutive departures
+     * @param trips number of trips
+     */
+    void restoreTemplate(int train, List<Station> scheduleStations, List<Time> scheduleTimes, int headway, int trips);
+
+    /**
+     * Checks if the line changed since it was created or last marked clean
+     * @return true if the line or its schedules changed
+     */
+    boolean isDirty();
+
+    /**
+     * Marks the line as saved, until its schedules change again
+     */
+    void markClean();
+
+    /**
+     * Removes every schedule and template of the line, together with their passages through its stations
+     */
+    void removeSchedules();
+
+    /**
+     * Gets all schedules departing from a station, ordered by departure time,
+     * with the trips of the templates materialized as they are iterated
      * @param station departure station
      * @return Iterator of schedule entries
      * @throws NonexistentStationException if station doesn't exist
      */
-    Iterator<Entry<Time, Schedule>> consultSchedules(Station station) throws NonexistentStationException;
+    Iterator<Entry<TimeTrainPairClass, Schedule>> consultSchedules(Station station) throws NonexistentStationException;
+
+    /**
+     * Gets a page of the schedules departing from a station, in the order of consultSchedules
+     * @param station departure station
+     * @param first position of the first schedule of the page, from 0
+     * @param count maximum number of schedules of the page
+     * @return Iterator of schedule entries, with no entries if first is past the last schedule
+     * @throws NonexistentStationException if station doesn't exist
+     */
+    Iterator<Entry<TimeTrainPairClass, Schedule>> consultSchedules(Station station, int first, int count)
+            throws NonexistentStationException;
 
     /**
      * Finds best schedule between two stations closest to given time
@@ -77,6 +169,13 @@ public interface Line extends Comparable<Line>, Serializable {
     Schedule getBestSchedule(Station departure, Station destination, Time time)
             throws NonexistentStationException, ImpossibleRouteException;
 
+    /**
+     * Gets the position of a station in the line
+     * @param station station to look up
+     * @return position of the station, or -1 if it is not in the line
+     */
+    int getStationOrdinal(Station station);
+
     /**
      * Checks if a station does not exist in this line
      * @param station station to check
@@ -7,28 +7,78 @@ import System.exceptions.NonexistentScheduleException;
 import System.exceptions.NonexistentStationException;
 
 import java.io.Serial;
+import java.io.Serializable;
 
 public class LineClass implements Line, SafeLine {
 
+    /**
+     * Version 1 added the departure and passage indexes, so lines saved before them are rejected
+     * when they are read, instead of being read without them; LegacySystemReader inserts them again
+     */
     @Serial
-    static final long serialVersionUID = 0L;
+    static final long serialVersionUID = 1L;
 
     /** The line's unique name */
     protected String name;
+    /** The line's name, normalized for lookups and ordering */
+    protected NameKey key;
+    /** The line's identifier, used to compare lines */
+    protected int id;
     /** Collection of schedules for this line, indexed by train ID */
-    protected OrderedDictionary<String, Schedule> schedules;
+    protected OrderedDictionary<Integer, Schedule> schedules;
     /** Ordered list of stations along this line */
     protected List<Station> stations;
+    /** Position of each station along this line, by station identifier */
+    protected Dictionary<Integer, Integer> stationOrdinals;
+    /** Schedules departing from the first station, ordered by departure time */
+    protected OrderedDictionary<TimeTrainPairClass, Schedule> forwardDepartures;
+    /** Schedules departing from the last station, ordered by departure time */
+    protected OrderedDictionary<TimeTrainPairClass, Schedule> reverseDepartures;
+    /** Passages of schedules departing from the first station, per line position, ordered by time */
+    protected OrderedDictionary<TimeTrainPairClass, Schedule>[] forwardPassages;
+    /** Passages of schedules departing from the last station, per line position, ordered by time */
+    protected OrderedDictionary<TimeTrainPairClass, Schedule>[] reversePassages;
+    /** Trip patterns of the schedules and templates of this line, with the schedules and templates of each */
+    protected Dictionary<TripPattern, PatternSchedules> patterns;
+    /** Headway templates of this line */
+    protected List<HeadwayTemplate> templates;
+    /** Whether the line changed since it was created or last marked clean */
+    protected boolean dirty;
 
     /**
      * Creates new line with given name and stations
      * @param name unique name for the line
+     * @param lineIds symbol table the identifier of the line is interned in
      * @param stations ordered list of stations on this line
      */
-    public LineClass(String name, DoubleList<Station> stations) {
+    public LineClass(String name, SymbolTable lineIds, List<Station> stations) {
+        this(name, new NameKeyClass(name), lineIds, stations);
+    }
+
+    /**
+     * Creates new line with given name, its already normalized key, and stations
+     * @param name unique name for the line
+     * @param key normalized name of the line
+     * @param lineIds symbol table the identifier of the line is interned in
+     * @param stations ordered list of stations on this line
+     */
+    public LineClass(String name, NameKey key, SymbolTable lineIds, List<Station> stations) {
         this.name = name;
+        this.key = key;
+        this.id = lineIds.intern(key);
         this.stations = stations;
-        this.schedules = new AVLTree<String, Schedule>();
+        this.stationOrdinals = new SepChainHashTable<Integer, Integer>(stations.size());
+        for(int i = 0; i < stations.size(); i++)
+            if(stationOrdinals.find(stations.get(i).getId()) == null)
+                stationOrdinals.insert(stations.get(i).getId(), i);
+        this.schedules = new AVLTree<Integer, Schedule>();
+        this.forwardDepartures = new AVLTree<TimeTrainPairClass, Schedule>();
+        this.reverseDepartures = new AVLTree<TimeTrainPairClass, Schedule>();
+        this.forwardPassages = newPassageIndex(stations.size());
+        this.reversePassages = newPassageIndex(stations.size());
+        this.patterns = new LinearProbingHashTable<TripPattern, PatternSchedules>();
+        this.templates = new ArrayList<HeadwayTemplate>();
+        this.dirty = true;
     }
 
     @Override
@@ -37,94 +87,297 @@ public class LineClass implements Line, SafeLine {
     }
 
     @Override
-    public void insertSchedule(String train, DoubleList<Station> scheduleStations, DoubleList<Time> scheduleTimes)
+    public NameKey getKey() {
+        return key;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public void insertSchedule(String train, List<Station> scheduleStations, List<Time> scheduleTimes)
             throws InvalidScheduleException {
 
         if(isNotDepartingStation(scheduleStations.getFirst()))
             throw new InvalidScheduleException();
 
-        int stationsValidated = validateSchedule(scheduleStations, scheduleTimes);
+        int stationsValidated = validateSchedule(scheduleStations, scheduleTimes, null);
 
-        Schedule schedule = new ScheduleClass();
-        schedule.addTrain(train);
-        int counter = 0;
+        int trainId = Integer.parseInt(train);
+        Schedule replaced = schedules.find(trainId);
+        if(replaced != null)
+            detachSchedule(replaced);
+        else
+            removeTrip(trainId);
 
-        while(counter < stationsValidated) {
-            schedule.addSchedule(scheduleStations.get(counter), scheduleTimes.get(counter));
-            scheduleStations.get(counter).addTrain(train, scheduleTimes.get(counter), this);
-            counter++;
+        attachSchedule(train, scheduleStations, scheduleTimes, stationsValidated);
+        dirty = true;
+    }
+
+    @Override
+    public void insertSchedules(List<String> trains, List<List<Station>> scheduleStations,
+                                List<List<Time>> scheduleTimes) throws InvalidScheduleException {
+
+        Dictionary<Integer, Integer> imported = new LinearProbingHashTable<Integer, Integer>(trains.size());
+        OrderedDictionary<Time, List<Integer>> byDeparture = new AVLTree<Time, List<Integer>>();
+        for(int i = 0; i < trains.size(); i++) {
+            int train = Integer.parseInt(trains.get(i));
+            if(hasTrains(train, train) || imported.find(train) != null)
+                throw new InvalidScheduleException();
+            imported.insert(train, i);
+
+            Time departure = scheduleTimes.get(i).getFirst();
+            List<Integer> departing = byDeparture.find(departure);
+            if(departing == null) {
+                departing = new ArrayList<Integer>();
+                byDeparture.insert(departure, departing);
+            }
+            departing.addLast(i);
+        }
+
+        int[] forwardImported = newImportedTimes();
+        int[] reverseImported = newImportedTimes();
+        List<Integer> order = new ArrayList<Integer>(trains.size());
+        Iterator<Entry<Time, List<Integer>>> departuresIt = byDeparture.iterator();
+        while(departuresIt.hasNext()) {
+            Iterator<Integer> it = departuresIt.next().getValue().iterator();
+            while(it.hasNext()) {
+                int i = it.next();
+                List<Station> stops = scheduleStations.get(i);
+                if(isNotDepartingStation(stops.getFirst()))
+                    throw new InvalidScheduleException();
+                boolean forward = stops.getFirst().equals(stations.getFirst());
+                validateSchedule(stops, scheduleTimes.get(i), forward ? forwardImported : reverseImported);
+                order.addLast(i);
+            }
+        }
+
+        boolean empty = schedules.isEmpty();
+        List<Schedule> added = new ArrayList<Schedule>(order.size());
+        Iterator<Integer> it = order.iterator();
+        while(it.hasNext()) {
+            int i = it.next();
+            if(empty)
+                added.addLast(newSchedule(trains.get(i), scheduleStations.get(i), scheduleTimes.get(i),
+                        scheduleStations.get(i).size(), true));
+            else
+                attachSchedule(trains.get(i), scheduleStations.get(i), scheduleTimes.get(i), scheduleStations.get(i).size());
+        }
+        if(empty)
+            indexSchedules(added);
+        if(!order.isEmpty())
+            dirty = true;
+    }
+
+    @Override
+    public void restoreSchedules(int[] trains, List<List<Station>> scheduleStations, List<List<Time>> scheduleTimes) {
+        List<Schedule> restored = new ArrayList<Schedule>(trains.length);
+        for(int i = 0; i < trains.length; i++)
+            restored.addLast(newSchedule(String.valueOf(trains[i]), scheduleStations.get(i), scheduleTimes.get(i),
+                    scheduleStations.get(i).size(), true));
+        indexSchedules(restored);
+    }
+
+    @Override
+    public void insertTemplate(String train, List<Station> scheduleStations, List<Time> scheduleTimes, int headway,
+                               Time lastDeparture) throws InvalidScheduleException {
+
+        int departure = scheduleTimes.getFirst().toMinutes();
+        if(headway <= 0 || lastDeparture.toMinutes() < departure || isNotDepartingStation(scheduleStations.getFirst()))
+            throw new InvalidScheduleException();
+
+        int trips = (lastDeparture.toMinutes() - departure) / headway + 1;
+        int firstTrain = Integer.parseInt(train);
+        if((long) firstTrain + trips - 1 > Integer.MAX_VALUE || hasTrains(firstTrain, firstTrain + trips - 1))
+            throw new InvalidScheduleException();
+
+        // The trips share their stops, so they only overtake each other where a station repeats: a trip
+        // must leave the stops at the same line position before the next one reaches them, except for the
+        // departure, which is not checked for overtakes.
+        int stops = scheduleStations.size();
+        validateSchedule(scheduleStations, scheduleTimes, null);
+        int[] positions = linePositions(scheduleStations, stops);
+        for(int i = 2, start = 1; i < stops && trips > 1; i++) {
+            if(positions[i] != positions[start])
+                start = i;
+            else if(scheduleTimes.get(i).toMinutes() - scheduleTimes.get(start).toMinutes() >= headway)
+                throw new InvalidScheduleException();
+        }
+
+        for(int trip = 1; trip < trips; trip++) {
+            List<Time> tripTimes = new ArrayList<Time>(stops);
+            Iterator<Time> it = scheduleTimes.iterator();
+            while(it.hasNext())
+                tripTimes.addLast(new TimeClass(it.next().toMinutes() + trip * headway));
+            validateSchedule(scheduleStations, tripTimes, null);
         }
-        schedules.insert(train, schedule);
+
+        restoreTemplate(firstTrain, scheduleStations, scheduleTimes, headway, trips);
+        dirty = true;
     }
 
+    @Override
+    public void restoreTemplate(int train, List<Station> scheduleStations, List<Time> scheduleTimes, int headway,
+                                int trips) {
+        PatternSchedules patternSchedules = internPattern(scheduleStations, scheduleStations.size());
+        int[] times = new int[scheduleTimes.size()];
+        for(int i = 0; i < times.length; i++)
+            times[i] = scheduleTimes.get(i).toMinutes();
+        attachTemplate(new HeadwayTemplateClass(patternSchedules.pattern, times, train, headway, trips));
+    }
+
+    /**
+     * Removes the schedule departing from a terminal station at the given time.
+     * Among the schedules and the trips of the templates departing at that time, the one of the lowest
+     * train is removed; removing a trip splits its template in the trips before and after it.
+     */
     @Override
     public void removeSchedule(Station station, Time time) throws NonexistentScheduleException {
-        Iterator<Entry<String, Schedule>> schedules = getScheduleIt();
-        boolean found = false;
+        if(isNotDepartingStation(station))
+            throw new NonexistentScheduleException();
 
-        while (schedules.hasNext() && !found) {
-            Entry<String, Schedule> entry = schedules.next();
-            Schedule schedule = entry.getValue();
+        TimeTrainPairClass first = new TimeTrainPairClass(time, Integer.MIN_VALUE);
+        Entry<TimeTrainPairClass, Schedule> entry = departuresFrom(station).ceilingEntry(first);
+        if(entry != null && entry.getKey().getTime().compareTo(time) != 0)
+            entry = null;
 
-            if(schedule.getDepartureStation().equals(station))
-                if(schedule.getDepartureTime().compareTo(time) == 0) {
-                    Schedule tmp = this.schedules.remove(entry.getKey());
-                    tmp.deleteSchedule();
-                    found = true;
-                }
+        boolean forward = isForward(station);
+        int train = entry == null ? Integer.MAX_VALUE : entry.getKey().getTrain();
+        HeadwayTemplate template = null;
+        Iterator<HeadwayTemplate> it = templates.iterator();
+        while(it.hasNext()) {
+            HeadwayTemplate candidate = it.next();
+            int departureStop = departureStop(candidate);
+            int trip = candidate.getLastTripBy(departureStop, time.toMinutes());
+            if(isForward(candidate.getPattern().getStation(0)) != forward || trip == -1
+                    || candidate.getMinutes(trip, departureStop) != time.toMinutes())
+                continue;
+            if(template == null && entry == null || candidate.getTrain(trip) < train) {
+                template = candidate;
+                train = candidate.getTrain(trip);
+            }
         }
-        if (!found)
+
+        if(template != null)
+            removeTrip(train);
+        else if(entry != null) {
+            Schedule schedule = entry.getValue();
+            schedules.remove(schedule.getTrain());
+            detachSchedule(schedule);
+        }
+        else
             throw new NonexistentScheduleException();
+        dirty = true;
+    }
+
+    @Override
+    public boolean isDirty() {
+        return dirty;
     }
 
     @Override
-    public Iterator<Entry<Time, Schedule>> consultSchedules(Station station)
+    public void markClean() {
+        dirty = false;
+    }
+
+    @Override
+    public void removeSchedules() {
+        Iterator<Entry<Integer, Schedule>> it = schedules.iterator();
+        while(it.hasNext())
+            it.next().getValue().deleteSchedule(this);
+        Iterator<HeadwayTemplate> templatesIt = templates.iterator();
+        while(templatesIt.hasNext())
+            removeStops(templatesIt.next());
+
+        schedules = new AVLTree<Integer, Schedule>();
+        forwardDepartures = new AVLTree<TimeTrainPairClass, Schedule>();
+        reverseDepartures = new AVLTree<TimeTrainPairClass, Schedule>();
+        forwardPassages = newPassageIndex(stations.size());
+        reversePassages = newPassageIndex(stations.size());
+        patterns = new LinearProbingHashTable<TripPattern, PatternSchedules>();
+        templates = new ArrayList<HeadwayTemplate>();
+        dirty = true;
+    }
+
+    @Override
+    public Iterator<Entry<TimeTrainPairClass, Schedule>> consultSchedules(Station station)
             throws NonexistentStationException {
         if(isNotDepartingStation(station))
             throw new NonexistentStationException();
 
-        Iterator<Entry<String, Schedule>> it = getScheduleIt();
-        OrderedDoubleList<Time, Schedule> schedules = new OrderedDoubleList<Time, Schedule>();
-
+        List<Iterator<Entry<TimeTrainPairClass, Schedule>>> departures = null;
+        Iterator<HeadwayTemplate> it = templates.iterator();
         while(it.hasNext()) {
-            Entry<String, Schedule> entry = it.next();
-            if(entry.getValue().getDepartureStation().equals(station)) {
-                schedules.insert(entry.getValue().getDepartureTime(), entry.getValue());
+            HeadwayTemplate template = it.next();
+            if(isForward(template.getPattern().getStation(0)) != isForward(station))
+                continue;
+            if(departures == null) {
+                departures = new ArrayList<Iterator<Entry<TimeTrainPairClass, Schedule>>>();
+                departures.addLast(departuresFrom(station).iterator());
             }
+            departures.addLast(new TemplateDepartureIterator(template, departureStop(template)));
         }
+        if(departures == null)
+            return departuresFrom(station).iterator();
+        return new MergeIterator<TimeTrainPairClass, Schedule>(departures);
+    }
 
-        return schedules.iterator();
+    /**
+     * Gets a page of the schedules departing from a station. Without templates in the direction of the
+     * station, the page starts at its first schedule in the departure index; the trips of templates are
+     * not in the index, so with them it is skipped to.
+     */
+    @Override
+    public Iterator<Entry<TimeTrainPairClass, Schedule>> consultSchedules(Station station, int first, int count)
+            throws NonexistentStationException {
+        if(isNotDepartingStation(station))
+            throw new NonexistentStationException();
+
+        if(hasTemplatesFrom(station))
+            return new PageIterator<Entry<TimeTrainPairClass, Schedule>>(consultSchedules(station), first, count);
+        OrderedDictionary<TimeTrainPairClass, Schedule> departures = departuresFrom(station);
+        return new PageIterator<Entry<TimeTrainPairClass, Schedule>>(
+                departures.iterator(Math.min(first, departures.size())), 0, count);
     }
 
     @Override
     public Schedule getBestSchedule(Station departure, Station destination, Time time)
             throws NonexistentStationException, ImpossibleRouteException {
-        Iterator<Entry<String, Schedule>> it = schedules.iterator();
-        Schedule bestSchedule = null;
-
-        if(isNonexistentStation(departure))
+        int departurePos = getStationOrdinal(departure);
+        if(departurePos == -1)
             throw new NonexistentStationException();
 
-        if(isNonexistentStation(destination))
+        int destinationPos = getStationOrdinal(destination);
+        if(destinationPos == -1 || destinationPos == departurePos)
             throw new ImpossibleRouteException();
 
+        // Only trains of the direction that goes from departure to destination can serve the route,
+        // and whether they do depends only on their pattern, so patterns that do not are skipped whole.
+        boolean forward = departurePos < destinationPos;
+        Schedule best = null;
+        Time bestArrival = null;
+        Iterator<Entry<TripPattern, PatternSchedules>> it = patterns.iterator();
         while(it.hasNext()) {
-            Entry<String, Schedule> entry = it.next();
-            Schedule tmp = entry.getValue();
-            if(tmp.existsStation(departure)
-                    && tmp.existsStation(destination)
-                    && tmp.isRightOrder(departure, destination)
-                    && tmp.getStationTime(destination).compareTo(time) <= 0) {
-                if(bestSchedule == null)
-                    bestSchedule = tmp;
-                else if(tmp.getStationTime(destination).compareTo(bestSchedule.getStationTime(destination)) > 0)
-                    bestSchedule = tmp;
-            }
-        }
-        if(bestSchedule == null)
-            throw new ImpossibleRouteException();
+            PatternSchedules candidates = it.next().getValue();
+            if(candidates.forward != forward || !candidates.stopsAt(destinationPos)
+                    || !candidates.serves(departure, destination))
+                continue;
 
-        return bestSchedule;
+            Schedule schedule = candidates.latestArrival(destination, time);
+            if(schedule == null)
+                continue;
+            Time arrival = schedule.getStationTime(destination);
+            int comparison = best == null ? 1 : arrival.compareTo(bestArrival);
+            if(comparison > 0 || (comparison == 0 && schedule.getTrain() > best.getTrain())) {
+                best = schedule;
+                bestArrival = arrival;
+            }
+        }
+        if(best == null)
+            throw new ImpossibleRouteException();
+        return best;
     }
 
     @Override
@@ -133,31 +386,386 @@ public class LineClass implements Line, SafeLine {
     }
 
     @Override
-    public Iterator<Entry<String, Schedule>> getScheduleIt() {
+    public Iterator<Entry<Integer, Schedule>> getScheduleIt() {
         return schedules.iterator();
     }
 
+    @Override
+    public Iterator<HeadwayTemplate> getTemplatesIt() {
+        return templates.iterator();
+    }
+
     @Override
     public boolean isNotDepartingStation(Station station) {
         return !this.stations.getFirst().equals(station) && !this.stations.getLast().equals(station);
     }
 
+    @Override
+    public int getStationOrdinal(Station station) {
+        if(station == null)
+            return -1;
+        Integer ordinal = stationOrdinals.find(station.getId());
+        return ordinal == null ? -1 : ordinal;
+    }
+
     @Override
     public boolean isNonexistentStation(Station station) {
-        return stations.find(station) == -1;
+        return getStationOrdinal(station) == -1;
+    }
+
+    /**
+     * Gets the departure index of the terminal station a schedule departs from
+     * @param station terminal station
+     * @return schedules departing from that station, ordered by departure time
+     */
+    private OrderedDictionary<TimeTrainPairClass, Schedule> departuresFrom(Station station) {
+        return isForward(station) ? forwardDepartures : reverseDepartures;
+    }
+
+    /**
+     * Checks if some template of the line departs from a terminal station
+     * @param station terminal station
+     * @return true if the trips of a template depart from it
+     */
+    private boolean hasTemplatesFrom(Station station) {
+        Iterator<HeadwayTemplate> it = templates.iterator();
+        while(it.hasNext())
+            if(isForward(it.next().getPattern().getStation(0)) == isForward(station))
+                return true;
+        return false;
+    }
+
+    /**
+     * Checks the direction of the schedules departing from a terminal station
+     * @param station terminal station
+     * @return true if schedules departing from it travel from the first station of the line
+     */
+    private boolean isForward(Station station) {
+        return stations.getFirst().equals(station);
+    }
+
+    /**
+     * Gets the stop of a template whose time is the departure time of its trips, which is, as for
+     * a schedule, the time of the last stop at the station of departure
+     * @param template template of the line
+     * @return position of the stop in the pattern of the template
+     */
+    private static int departureStop(HeadwayTemplate template) {
+        TripPattern pattern = template.getPattern();
+        return pattern.getLastStop(pattern.getStation(0));
+    }
+
+    /**
+     * Checks if a range of trains has a train of the line, running a schedule or a trip of a template
+     * @param from first train of the range
+     * @param to last train of the range
+     * @return true if some train of the range is in the line
+     */
+    private boolean hasTrains(int from, int to) {
+        Entry<Integer, Schedule> next = schedules.ceilingEntry(from);
+        if(next != null && next.getKey() <= to)
+            return true;
+        Iterator<HeadwayTemplate> it = templates.iterator();
+        while(it.hasNext()) {
+            HeadwayTemplate template = it.next();
+            if(template.getFirstTrain() <= to && template.getTrain(template.getTrips() - 1) >= from)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a template to the line, its pattern and the stations of its stops
+     * @param template template whose pattern is already a pattern of the line
+     */
+    private void attachTemplate(HeadwayTemplate template) {
+        TripPattern pattern = template.getPattern();
+        templates.addLast(template);
+        patterns.find(pattern).templates.addLast(template);
+        for(int i = 0; i < pattern.size(); i++)
+            pattern.getStation(i).addTemplate(template, i, this);
+    }
+
+    /**
+     * Removes the trip run by a train from the template it belongs to, which is replaced
+     * by templates with the trips before and after it
+     * @param train train identifier
+     */
+    private void removeTrip(int train) {
+        for(int i = 0; i < templates.size(); i++) {
+            HeadwayTemplate template = templates.get(i);
+            int trip = template.getTripOfTrain(train);
+            if(trip == -1)
+                continue;
+            if(trip > 0)
+                attachTemplate(template.subTemplate(0, trip));
+            if(trip < template.getTrips() - 1)
+                attachTemplate(template.subTemplate(trip + 1, template.getTrips()));
+
+            templates.remove(i);
+            PatternSchedules patternSchedules = patterns.find(template.getPattern());
+            patternSchedules.templates.remove(template);
+            if(patternSchedules.isEmpty())
+                patterns.remove(patternSchedules.pattern);
+            removeStops(template);
+            return;
+        }
+    }
+
+    /**
+     * Removes the stops of a template from its stations
+     * @param template template being removed from the line
+     */
+    private void removeStops(HeadwayTemplate template) {
+        TripPattern pattern = template.getPattern();
+        for(int i = 0; i < pattern.size(); i++)
+            pattern.getStation(i).removeTemplate(template);
+    }
+
+    /**
+     * Builds the key of a schedule in the departure index
+     * @param schedule schedule to index
+     * @return departure time and train of the schedule
+     */
+    private TimeTrainPairClass departureKey(Schedule schedule) {
+        return new TimeTrainPairClass(schedule.getDepartureTime(), schedule.getTrain());
+    }
+
+    /**
+     * Removes a schedule from the departure index, from its pattern and from all its stations
+     * @param schedule schedule being removed from the line
+     */
+    private void detachSchedule(Schedule schedule) {
+        departuresFrom(schedule.getDepartureStation()).remove(departureKey(schedule));
+        updatePassages(schedule, false);
+        PatternSchedules patternSchedules = patterns.find(schedule.getPattern());
+        patternSchedules.remove(schedule);
+        if(patternSchedules.isEmpty())
+            patterns.remove(patternSchedules.pattern);
+        schedule.deleteSchedule(this);
+    }
+
+    /**
+     * Creates a schedule and adds it to the line, its stations and the indexes
+     * @param train train identifier
+     * @param scheduleStations stations of the schedule, in travel order
+     * @param scheduleTimes times at each station
+     * @param stops number of stations of the schedule to use
+     */
+    private void attachSchedule(String train, List<Station> scheduleStations, List<Time> scheduleTimes, int stops) {
+        Schedule schedule = newSchedule(train, scheduleStations, scheduleTimes, stops, false);
+        schedules.insert(schedule.getTrain(), schedule);
+        departuresFrom(schedule.getDepartureStation()).insert(departureKey(schedule), schedule);
+        updatePassages(schedule, true);
+    }
+
+    /**
+     * Creates a schedule and adds it to its pattern and its stations, but not to the indexes of the line
+     * @param train train identifier
+     * @param scheduleStations stations of the schedule, in travel order
+     * @param scheduleTimes times at each station
+     * @param stops number of stations of the schedule to use
+     * @param restore true to leave the stations to index the train when their trains are restored
+     * @return the schedule created
+     */
+    private Schedule newSchedule(String train, List<Station> scheduleStations, List<Time> scheduleTimes, int stops,
+                                 boolean restore) {
+        PatternSchedules patternSchedules = internPattern(scheduleStations, stops);
+        Schedule schedule = new CompactScheduleClass(patternSchedules.pattern);
+        schedule.addTrain(train);
+
+        int counter = 0;
+
+        while(counter < stops) {
+            schedule.addSchedule(scheduleStations.get(counter), scheduleTimes.get(counter));
+            if(restore)
+                scheduleStations.get(counter).restoreTrain(train, scheduleTimes.get(counter), this);
+            else
+                scheduleStations.get(counter).addTrain(train, scheduleTimes.get(counter), this);
+            counter++;
+        }
+        patternSchedules.add(schedule);
+        return schedule;
+    }
+
+    /**
+     * Gets the pattern of the line that stops at the given stations, adding it if the line has none
+     * @param scheduleStations stations of a valid schedule, in travel order
+     * @param stops number of stations of the schedule to use
+     * @return the pattern, with the schedules of the line that follow it
+     */
+    private PatternSchedules internPattern(List<Station> scheduleStations, int stops) {
+        TripPattern pattern = new TripPatternClass(scheduleStations, stops);
+        PatternSchedules patternSchedules = patterns.find(pattern);
+        if(patternSchedules == null) {
+            boolean forward = isForward(pattern.getStation(0));
+            patternSchedules = new PatternSchedules(pattern, forward, linePositions(scheduleStations, stops));
+            patterns.insert(pattern, patternSchedules);
+        }
+        return patternSchedules;
+    }
+
+    /**
+     * Finds where along the line a valid schedule stops
+     * @param scheduleStations stations of a valid schedule, in travel order
+     * @param stops number of stations of the schedule to use
+     * @return position along the line of each stop
+     */
+    private int[] linePositions(List<Station> scheduleStations, int stops) {
+        boolean forward = isForward(scheduleStations.getFirst());
+        int[] linePositions = new int[stops];
+        int position = forward ? 0 : stations.size() - 1;
+        for(int i = 0; i < stops; i++) {
+            while(!scheduleStations.get(i).equals(stations.get(position))) position += forward ? 1 : -1;
+            linePositions[i] = position;
+        }
+        return linePositions;
+    }
+
+    /**
+     * Builds the indexes of a line without schedules from the schedules given.
+     * Each index whose entries come in order is built in linear time, which is the case of the
+     * schedule index if the trains are in increasing order, and of the departure and passage
+     * indexes if the schedules are in departure order; the others are built by inserting every entry.
+     * The trains restored in the stations of the line are indexed too.
+     * @param added schedules of the line, already added to their stations
+     */
+    @SuppressWarnings("unchecked")
+    private void indexSchedules(List<Schedule> added) {
+        List<Entry<Integer, Schedule>> byTrain = new ArrayList<Entry<Integer, Schedule>>(added.size());
+        List<Entry<TimeTrainPairClass, Schedule>> forward = new ArrayList<Entry<TimeTrainPairClass, Schedule>>();
+        List<Entry<TimeTrainPairClass, Schedule>> reverse = new ArrayList<Entry<TimeTrainPairClass, Schedule>>();
+        List<Entry<TimeTrainPairClass, Schedule>>[] forwardAt =
+                (List<Entry<TimeTrainPairClass, Schedule>>[]) new List<?>[stations.size()];
+        List<Entry<TimeTrainPairClass, Schedule>>[] reverseAt =
+                (List<Entry<TimeTrainPairClass, Schedule>>[]) new List<?>[stations.size()];
+        for(int i = 0; i < stations.size(); i++) {
+            forwardAt[i] = new ArrayList<Entry<TimeTrainPairClass, Schedule>>();
+            reverseAt[i] = new ArrayList<Entry<TimeTrainPairClass, Schedule>>();
+        }
+
+        Iterator<Schedule> it = added.iterator();
+        while(it.hasNext()) {
+            Schedule schedule = it.next();
+            byTrain.addLast(new EntryClass<Integer, Schedule>(schedule.getTrain(), schedule));
+
+            boolean isForward = stations.getFirst().equals(schedule.getDepartureStation());
+            (isForward ? forward : reverse).addLast(new EntryClass<TimeTrainPairClass, Schedule>(departureKey(schedule), schedule));
+
+            List<Entry<TimeTrainPairClass, Schedule>>[] passages = isForward ? forwardAt : reverseAt;
+            int position = isForward ? 0 : stations.size() - 1;
+            Iterator<Station> stopsIt = schedule.getStationsIt();
+            while(stopsIt.hasNext()) {
+                Station station = stopsIt.next();
+                while(!station.equals(stations.get(position))) position += isForward ? 1 : -1;
+                passages[position].addLast(new EntryClass<TimeTrainPairClass, Schedule>(
+                        new TimeTrainPairClass(schedule.getStationTime(station), schedule.getTrain()), schedule));
+            }
+        }
+
+        schedules = buildIndex(byTrain);
+        forwardDepartures = buildIndex(forward);
+        reverseDepartures = buildIndex(reverse);
+        for(int i = 0; i < stations.size(); i++) {
+            forwardPassages[i] = buildIndex(forwardAt[i]);
+            reversePassages[i] = buildIndex(reverseAt[i]);
+            stations.get(i).restoreTrains();
+        }
+    }
+
+    /**
+     * Builds an index from its entries, in linear time if they are in strictly increasing order of key
+     * @param entries entries of the index
+     * @return the index
+     */
+    private static <K extends Comparable<K>> OrderedDictionary<K, Schedule> buildIndex(List<Entry<K, Schedule>> entries) {
+        K previous = null;
+        Iterator<Entry<K, Schedule>> it = entries.iterator();
+        while(it.hasNext()) {
+            K key = it.next().getKey();
+            if(previous != null && previous.compareTo(key) >= 0) {
+                OrderedDictionary<K, Schedule> index = new AVLTree<K, Schedule>();
+                it = entries.iterator();
+                while(it.hasNext()) {
+                    Entry<K, Schedule> entry = it.next();
+                    index.insert(entry.getKey(), entry.getValue());
+                }
+                return index;
+            }
+            previous = key;
+        }
+        return new AVLTree<K, Schedule>(entries.iterator(), entries.size());
+    }
+
+    /**
+     * Creates an empty passage index with one ordered dictionary per line position
+     * @param size number of stations in the line
+     * @return array of empty passage dictionaries
+     */
+    @SuppressWarnings("unchecked")
+    private static OrderedDictionary<TimeTrainPairClass, Schedule>[] newPassageIndex(int size) {
+        OrderedDictionary<TimeTrainPairClass, Schedule>[] index =
+                (OrderedDictionary<TimeTrainPairClass, Schedule>[]) new OrderedDictionary<?, ?>[size];
+        for(int i = 0; i < size; i++)
+            index[i] = new AVLTree<TimeTrainPairClass, Schedule>();
+        return index;
     }
 
     /**
-     * Validates a schedule by checking station order, timing and overtake
+     * Adds or removes every passage of a schedule in the passage index of its direction
+     * @param schedule schedule whose passages are updated
+     * @param add true to add the passages, false to remove them
+     */
+    private void updatePassages(Schedule schedule, boolean add) {
+        boolean forward = stations.getFirst().equals(schedule.getDepartureStation());
+        OrderedDictionary<TimeTrainPairClass, Schedule>[] passages = forward ? forwardPassages : reversePassages;
+        int position = forward ? 0 : stations.size() - 1;
+        Iterator<Station> it = schedule.getStationsIt();
+
+        while(it.hasNext()) {
+            Station station = it.next();
+            while(!station.equals(stations.get(position))) position += forward ? 1 : -1;
+
+            TimeTrainPairClass key = new TimeTrainPairClass(schedule.getStationTime(station), schedule.getTrain());
+            if(add)
+                passages[position].insert(key, schedule);
+            else
+                passages[position].remove(key);
+        }
+    }
+
+    /**
+     * Creates the latest times of the schedules validated by an import, per line position
+     * @return one time per station of the line, all before any time
+     */
+    private int[] newImportedTimes() {
+        int[] times = new int[stations.size()];
+        for(int i = 0; i < times.length; i++)
+            times[i] = -1;
+        return times;
+    }
+
+    /**
+     * Validates a schedule by checking station order, timing and overtake.
+     * Schedules imported together are validated in the order of their departure times, so that each
+     * can only overtake or be overtaken by a schedule validated before it if it passes a station
+     * no later than that schedule does.
      * @param scheduleStations list of stations in the schedule
      * @param scheduleTimes list of times corresponding to each station
+     * @param imported latest time, in minutes, of the schedules of the same direction already validated
+     *                 by the import at each line position, updated with this schedule; null if it is inserted alone
      * @return number of validated stations
      * @throws InvalidScheduleException if schedule is invalid
      */
-    private int validateSchedule(DoubleList<Station> scheduleStations, DoubleList<Time> scheduleTimes)
+    private int validateSchedule(List<Station> scheduleStations, List<Time> scheduleTimes, int[] imported)
             throws InvalidScheduleException {
 
-        int currentPos = (scheduleStations.getFirst().equals(this.stations.getFirst())) ? 0 : this.stations.size() - 1;
+        boolean forward = scheduleStations.getFirst().equals(this.stations.getFirst());
+        OrderedDictionary<TimeTrainPairClass, Schedule>[] passages = forward ? forwardPassages : reversePassages;
+        Time departureTime = scheduleTimes.getFirst();
+        Time previousTime = null;
+
+        int currentPos = forward ? 0 : this.stations.size() - 1;
         int stationsValidated = 0;
 
         Iterator<Station> stationsIt = scheduleStations.iterator();
@@ -167,7 +775,7 @@ public class LineClass implements Line, SafeLine {
             Station station = stationsIt.next();
             Time time = timesIt.next();
 
-            if(scheduleStations.getFirst().equals(this.stations.getFirst())) {
+            if(forward) {
                 while(currentPos < this.stations.size() && !station.equals(this.stations.get(currentPos))) currentPos++;
                 if(currentPos == this.stations.size()) throw new InvalidScheduleException();
             }
@@ -176,45 +784,89 @@ public class LineClass implements Line, SafeLine {
                 if(currentPos == -1) throw new InvalidScheduleException();
             }
 
-            if(stationsValidated > 0 && !scheduleTimes.get(stationsValidated - 1).hasTravelTime(time))
+            if(stationsValidated > 0 && !previousTime.hasTravelTime(time))
+                throw new InvalidScheduleException();
+
+            if(stationsValidated > 0 && hasOvertake(passages[currentPos], time, departureTime))
                 throw new InvalidScheduleException();
 
-            if(stationsValidated > 0 && hasOvertake(station, time, scheduleStations.getFirst() ,scheduleTimes.getFirst()))
+            if(stationsValidated > 0 && hasTemplateOvertake(forward, currentPos, time, departureTime))
                 throw new InvalidScheduleException();
 
+            if(imported != null) {
+                if(stationsValidated > 0 && time.toMinutes() <= imported[currentPos])
+                    throw new InvalidScheduleException();
+                imported[currentPos] = Math.max(imported[currentPos], time.toMinutes());
+            }
+
+            previousTime = time;
             stationsValidated++;
         }
         return stationsValidated;
     }
 
     /**
-     * Checks if there's a train overtake at a given station
-     * @param station station to check for overtake
+     * Checks if there's a train overtake at a given station.
+     * Trains of the same direction never overtake each other, so the passages at a
+     * station are ordered the same way by time and by departure time, and only the
+     * passages immediately before and after the new time need to be checked.
+     * @param passages passages at the station in the direction of the schedule
      * @param time time at the station
-     * @param departureStation initial station of the schedule
      * @param departureTime departure time from initial station
      * @return true if there's an overtake, false otherwise
      */
-    private boolean hasOvertake(Station station, Time time, Station departureStation,Time departureTime) {
-        Iterator<Entry<String, Schedule>> it = schedules.iterator();
-        boolean isForward = stations.getFirst().equals(departureStation);
+    private boolean hasOvertake(OrderedDictionary<TimeTrainPairClass, Schedule> passages, Time time, Time departureTime) {
+        TimeTrainPairClass key = new TimeTrainPairClass(time, Integer.MIN_VALUE);
 
+        Entry<TimeTrainPairClass, Schedule> next = passages.ceilingEntry(key);
+        if(next != null) {
+            if(next.getKey().getTime().compareTo(time) == 0)
+                return true;
+            if(next.getValue().getDepartureTime().compareTo(departureTime) <= 0)
+                return true;
+        }
+
+        Entry<TimeTrainPairClass, Schedule> previous = passages.floorEntry(key);
+        if(previous != null) {
+            if(previous.getKey().getTime().compareTo(time) == 0)
+                return true;
+            if(previous.getValue().getDepartureTime().compareTo(departureTime) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if there's an overtake with a trip of a template at a given line position, by the rule of
+     * hasOvertake: a trip passing the station before the schedule must not depart after it, and one
+     * passing after it must depart after it. The times of a trip at every stop are those of the first trip
+     * shifted by the same amount, so the trips in conflict are those shifted between the amounts that make
+     * them depart with the schedule and pass the station with it. As in the passage index, the time of
+     * a trip at a station is that of its last stop there.
+     * @param forward direction of the schedule
+     * @param linePosition position of the station along the line
+     * @param time time at the station
+     * @param departureTime departure time from initial station
+     * @return true if there's an overtake, false otherwise
+     */
+    private boolean hasTemplateOvertake(boolean forward, int linePosition, Time time, Time departureTime) {
+        Iterator<HeadwayTemplate> it = templates.iterator();
         while(it.hasNext()) {
-            Schedule existingSchedule = it.next().getValue();
-
-            if(existingSchedule.getDepartureStation().equals(stations.getFirst()) == isForward) {
-                if(existingSchedule.existsStation(station)) {
-                    if(existingSchedule.getDepartureTime().compareTo(departureTime) <= 0) {
-                        if(existingSchedule.getStationTime(station).compareTo(time) >= 0) {
-                            return true;
-                        }
-                    }
-                    else {
-                        if(existingSchedule.getStationTime(station).compareTo(time) <= 0) {
-                            return true;
-                        }
-                    }
-                }
+            HeadwayTemplate template = it.next();
+            PatternSchedules patternSchedules = patterns.find(template.getPattern());
+            if(patternSchedules.forward != forward)
+                continue;
+            int first = template.getMinutes(0, 0);
+            int departingWith = departureTime.toMinutes() - (template.getMinutes(0, departureStop(template)) - first);
+            for(int stop = 0; stop < patternSchedules.linePositions.length; stop++) {
+                if(patternSchedules.linePositions[stop] != linePosition)
+                    continue;
+                int passage = template.getPattern().getLastStop(template.getPattern().getStation(stop));
+                int passingWith = time.toMinutes() - (template.getMinutes(0, passage) - first);
+                boolean overtake = passingWith <= departingWith ? template.departsBetween(passingWith, departingWith)
+                        : template.departsBetween(departingWith + 1, passingWith);
+                if(overtake)
+                    return true;
             }
         }
         return false;
@@ -222,7 +874,237 @@ public class LineClass implements Line, SafeLine {
 
     @Override
     public int compareTo(Line o) {
-        return this.name.toUpperCase().compareTo(o.getName().toUpperCase());
+        return key.compareTo(o.getKey());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof Line))
+            return false;
+        return id == ((Line) o).getId();
     }
 
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    /**
+     * A trip pattern of the line with the schedules and templates that follow it, and where along the line
+     * it stops. Trains of the same direction never overtake each other, so schedules of the same pattern
+     * pass every stop but the first in the same order. The schedules are kept in that order, so that
+     * their passages at a stop are searched by bisection, unless a station repeats in the pattern.
+     */
+    private static class PatternSchedules implements Serializable {
+
+        @Serial
+        static final long serialVersionUID = 0L;
+
+        /** Stations the schedules stop at, in travel order */
+        final TripPattern pattern;
+        /** Whether the schedules depart from the first station of the line */
+        final boolean forward;
+        /** Position along the line of each stop of the pattern */
+        final int[] linePositions;
+        /** Whether the schedules are kept in the order they pass the stops after the first */
+        final boolean ordered;
+        /** Schedules that follow the pattern */
+        final List<Schedule> schedules;
+        /** Headway templates that follow the pattern */
+        final List<HeadwayTemplate> templates;
+
+        PatternSchedules(TripPattern pattern, boolean forward, int[] linePositions) {
+            this.pattern = pattern;
+            this.forward = forward;
+            this.linePositions = linePositions;
+            this.ordered = pattern.size() > 1 && !pattern.hasRepeatedStations();
+            this.schedules = new ArrayList<Schedule>();
+            this.templates = new ArrayList<HeadwayTemplate>();
+        }
+
+        /**
+         * Checks if no schedule or template follows the pattern any more
+         * @return true if the pattern can be dropped
+         */
+        boolean isEmpty() {
+            return schedules.isEmpty() && templates.isEmpty();
+        }
+
+        /**
+         * Adds a schedule that follows the pattern
+         * @param schedule schedule to add
+         */
+        void add(Schedule schedule) {
+            if(!ordered) {
+                schedules.addLast(schedule);
+                return;
+            }
+            Station second = pattern.getStation(1);
+            schedules.add(passingUpTo(second, schedule.getStationTime(second).toMinutes()), schedule);
+        }
+
+        /**
+         * Removes a schedule that follows the pattern
+         * @param schedule schedule to remove
+         */
+        void remove(Schedule schedule) {
+            if(ordered) {
+                Station second = pattern.getStation(1);
+                int position = passingUpTo(second, schedule.getStationTime(second).toMinutes()) - 1;
+                if(position >= 0 && schedules.get(position) == schedule) {
+                    schedules.remove(position);
+                    return;
+                }
+            }
+            schedules.remove(schedule);
+        }
+
+        /**
+         * Checks if the pattern stops at a position of the line
+         * @param linePosition position along the line
+         * @return true if a stop of the pattern is at that position
+         */
+        boolean stopsAt(int linePosition) {
+            for(int i = 0; i < linePositions.length; i++)
+                if(linePositions[i] == linePosition)
+                    return true;
+            return false;
+        }
+
+        /**
+         * Checks if the schedules of the pattern go from a station to another
+         * @param departure departure station
+         * @param destination destination station
+         * @return true if the pattern stops at the departure station before it first stops at the destination
+         */
+        boolean serves(Station departure, Station destination) {
+            int departureStop = pattern.getFirstStop(departure);
+            return departureStop != -1 && departureStop < pattern.getFirstStop(destination);
+        }
+
+        /**
+         * Gets the schedule or trip of the pattern that arrives last at a station no later than a given time.
+         * The latest trip of each template is found by arithmetic, and only the trip chosen is materialized.
+         * @param destination station the pattern stops at
+         * @param time arrival time limit
+         * @return the schedule, the one of the highest train among those arriving at the same time,
+         *         or null if every schedule and trip arrives later
+         */
+        Schedule latestArrival(Station destination, Time time) {
+            Schedule latest = latestScheduleArrival(destination, time);
+            if(templates.isEmpty())
+                return latest;
+
+            int stop = pattern.getLastStop(destination);
+            int latestMinutes = latest == null ? -1 : latest.getStationTime(destination).toMinutes();
+            int latestTrain = latest == null ? 0 : latest.getTrain();
+            HeadwayTemplate latestTemplate = null;
+            int latestTrip = -1;
+            Iterator<HeadwayTemplate> it = templates.iterator();
+            while(it.hasNext()) {
+                HeadwayTemplate template = it.next();
+                int trip = template.getLastTripBy(stop, time.toMinutes());
+                if(trip == -1)
+                    continue;
+                int minutes = template.getMinutes(trip, stop);
+                if(minutes > latestMinutes || (minutes == latestMinutes && template.getTrain(trip) > latestTrain)) {
+                    latestMinutes = minutes;
+                    latestTrain = template.getTrain(trip);
+                    latestTemplate = template;
+                    latestTrip = trip;
+                }
+            }
+            return latestTemplate == null ? latest : latestTemplate.getSchedule(latestTrip);
+        }
+
+        /**
+         * Gets the schedule of the pattern that arrives last at a station no later than a given time
+         * @param destination station the pattern stops at
+         * @param time arrival time limit
+         * @return the schedule, the one of the highest train among those arriving at the same time,
+         *         or null if every schedule arrives later
+         */
+        private Schedule latestScheduleArrival(Station destination, Time time) {
+            if(ordered) {
+                int position = passingUpTo(destination, time.toMinutes()) - 1;
+                return position >= 0 ? schedules.get(position) : null;
+            }
+            Schedule latest = null;
+            Time latestArrival = null;
+            Iterator<Schedule> it = schedules.iterator();
+            while(it.hasNext()) {
+                Schedule schedule = it.next();
+                Time arrival = schedule.getStationTime(destination);
+                if(arrival.compareTo(time) > 0)
+                    continue;
+                int comparison = latest == null ? 1 : arrival.compareTo(latestArrival);
+                if(comparison > 0 || (comparison == 0 && schedule.getTrain() > latest.getTrain())) {
+                    latest = schedule;
+                    latestArrival = arrival;
+                }
+            }
+            return latest;
+        }
+
+        /**
+         * Counts the schedules that pass a stop of the pattern, other than the first, up to a given time
+         * @param station station of the stop
+         * @param minutes time limit, in minutes since midnight
+         * @return number of schedules, which are the first ones of the list
+         */
+        private int passingUpTo(Station station, int minutes) {
+            int low = 0, high = schedules.size();
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(schedules.get(middle).getStationTime(station).toMinutes() <= minutes)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Iterator over the departures of the trips of a template, in trip order, which is the order
+     * of their departures; each trip is materialized as it is returned
+     */
+    private static class TemplateDepartureIterator implements Iterator<Entry<TimeTrainPairClass, Schedule>> {
+
+        @Serial
+        static final long serialVersionUID = 0L;
+
+        /** Template whose trips are iterated */
+        private final HeadwayTemplate template;
+        /** Stop whose time is the departure time of the trips */
+        private final int departureStop;
+        /** Number of the next trip */
+        private int trip;
+
+        TemplateDepartureIterator(HeadwayTemplate template, int departureStop) {
+            this.template = template;
+            this.departureStop = departureStop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return trip < template.getTrips();
+        }
+
+        @Override
+        public Entry<TimeTrainPairClass, Schedule> next() throws NoSuchElementException {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            Time departure = new TimeClass(template.getMinutes(trip, departureStop));
+            TimeTrainPairClass key = new TimeTrainPairClass(departure, template.getTrain(trip));
+            return new EntryClass<TimeTrainPairClass, Schedule>(key, template.getSchedule(trip++));
+        }
+
+        @Override
+        public void rewind() {
+            trip = 0;
+        }
+    }
 }
@@ -0,0 +1,474 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Railway system backed by a memory-mapped snapshot file, which is read in place.
+ * <p>
+ * Opening the file only reads its trailer. Line and station queries are answered from the
+ * indexes at the end of the snapshot, and a line whose schedules are consulted is read,
+ * detached from the rest of the network, the first time it is needed.
+ * The first change to the system reads the whole snapshot into a RailwaySystemClass,
+ * which then answers every command.
+ */
+public class MappedRailwaySystemClass implements RailwaySystem {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Contents of the snapshot file */
+    private final transient ByteBuffer buffer;
+    /** Version of the snapshot format */
+    private final int version;
+    /** Number of the last journal record included in the snapshot */
+    private final long sequence;
+    /** Position of the offsets of the names of the string table */
+    private final int nameOffsetsPosition;
+    /** Position of the station table */
+    private final int stationTablePosition;
+    /** Position of the offsets of the lines, ordered by normalized name */
+    private final int lineDirectoryPosition;
+    /** Position of the offsets of the station records, ordered by normalized name */
+    private final int stationDirectoryPosition;
+    /** Lines read so far to answer schedule queries, by name */
+    private final Dictionary<NameKey, Line> lines;
+    /** Identifiers of the stations created to answer queries, so that those of the same name are equal */
+    private final SymbolTable stationIds;
+    /** Identifiers of the lines read to answer queries */
+    private final SymbolTable lineIds;
+    /** The whole system, once it has been read to be changed (null until then) */
+    private RailwaySystemClass system;
+
+    /**
+     * Maps a snapshot file
+     * @param buffer contents of a snapshot of version 2 or later
+     * @throws StreamCorruptedException if the buffer does not hold such a snapshot
+     */
+    public MappedRailwaySystemClass(ByteBuffer buffer) throws StreamCorruptedException {
+        this.buffer = buffer;
+        int trailer = buffer.limit() - SnapshotWriter.TRAILER_SIZE;
+        if(trailer < 8 || buffer.getInt(0) != SnapshotWriter.MAGIC || buffer.getInt(trailer + 16) != SnapshotWriter.MAGIC)
+            throw new StreamCorruptedException("Not a railway system snapshot with indexes");
+        this.version = buffer.getInt(4);
+        if(version < SnapshotWriter.FIRST_MAPPED_VERSION || version > SnapshotWriter.VERSION)
+            throw new StreamCorruptedException("Unsupported mapped snapshot version " + version);
+
+        this.sequence = version >= 3 ? buffer.getLong(8) : 0;
+
+        this.nameOffsetsPosition = buffer.getInt(trailer);
+        this.stationTablePosition = buffer.getInt(trailer + 4);
+        this.lineDirectoryPosition = buffer.getInt(trailer + 8);
+        this.stationDirectoryPosition = buffer.getInt(trailer + 12);
+        this.lines = new LinearProbingHashTable<NameKey, Line>();
+        this.stationIds = new SymbolTableClass();
+        this.lineIds = new SymbolTableClass();
+    }
+
+    /**
+     * Maps a snapshot file
+     * @param path snapshot file
+     * @return railway system backed by the file
+     * @throws StreamCorruptedException if the file does not hold a snapshot of version 2 or later
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedRailwaySystemClass open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedRailwaySystemClass(buffer);
+        }
+    }
+
+    /**
+     * Gets the number of the last journal record included in the snapshot
+     * @return sequence number, 0 if the snapshot includes no journal record
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Checks if the system is still answered from the snapshot
+     * @return true if the system has not been changed since it was opened
+     */
+    public boolean isMapped() {
+        return system == null;
+    }
+
+    /**
+     * Gets the whole system, reading it from the snapshot on the first call
+     * @return the railway system
+     * @throws StorageException if the snapshot cannot be read
+     */
+    public RailwaySystem materialize() throws StorageException {
+        if(system == null) {
+            try {
+                system = (RailwaySystemClass) new SnapshotReader(new BufferInputStream(buffer.duplicate())).read();
+            } catch (IOException e) {
+                throw new StorageException("Cannot read the mapped snapshot", e);
+            }
+        }
+        return system;
+    }
+
+    /**
+     * Copies the snapshot, which still holds the whole system while it is mapped
+     * @param out stream to copy to
+     * @throws IOException if the stream cannot be written
+     */
+    void copyTo(OutputStream out) throws IOException {
+        ByteBuffer contents = buffer.duplicate();
+        byte[] chunk = new byte[1 << 16];
+        contents.position(0);
+        while(contents.hasRemaining()) {
+            int length = Math.min(chunk.length, contents.remaining());
+            contents.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void insertLine(String name, List<String> stationNames) throws ExistentLineException {
+        materialize().insertLine(name, stationNames);
+    }
+
+    @Override
+    public void removeLine(String name) throws NonexistentLineException {
+        materialize().removeLine(name);
+    }
+
+    @Override
+    public SafeStationIterator consultLine(String name) throws NonexistentLineException {
+        if(system != null)
+            return system.consultLine(name);
+
+        int line = findRecord(lineDirectoryPosition, new NameKeyClass(name));
+        if(line == -1)
+            throw new NonexistentLineException();
+
+        int stationCount = buffer.getInt(line + 4);
+        List<Station> stations = new ArrayList<Station>(stationCount);
+        for(int i = 0; i < stationCount; i++)
+            stations.addLast(new StationClass(stationName(buffer.getInt(line + 8 + 4 * i)), stationIds));
+        return new SafeStationIterator(stations.iterator());
+    }
+
+    @Override
+    public SafeLineIterator<String> consultStation(String name) throws NonexistentStationException {
+        if(system != null)
+            return system.consultStation(name);
+
+        int station = findRecord(stationDirectoryPosition, new NameKeyClass(name));
+        if(station == -1)
+            throw new NonexistentStationException();
+
+        int lineCount = buffer.getInt(station + 4);
+        List<Entry<String, Line>> stationLines = new ArrayList<Entry<String, Line>>(lineCount);
+        for(int i = 0; i < lineCount; i++)
+            stationLines.addLast(new EntryClass<String, Line>(name(buffer.getInt(station + 8 + 4 * i)), null));
+        return new SafeLineIterator<String>(stationLines.iterator());
+    }
+
+    @Override
+    public void insertSchedule(String lineName, String train, List<String> stations, List<String[]> times)
+            throws NonexistentLineException, InvalidScheduleException {
+        materialize().insertSchedule(lineName, train, stations, times);
+    }
+
+    @Override
+    public void insertSchedules(String lineName, List<String> trains, List<List<String>> stations, List<List<String[]>> times)
+            throws NonexistentLineException, InvalidScheduleException {
+        materialize().insertSchedules(lineName, trains, stations, times);
+    }
+
+    @Override
+    public void insertTemplate(String lineName, String train, List<String> stations, List<String[]> times, int headway,
+                               String[] lastDeparture) throws NonexistentLineException, InvalidScheduleException {
+        materialize().insertTemplate(lineName, train, stations, times, headway, lastDeparture);
+    }
+
+    @Override
+    public void removeSchedule(String lineName, String stationName, String[] departure)
+            throws NonexistentLineException, NonexistentScheduleException {
+        materialize().removeSchedule(lineName, stationName, departure);
+    }
+
+    @Override
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName)
+            throws NonexistentLineException, NonexistentStationException {
+        if(system != null)
+            return system.consultSchedules(lineName, stationName);
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+        Station station = findStation(stationName);
+        if(station == null)
+            throw new NonexistentStationException();
+
+        return new SafeScheduleIterator<TimeTrainPairClass>(line.consultSchedules(station));
+    }
+
+    @Override
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName, int first,
+                                                                     int count)
+            throws NonexistentLineException, NonexistentStationException {
+        if(system != null)
+            return system.consultSchedules(lineName, stationName, first, count);
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+        Station station = findStation(stationName);
+        if(station == null)
+            throw new NonexistentStationException();
+
+        return new SafeScheduleIterator<TimeTrainPairClass>(line.consultSchedules(station, first, count));
+    }
+
+    @Override
+    public SafeLineIterator<TimeTrainPairClass> stationTrains(String name) throws NonexistentStationException {
+        if(system != null)
+            return system.stationTrains(name);
+        return readTrains(name, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public SafeLineIterator<TimeTrainPairClass> stationTrains(String name, int first, int count)
+            throws NonexistentStationException {
+        if(system != null)
+            return system.stationTrains(name, first, count);
+        return readTrains(name, first, count);
+    }
+
+    /**
+     * Reads a page of the trains passing through a station straight from its passages,
+     * which the snapshot keeps in the order the trains are listed
+     * @param name station name
+     * @param first position of the first train of the page, from 0
+     * @param count maximum number of trains of the page
+     * @return iterator of the trains of the page
+     * @throws NonexistentStationException if station doesn't exist
+     */
+    private SafeLineIterator<TimeTrainPairClass> readTrains(String name, int first, int count)
+            throws NonexistentStationException {
+        int station = findRecord(stationDirectoryPosition, new NameKeyClass(name));
+        if(station == -1)
+            throw new NonexistentStationException();
+        if(first < 0 || count < 0)
+            throw new InvalidPositionException();
+
+        int passages = station + 8 + 4 * buffer.getInt(station + 4);
+        int passageCount = buffer.getInt(passages);
+        int end = (int) Math.min(passageCount, (long) first + count);
+        List<Entry<TimeTrainPairClass, Line>> trains = new ArrayList<Entry<TimeTrainPairClass, Line>>(Math.max(end - first, 0));
+        for(int i = first; i < end; i++) {
+            int passage = passages + 4 + 8 * i;
+            Time time = new TimeClass(buffer.getInt(passage));
+            trains.addLast(new EntryClass<TimeTrainPairClass, Line>(new TimeTrainPairClass(time, buffer.getInt(passage + 4)), null));
+        }
+        return new SafeLineIterator<TimeTrainPairClass>(trains.iterator());
+    }
+
+    @Override
+    public SafeSchedule bestSchedule(String lineName, String departure, String destination, String[] timeOfArrival)
+            throws NonexistentLineException, NonexistentStationException, ImpossibleRouteException {
+        if(system != null)
+            return system.bestSchedule(lineName, departure, destination, timeOfArrival);
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+
+        Station depart = findStation(departure);
+        Station destin = findStation(destination);
+        Time time = new TimeClass(timeOfArrival[0], timeOfArrival[1]);
+
+        return (SafeSchedule) line.getBestSchedule(depart, destin, time);
+    }
+
+    /**
+     * Finds a line, reading it from the snapshot the first time it is needed.
+     * The line gets its own station objects, which are not shared with other lines.
+     * @param lineName name of the line to find
+     * @return the line, or null if it does not exist
+     */
+    private Line findLine(String lineName) {
+        NameKey key = new NameKeyClass(lineName);
+        Line line = lines.find(key);
+        if(line == null) {
+            int record = findRecord(lineDirectoryPosition, key);
+            if(record == -1)
+                return null;
+            line = readLine(record);
+            lines.insert(key, line);
+        }
+        return line;
+    }
+
+    /**
+     * Finds a station, as a new station object that is equal to the one of the system
+     * @param stationName name of the station to find
+     * @return the station, or null if it does not exist
+     */
+    private Station findStation(String stationName) {
+        NameKey key = new NameKeyClass(stationName);
+        int record = findRecord(stationDirectoryPosition, key);
+        return record == -1 ? null : new StationClass(name(buffer.getInt(record)), key, stationIds);
+    }
+
+    /**
+     * Reads a line, its schedules and its templates
+     * @param record position of the line in the snapshot
+     * @return the line
+     */
+    private Line readLine(int record) {
+        int position = record;
+        String name = name(buffer.getInt(position));
+
+        int stationCount = buffer.getInt(position + 4);
+        position += 8;
+        Station[] stations = new Station[stationCount];
+        List<Station> lineStations = new ArrayList<Station>(stationCount);
+        for(int i = 0; i < stationCount; i++, position += 4) {
+            stations[i] = new StationClass(stationName(buffer.getInt(position)), stationIds);
+            lineStations.addLast(stations[i]);
+        }
+        Line line = new LineClass(name, lineIds, lineStations);
+
+        int scheduleCount = buffer.getInt(position);
+        int trains = position + 4;
+        int stops = trains + 4 * scheduleCount;
+        int totalStops = 0;
+        for(int i = 0; i < scheduleCount; i++)
+            totalStops += buffer.getInt(stops + 4 * i);
+        int stopStations = stops + 4 * scheduleCount;
+        int stopTimes = stopStations + 4 * totalStops;
+
+        Dictionary<Integer, Station> stationsByIndex = new SepChainHashTable<Integer, Station>(stationCount);
+        for(int i = 0; i < stationCount; i++)
+            stationsByIndex.insert(buffer.getInt(record + 8 + 4 * i), stations[i]);
+
+        int[] scheduleTrains = new int[scheduleCount];
+        List<List<Station>> scheduleStations = new ArrayList<List<Station>>(scheduleCount);
+        List<List<Time>> scheduleTimes = new ArrayList<List<Time>>(scheduleCount);
+        int stop = 0;
+        for(int i = 0; i < scheduleCount; i++) {
+            int stopCount = buffer.getInt(stops + 4 * i);
+            List<Station> stationsOfSchedule = new ArrayList<Station>(stopCount);
+            List<Time> timesOfSchedule = new ArrayList<Time>(stopCount);
+            for(int j = 0; j < stopCount; j++, stop++) {
+                stationsOfSchedule.addLast(stationsByIndex.find(buffer.getInt(stopStations + 4 * stop)));
+                timesOfSchedule.addLast(new TimeClass(buffer.getInt(stopTimes + 4 * stop)));
+            }
+            scheduleTrains[i] = buffer.getInt(trains + 4 * i);
+            scheduleStations.addLast(stationsOfSchedule);
+            scheduleTimes.addLast(timesOfSchedule);
+        }
+        line.restoreSchedules(scheduleTrains, scheduleStations, scheduleTimes);
+
+        position = stopTimes + 4 * totalStops;
+        int templateCount = version >= 4 ? buffer.getInt(position) : 0;
+        position += 4;
+        for(int i = 0; i < templateCount; i++) {
+            int train = buffer.getInt(position);
+            int headway = buffer.getInt(position + 4);
+            int trips = buffer.getInt(position + 8);
+            int stopCount = buffer.getInt(position + 12);
+            position += 16;
+            List<Station> templateStations = new ArrayList<Station>(stopCount);
+            List<Time> templateTimes = new ArrayList<Time>(stopCount);
+            for(int j = 0; j < stopCount; j++) {
+                templateStations.addLast(stationsByIndex.find(buffer.getInt(position + 4 * j)));
+                templateTimes.addLast(new TimeClass(buffer.getInt(position + 4 * (stopCount + j))));
+            }
+            position += 8 * stopCount;
+            line.restoreTemplate(train, templateStations, templateTimes, headway, trips);
+        }
+        return line;
+    }
+
+    /**
+     * Binary searches a directory for the record of a name
+     * @param directory position of the directory
+     * @param key normalized name to find
+     * @return position of the record, or -1 if there is none
+     */
+    private int findRecord(int directory, NameKey key) {
+        int low = 0;
+        int high = buffer.getInt(directory) - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = buffer.getInt(directory + 4 + 4 * middle);
+            int comparison = new NameKeyClass(name(buffer.getInt(record))).compareTo(key);
+            if(comparison == 0)
+                return record;
+            if(comparison < 0)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the name of a station of the station table
+     * @param station index of the station
+     * @return name of the station
+     */
+    private String stationName(int station) {
+        return name(buffer.getInt(stationTablePosition + 4 + 4 * station));
+    }
+
+    /**
+     * Gets a name of the string table
+     * @param index index of the name
+     * @return the name
+     */
+    private String name(int index) {
+        int position = buffer.getInt(nameOffsetsPosition + 4 * index);
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stream over the remaining bytes of a buffer
+     */
+    private static class BufferInputStream extends InputStream {
+
+        /** Buffer being read */
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if(!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
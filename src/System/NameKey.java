@@ -0,0 +1,16 @@
+package System;
+
+import java.io.Serializable;
+
+/**
+ * Case-insensitive name of a line or station, normalized once on creation.
+ * Used as the key of the name registries and to order lines and stations.
+ */
+public interface NameKey extends Comparable<NameKey>, Serializable {
+
+    /**
+     * Gets the normalized (upper-cased) name
+     * @return normalized name
+     */
+    String getNormalized();
+}
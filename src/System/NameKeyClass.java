@@ -0,0 +1,50 @@
+package System;
+
+import java.io.Serial;
+
+public class NameKeyClass implements NameKey {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** The upper-cased name */
+    private final String normalized;
+    /** Hash code of the upper-cased name */
+    private final int hash;
+
+    /**
+     * Creates the key of a name
+     * @param name name as written by the user, in any case
+     */
+    public NameKeyClass(String name) {
+        this.normalized = name.toUpperCase();
+        this.hash = normalized.hashCode();
+    }
+
+    @Override
+    public String getNormalized() { return normalized; }
+
+    @Override
+    public int compareTo(NameKey other) {
+        return normalized.compareTo(other.getNormalized());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof NameKey))
+            return false;
+        return o.hashCode() == hash && normalized.equals(((NameKey) o).getNormalized());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+}
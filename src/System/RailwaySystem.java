@@ -16,7 +16,7 @@ public interface RailwaySystem extends Serializable {
      * @param stationNames list of station names
      * @throws ExistentLineException if line already exists
      */
-    void insertLine(String name, DoubleList<String> stationNames) throws ExistentLineException;
+    void insertLine(String name, List<String> stationNames) throws ExistentLineException;
 
     /**
      * Removes a line from the system
@@ -50,9 +50,36 @@ public interface RailwaySystem extends Serializable {
      * @throws NonexistentLineException if line doesn't exist
      * @throws InvalidScheduleException if schedule is invalid
      */
-    void insertSchedule(String lineName, String train, DoubleList<String> stations, DoubleList<String[]> times)
+    void insertSchedule(String lineName, String train, List<String> stations, List<String[]> times)
             throws NonexistentLineException, InvalidScheduleException;
 
+    /**
+     * Imports new schedules into a line at once, or none of them if any is invalid
+     * @param lineName line name
+     * @param trains train identifiers, none of them already in the line
+     * @param stations station names of each schedule
+     * @param times times of each schedule
+     * @throws NonexistentLineException if line doesn't exist
+     * @throws InvalidScheduleException if a schedule is invalid, or a train repeats or is already in the line
+     */
+    void insertSchedules(String lineName, List<String> trains, List<List<String>> stations, List<List<String[]>> times)
+            throws NonexistentLineException, InvalidScheduleException;
+
+    /**
+     * Inserts a headway template in a line, whose trips depart every headway from the departure
+     * of the first one up to a last departure
+     * @param lineName line name
+     * @param train train running the first trip; each next trip is run by the next train
+     * @param stations station names of the trips
+     * @param times times of the first trip
+     * @param headway minutes between two consecutive departures
+     * @param lastDeparture latest departure of a trip
+     * @throws NonexistentLineException if line doesn't exist
+     * @throws InvalidScheduleException if a trip or the headway is invalid, or a train is already in the line
+     */
+    void insertTemplate(String lineName, String train, List<String> stations, List<String[]> times, int headway,
+                        String[] lastDeparture) throws NonexistentLineException, InvalidScheduleException;
+
     /**
      * Removes a schedule from a line
      * @param lineName line name
@@ -72,7 +99,20 @@ public interface RailwaySystem extends Serializable {
      * @throws NonexistentLineException if line doesn't exist
      * @throws NonexistentStationException if station doesn't exist
      */
-    SafeScheduleIterator<Time> consultSchedules(String lineName, String stationName)
+    SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName)
+            throws NonexistentLineException, NonexistentStationException;
+
+    /**
+     * Gets a page of the schedules departing from a station in a line, in the order of consultSchedules
+     * @param lineName line name
+     * @param stationName station name
+     * @param first position of the first schedule of the page, from 0
+     * @param count maximum number of schedules of the page
+     * @return iterator of schedules, with no schedules if first is past the last one
+     * @throws NonexistentLineException if line doesn't exist
+     * @throws NonexistentStationException if station doesn't exist
+     */
+    SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName, int first, int count)
             throws NonexistentLineException, NonexistentStationException;
 
     /**
@@ -83,6 +123,17 @@ public interface RailwaySystem extends Serializable {
      */
     SafeLineIterator<TimeTrainPairClass> stationTrains(String name) throws NonexistentStationException;
 
+    /**
+     * Gets a page of the trains passing through a station, in the order of stationTrains
+     * @param name station name
+     * @param first position of the first train of the page, from 0
+     * @param count maximum number of trains of the page
+     * @return iterator of train information, with no trains if first is past the last one
+     * @throws NonexistentStationException if station doesn't exist
+     */
+    SafeLineIterator<TimeTrainPairClass> stationTrains(String name, int first, int count)
+            throws NonexistentStationException;
+
     /**
      * Finds best schedule between stations closest to given time
      * @param lineName line name
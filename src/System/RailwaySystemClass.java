@@ -11,28 +11,38 @@ public class RailwaySystemClass implements RailwaySystem {
     static final long serialVersionUID = 0L;
 
     /** Collection of all lines in the system, indexed by name */
-    protected Dictionary<String, Line> lines;
+    protected Dictionary<NameKey, Line> lines;
     /** Collection of all stations in the system, indexed by name */
-    protected Dictionary<String, Station> stations;
+    protected Dictionary<NameKey, Station> stations;
+    /** Names of the lines removed since the system was last marked clean, indexed by name */
+    protected Dictionary<NameKey, String> removedLines;
+    /** Identifiers of the stations, interned from their names */
+    protected SymbolTable stationIds;
+    /** Identifiers of the lines, interned from their names */
+    protected SymbolTable lineIds;
 
     /**
      * Creates new empty railway system
      */
     public RailwaySystemClass() {
-        lines = new SepChainHashTable<String, Line>();
-        stations = new SepChainHashTable<String, Station>();
+        lines = new LinearProbingHashTable<NameKey, Line>();
+        stations = new LinearProbingHashTable<NameKey, Station>();
+        removedLines = new LinearProbingHashTable<NameKey, String>();
+        stationIds = new SymbolTableClass();
+        lineIds = new SymbolTableClass();
     }
 
     @Override
-    public void insertLine(String name, DoubleList<String> stationNames)
+    public void insertLine(String name, List<String> stationNames)
             throws ExistentLineException {
-        if(existsLine(name))
+        NameKey key = new NameKeyClass(name);
+        if(lines.find(key) != null)
             throw new ExistentLineException();
 
-        DoubleList<Station> stationsList = arrangeStations(stationNames);
+        List<Station> stationsList = arrangeStations(stationNames);
 
-        Line line = new LineClass(name, stationsList);
-        lines.insert(name.toUpperCase(), line);
+        Line line = new LineClass(name, key, lineIds, stationsList);
+        lines.insert(key, line);
         Iterator<Station> it = stationsList.iterator();
 
         while(it.hasNext())
@@ -42,10 +52,12 @@ public class RailwaySystemClass implements RailwaySystem {
     @Override
     public void removeLine(String name) throws NonexistentLineException {
 
-        if(!existsLine(name))
+        Line line = lines.remove(new NameKeyClass(name));
+        if(line == null)
             throw new NonexistentLineException();
 
-        Line line = lines.remove(name.toUpperCase());
+        removedLines.insert(line.getKey(), line.getName());
+        line.removeSchedules();
         Iterator<Station> it = line.getStationsIt();
 
         while(it.hasNext()) {
@@ -53,117 +65,181 @@ public class RailwaySystemClass implements RailwaySystem {
             station.removeLine(line);
 
             if(station.isAbandoned())
-                stations.remove(station.getName().toUpperCase());
+                stations.remove(station.getKey());
         }
     }
 
     @Override
     public SafeStationIterator consultLine(String name) throws NonexistentLineException {
-        if(!existsLine(name))
+        Line line = findLine(name);
+        if(line == null)
             throw new NonexistentLineException();
-        return new SafeStationIterator(lines.find(name.toUpperCase()).getStationsIt());
+        return new SafeStationIterator(line.getStationsIt());
     }
 
     @Override
     public SafeLineIterator<String> consultStation(String name) throws NonexistentStationException {
-        if(isNonexistentStation(name))
+        Station station = findStation(name);
+        if(station == null)
             throw new NonexistentStationException();
 
-        Station station = stations.find(name.toUpperCase());
         Iterator<Entry<String, Line>> originalIterator = station.consultLines();
 
         return new SafeLineIterator<String>(originalIterator);
     }
 
     @Override
-    public void insertSchedule(String lineName, String train, DoubleList<String> stations, DoubleList<String[]> times)
+    public void insertSchedule(String lineName, String train, List<String> stations, List<String[]> times)
             throws NonexistentLineException, InvalidScheduleException {
 
-        if(!existsLine(lineName))
+        Line line = findLine(lineName);
+        if(line == null)
             throw new NonexistentLineException();
 
-        Line line = lines.find(lineName.toUpperCase());
-
-        DoubleList<Station> scheduleStations = extractStations(stations);
-        DoubleList<Time> scheduleTimes = extractTimes(times);
+        List<Station> scheduleStations = extractStations(stations);
+        List<Time> scheduleTimes = extractTimes(times);
         line.insertSchedule(train, scheduleStations, scheduleTimes);
 
     }
 
+    @Override
+    public void insertSchedules(String lineName, List<String> trains, List<List<String>> stations, List<List<String[]>> times)
+            throws NonexistentLineException, InvalidScheduleException {
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+
+        List<List<Station>> scheduleStations = new ArrayList<>(stations.size());
+        List<List<Time>> scheduleTimes = new ArrayList<>(times.size());
+        for(int i = 0; i < trains.size(); i++) {
+            scheduleStations.addLast(extractStations(stations.get(i)));
+            scheduleTimes.addLast(extractTimes(times.get(i)));
+        }
+        line.insertSchedules(trains, scheduleStations, scheduleTimes);
+    }
+
+    @Override
+    public void insertTemplate(String lineName, String train, List<String> stations, List<String[]> times, int headway,
+                               String[] lastDeparture) throws NonexistentLineException, InvalidScheduleException {
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+
+        List<Station> scheduleStations = extractStations(stations);
+        List<Time> scheduleTimes = extractTimes(times);
+        line.insertTemplate(train, scheduleStations, scheduleTimes, headway,
+                new TimeClass(lastDeparture[0], lastDeparture[1]));
+    }
+
     @Override
     public void removeSchedule(String lineName, String stationName, String[] departure)
             throws NonexistentLineException, NonexistentScheduleException {
-        if(!existsLine(lineName))
+        Line line = findLine(lineName);
+        if(line == null)
             throw new NonexistentLineException();
 
-        Line line = lines.find(lineName.toUpperCase());
-
-        if(isNonexistentStation(stationName))
+        Station station = findStation(stationName);
+        if(station == null)
             throw new NonexistentScheduleException();
 
-        Station station = stations.find(stationName.toUpperCase());
         Time time = new TimeClass(departure[0], departure[1]);
 
         line.removeSchedule(station, time);
     }
 
     @Override
-    public SafeScheduleIterator<Time> consultSchedules(String lineName, String stationName)
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName)
             throws NonexistentLineException, NonexistentStationException {
 
-        if(!existsLine(lineName))
+        Line line = findLine(lineName);
+        if(line == null)
             throw new NonexistentLineException();
-        if(isNonexistentStation(stationName))
+        Station station = findStation(stationName);
+        if(station == null)
             throw new NonexistentStationException();
 
-        Line line = lines.find(lineName.toUpperCase());
-        Station station = stations.find(stationName.toUpperCase());
+        return new SafeScheduleIterator<TimeTrainPairClass>(line.consultSchedules(station));
+    }
 
-        return new SafeScheduleIterator<Time>(line.consultSchedules(station));
+    @Override
+    public SafeScheduleIterator<TimeTrainPairClass> consultSchedules(String lineName, String stationName, int first,
+                                                                     int count)
+            throws NonexistentLineException, NonexistentStationException {
+
+        Line line = findLine(lineName);
+        if(line == null)
+            throw new NonexistentLineException();
+        Station station = findStation(stationName);
+        if(station == null)
+            throw new NonexistentStationException();
+
+        return new SafeScheduleIterator<TimeTrainPairClass>(line.consultSchedules(station, first, count));
     }
 
     @Override
     public SafeLineIterator<TimeTrainPairClass> stationTrains(String name) throws NonexistentStationException {
-        if(isNonexistentStation(name))
+        Station station = findStation(name);
+        if(station == null)
             throw new NonexistentStationException();
-        Station station = stations.find(name.toUpperCase());
         Iterator<Entry<TimeTrainPairClass, Line>> originalIterator = station.consultTrains();
 
         return new SafeLineIterator<TimeTrainPairClass>(originalIterator);
     }
 
+    @Override
+    public SafeLineIterator<TimeTrainPairClass> stationTrains(String name, int first, int count)
+            throws NonexistentStationException {
+        Station station = findStation(name);
+        if(station == null)
+            throw new NonexistentStationException();
+
+        return new SafeLineIterator<TimeTrainPairClass>(station.consultTrains(first, count));
+    }
+
     @Override
     public SafeSchedule bestSchedule(String lineName, String departure, String destination, String[] timeOfArrival)
             throws NonexistentLineException, NonexistentStationException, ImpossibleRouteException {
 
-        if(!existsLine(lineName))
+        Line line = findLine(lineName);
+        if(line == null)
             throw new NonexistentLineException();
 
-        Line line = lines.find(lineName.toUpperCase());
-        Station depart = stations.find(departure.toUpperCase());
-        Station destin = stations.find(destination.toUpperCase());
+        Station depart = findStation(departure);
+        Station destin = findStation(destination);
         Time time = new TimeClass(timeOfArrival[0], timeOfArrival[1]);
 
         return (SafeSchedule) line.getBestSchedule(depart, destin, time);
     }
 
+    /**
+     * Marks every line as saved and forgets the removed lines,
+     * so that only later changes are written to a delta snapshot
+     */
+    public void markClean() {
+        Iterator<Entry<NameKey, Line>> it = lines.iterator();
+        while(it.hasNext())
+            it.next().getValue().markClean();
+        removedLines = new LinearProbingHashTable<NameKey, String>();
+    }
+
     /**
      * Extracts station objects from array of strings containing station information
-     * @param stationNames DoubleList of string arrays containing station names
-     * @return DoubleList of Station objects
+     * @param stationNames list of string arrays containing station names
+     * @return list of Station objects
      * @throws InvalidScheduleException if a station doesn't exist
      */
-    private DoubleList<Station> extractStations(DoubleList<String> stationNames)
+    private List<Station> extractStations(List<String> stationNames)
             throws InvalidScheduleException {
 
-        DoubleList<Station> stationsList = new DoubleList<>();
+        List<Station> stationsList = new ArrayList<>(stationNames.size());
         Iterator<String> it = stationNames.iterator();
 
         while(it.hasNext()) {
-            String name = it.next();
-            if(isNonexistentStation(name))
+            Station station = findStation(it.next());
+            if(station == null)
                 throw new InvalidScheduleException();
-            Station station = this.stations.find(name.toUpperCase());
             stationsList.addLast(station);
         }
         return stationsList;
@@ -171,12 +247,12 @@ public class RailwaySystemClass implements RailwaySystem {
 
     /**
      * Extracts time objects from array of strings containing schedule information
-     * @param times DoubleList of string arrays containing schedule times
-     * @return DoubleList of Time objects
+     * @param times list of string arrays containing schedule times
+     * @return list of Time objects
      */
-    private DoubleList<Time> extractTimes(DoubleList<String[]> times) {
+    private List<Time> extractTimes(List<String[]> times) {
 
-        DoubleList<Time> timesList = new DoubleList<>();
+        List<Time> timesList = new ArrayList<>(times.size());
         Iterator<String[]> it = times.iterator();
 
         while(it.hasNext()) {
@@ -187,39 +263,40 @@ public class RailwaySystemClass implements RailwaySystem {
     }
 
     /**
-     * Checks if a line with the given name exists
-     * @param lineName name of the line to check
-     * @return true if line exists, false otherwise
+     * Finds the line with the given name, normalizing the name once
+     * @param lineName name of the line to find
+     * @return the line, or null if it does not exist
      */
-    private boolean existsLine(String lineName) {
-        return lines.find(lineName.toUpperCase()) != null;
+    private Line findLine(String lineName) {
+        return lines.find(new NameKeyClass(lineName));
     }
 
     /**
-     * Checks if a station with the given name does not exist
-     * @param stationName name of the station to check
-     * @return true if station does not exist, false otherwise
+     * Finds the station with the given name, normalizing the name once
+     * @param stationName name of the station to find
+     * @return the station, or null if it does not exist
      */
-    private boolean isNonexistentStation(String stationName) {
-        return this.stations.find(stationName.toUpperCase()) == null;
+    private Station findStation(String stationName) {
+        return this.stations.find(new NameKeyClass(stationName));
     }
 
     /**
      * Creates or retrieves station objects for a list of station names
      * @param stationsNames list of station names to process
-     * @return DoubleList of Station objects corresponding to the names
+     * @return list of Station objects corresponding to the names
      */
-    private DoubleList<Station> arrangeStations(DoubleList<String> stationsNames) {
-        DoubleList<Station> stationsList = new DoubleList<>();
+    private List<Station> arrangeStations(List<String> stationsNames) {
+        List<Station> stationsList = new ArrayList<>(stationsNames.size());
         Iterator<String> it = stationsNames.iterator();
 
         while(it.hasNext()) {
             String sName = it.next();
-            Station station = this.stations.find(sName.toUpperCase());
+            NameKey key = new NameKeyClass(sName);
+            Station station = this.stations.find(key);
 
             if(station == null) {
-                station = new StationClass(sName);
-                this.stations.insert(sName.toUpperCase(), station);
+                station = new StationClass(sName, key, stationIds);
+                this.stations.insert(key, station);
             }
             stationsList.addLast(station);
         }
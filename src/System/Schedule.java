@@ -1,5 +1,7 @@
 package System;
 
+import dataStructures.Iterator;
+
 import java.io.Serializable;
 
 /**
@@ -45,12 +47,37 @@ public interface Schedule extends Comparable<Schedule>, Serializable {
      */
     int getTrain();
 
+    /**
+     * Gets the sequence of stations the train stops at
+     * @return trip pattern of the schedule
+     */
+    TripPattern getPattern();
+
     /**
      * Gets iterator over stations in schedule
      * @return iterator of stations
      */
     SafeStationIterator getStationIt();
 
+    /**
+     * Gets iterator over stations in schedule, in travel order
+     * @return iterator of stations
+     */
+    Iterator<Station> getStationsIt();
+
+    /**
+     * Gets iterator over the times of the stops in schedule, in travel order
+     * @return iterator of times, one per station of getStationsIt
+     */
+    Iterator<Time> getTimesIt();
+
+    /**
+     * Gets the position of a station in schedule
+     * @param station station to look up
+     * @return position of the station, or -1 if the train does not stop there
+     */
+    int getStationOrdinal(Station station);
+
     /**
      * Checks if station exists in schedule
      * @param station station to check
@@ -60,8 +87,9 @@ public interface Schedule extends Comparable<Schedule>, Serializable {
 
     /**
      * Removes this schedule from all its stations
+     * @param line line of the schedule
      */
-    void deleteSchedule();
+    void deleteSchedule(Line line);
 
     /**
      * Checks if stations are in correct order in schedule
@@ -9,19 +9,33 @@ public class ScheduleClass implements Schedule, SafeSchedule {
     @Serial
     static final long serialVersionUID = 0L;
 
-    /** Maps stations to their times in this schedule */
-    protected OrderedDictionary<Station, Time> schedule;
+    /** Maps station identifiers to their times in this schedule */
+    protected OrderedDictionary<Integer, Time> schedule;
     /** Maintains the order of stations in this schedule */
     protected List<Station> orderedStations;
+    /** Times of the stops, in the order of orderedStations, even when a station repeats */
+    protected List<Time> orderedTimes;
+    /** Position of each station in this schedule, by station identifier */
+    protected Dictionary<Integer, Integer> stationOrdinals;
     /** Unique identifier for the train running this schedule */
     protected int train;
 
+    /**
+     * Creates a new empty schedule
+     * @param stops expected number of stations in the schedule
+     */
+    public ScheduleClass(int stops) {
+        this.schedule = new AVLTree<Integer, Time>();
+        this.orderedStations = new ArrayList<Station>(stops);
+        this.orderedTimes = new ArrayList<Time>(stops);
+        this.stationOrdinals = new SepChainHashTable<Integer, Integer>(stops);
+    }
+
     /**
      * Creates a new empty schedule
      */
     public ScheduleClass() {
-        this.schedule = new AVLTree<Station, Time>();
-        this.orderedStations = new DoubleList<Station>();
+        this(ArrayList.DEFAULT_CAPACITY);
     }
 
     @Override
@@ -31,8 +45,11 @@ public class ScheduleClass implements Schedule, SafeSchedule {
 
     @Override
     public void addSchedule(Station station, Time time) {
+        if(stationOrdinals.find(station.getId()) == null)
+            stationOrdinals.insert(station.getId(), orderedStations.size());
         orderedStations.addLast(station);
-        schedule.insert(orderedStations.getLast(), time);
+        orderedTimes.addLast(time);
+        schedule.insert(station.getId(), time);
     }
 
     @Override
@@ -42,12 +59,12 @@ public class ScheduleClass implements Schedule, SafeSchedule {
 
     @Override
     public Time getDepartureTime() {
-        return schedule.find(getDepartureStation());
+        return schedule.find(getDepartureStation().getId());
     }
 
     @Override
     public Time getStationTime(SafeStation station) {
-        return schedule.find((Station) station);
+        return schedule.find(((Station) station).getId());
     }
 
     @Override
@@ -55,30 +72,57 @@ public class ScheduleClass implements Schedule, SafeSchedule {
         return train;
     }
 
+    /**
+     * Gets the sequence of stations the train stops at, as a new pattern that is not shared
+     * @return trip pattern of the schedule
+     */
+    @Override
+    public TripPattern getPattern() {
+        return new TripPatternClass(orderedStations, orderedStations.size());
+    }
+
     @Override
     public SafeStationIterator getStationIt() {
         return new SafeStationIterator(orderedStations.iterator());
     }
 
+    @Override
+    public Iterator<Station> getStationsIt() {
+        return orderedStations.iterator();
+    }
+
+    @Override
+    public Iterator<Time> getTimesIt() {
+        return orderedTimes.iterator();
+    }
+
     @Override
     public Time getStationTime(Station station) {
-        return schedule.find(station);
+        return schedule.find(station.getId());
+    }
+
+    @Override
+    public int getStationOrdinal(Station station) {
+        Integer ordinal = stationOrdinals.find(station.getId());
+        return ordinal == null ? -1 : ordinal;
     }
 
     @Override
     public boolean existsStation(Station station) {
-        return orderedStations.find(station) != -1;
+        return getStationOrdinal(station) != -1;
     }
 
     @Override
-    public void deleteSchedule() {
-        Iterator<Station> it = orderedStations.iterator();
-        while(it.hasNext()) it.next().removeTrain(train);
+    public void deleteSchedule(Line line) {
+        Iterator<Station> stationsIt = orderedStations.iterator();
+        Iterator<Time> timesIt = orderedTimes.iterator();
+        while(stationsIt.hasNext())
+            stationsIt.next().removeTrain(train, timesIt.next(), line);
     }
 
     @Override
     public boolean isRightOrder(Station departure, Station arrival) {
-        return orderedStations.find(departure) < orderedStations.find(arrival);
+        return getStationOrdinal(departure) < getStationOrdinal(arrival);
     }
     
     @Override
@@ -0,0 +1,204 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.NonexistentLineException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a railway system from the binary snapshot format written by SnapshotWriter.
+ * Schedules are restored without being validated again, since they were valid when written.
+ * Every version of the format is read; the indexes at the end of the newer versions are skipped.
+ * Delta snapshots are applied on the system they were written from.
+ */
+public class SnapshotReader {
+
+    /** Stream the snapshot is read from */
+    private final DataInputStream in;
+    /** Number of the last journal record included in the snapshot read */
+    private long sequence;
+
+    /**
+     * Creates a reader for the given stream
+     * @param in stream to read from; it is not closed by the reader
+     */
+    public SnapshotReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /**
+     * Reads a railway system
+     * @return the railway system in the snapshot
+     * @throws StreamCorruptedException if the stream does not hold a snapshot of a known version
+     * @throws IOException if the stream cannot be read
+     */
+    public RailwaySystem read() throws IOException {
+        if(in.readInt() != SnapshotWriter.MAGIC)
+            throw new StreamCorruptedException("Not a railway system snapshot");
+        int version = in.readInt();
+        if(version < 1 || version > SnapshotWriter.VERSION)
+            throw new StreamCorruptedException("Unsupported snapshot version " + version);
+        sequence = version >= 3 ? in.readLong() : 0;
+
+        String[] names = new String[in.readInt()];
+        for(int i = 0; i < names.length; i++)
+            names[i] = version == 1 ? in.readUTF() : readName();
+
+        RailwaySystemClass system = new RailwaySystemClass();
+
+        Station[] stations = new Station[in.readInt()];
+        for(int i = 0; i < stations.length; i++) {
+            stations[i] = new StationClass(names[in.readInt()], system.stationIds);
+            system.stations.insert(stations[i].getKey(), stations[i]);
+        }
+
+        int lineCount = in.readInt();
+        for(int i = 0; i < lineCount; i++) {
+            Line line = readLine(names, stations, system.lineIds, version >= 4);
+            system.lines.insert(line.getKey(), line);
+        }
+        system.markClean();
+        return system;
+    }
+
+    /**
+     * Reads a delta snapshot and applies it on the system it was written from.
+     * Removed and replaced lines are removed first, so that the stations they abandon
+     * are removed before the changed lines are added again.
+     * @param sys railway system to change, loaded from the snapshot and deltas before this one
+     * @throws StreamCorruptedException if the stream does not hold a delta snapshot of a known version
+     * @throws IOException if the stream cannot be read
+     */
+    public void readDelta(RailwaySystem sys) throws IOException {
+        if(in.readInt() != SnapshotWriter.DELTA_MAGIC)
+            throw new StreamCorruptedException("Not a railway system delta snapshot");
+        int version = in.readInt();
+        if(version < 1 || version > SnapshotWriter.DELTA_VERSION)
+            throw new StreamCorruptedException("Unsupported delta snapshot version " + version);
+        sequence = in.readLong();
+
+        String[] names = new String[in.readInt()];
+        for(int i = 0; i < names.length; i++)
+            names[i] = readName();
+
+        RailwaySystemClass system = (RailwaySystemClass) sys;
+
+        int removedCount = in.readInt();
+        for(int i = 0; i < removedCount; i++) {
+            try {
+                system.removeLine(names[in.readInt()]);
+            } catch (NonexistentLineException e) {}
+        }
+
+        Station[] stations = new Station[in.readInt()];
+        for(int i = 0; i < stations.length; i++) {
+            String name = names[in.readInt()];
+            NameKey key = new NameKeyClass(name);
+            stations[i] = system.stations.find(key);
+            if(stations[i] == null) {
+                stations[i] = new StationClass(name, key, system.stationIds);
+                system.stations.insert(key, stations[i]);
+            }
+        }
+
+        int lineCount = in.readInt();
+        for(int i = 0; i < lineCount; i++) {
+            Line line = readLine(names, stations, system.lineIds, version >= 2);
+            system.lines.insert(line.getKey(), line);
+        }
+        system.markClean();
+    }
+
+    /**
+     * Gets the number of the last journal record included in the snapshot or delta read
+     * @return sequence number, 0 if the snapshot includes no journal record
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    private String readName() throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a line, adding it to its stations, and restores its schedules and templates
+     * @param names string table of the snapshot
+     * @param stations station table of the snapshot
+     * @param lineIds symbol table of the lines of the system
+     * @param templates true if the line is written with its templates
+     * @return the line read
+     * @throws IOException if the stream cannot be read
+     */
+    private Line readLine(String[] names, Station[] stations, SymbolTable lineIds, boolean templates)
+            throws IOException {
+        String name = names[in.readInt()];
+
+        int stationCount = in.readInt();
+        List<Station> lineStations = new ArrayList<Station>(stationCount);
+        for(int i = 0; i < stationCount; i++)
+            lineStations.addLast(stations[in.readInt()]);
+
+        Line line = new LineClass(name, lineIds, lineStations);
+        Iterator<Station> stationsIt = lineStations.iterator();
+        while(stationsIt.hasNext())
+            stationsIt.next().addLine(line);
+
+        int[] trains = new int[in.readInt()];
+        for(int i = 0; i < trains.length; i++)
+            trains[i] = in.readInt();
+
+        int[] stops = new int[trains.length];
+        int totalStops = 0;
+        for(int i = 0; i < stops.length; i++) {
+            stops[i] = in.readInt();
+            totalStops += stops[i];
+        }
+
+        Station[] stopStations = new Station[totalStops];
+        for(int i = 0; i < totalStops; i++)
+            stopStations[i] = stations[in.readInt()];
+
+        Time[] stopTimes = new Time[totalStops];
+        for(int i = 0; i < totalStops; i++)
+            stopTimes[i] = new TimeClass(in.readInt());
+
+        List<List<Station>> scheduleStations = new ArrayList<List<Station>>(trains.length);
+        List<List<Time>> scheduleTimes = new ArrayList<List<Time>>(trains.length);
+        int stop = 0;
+        for(int i = 0; i < trains.length; i++) {
+            List<Station> stationsOfSchedule = new ArrayList<Station>(stops[i]);
+            List<Time> timesOfSchedule = new ArrayList<Time>(stops[i]);
+            for(int j = 0; j < stops[i]; j++, stop++) {
+                stationsOfSchedule.addLast(stopStations[stop]);
+                timesOfSchedule.addLast(stopTimes[stop]);
+            }
+            scheduleStations.addLast(stationsOfSchedule);
+            scheduleTimes.addLast(timesOfSchedule);
+        }
+        line.restoreSchedules(trains, scheduleStations, scheduleTimes);
+
+        int templateCount = templates ? in.readInt() : 0;
+        for(int i = 0; i < templateCount; i++) {
+            int train = in.readInt();
+            int headway = in.readInt();
+            int trips = in.readInt();
+            int stopCount = in.readInt();
+            List<Station> templateStations = new ArrayList<Station>(stopCount);
+            for(int j = 0; j < stopCount; j++)
+                templateStations.addLast(stations[in.readInt()]);
+            List<Time> templateTimes = new ArrayList<Time>(stopCount);
+            for(int j = 0; j < stopCount; j++)
+                templateTimes.addLast(new TimeClass(in.readInt()));
+            line.restoreTemplate(train, templateStations, templateTimes, headway, trips);
+        }
+        return line;
+    }
+}
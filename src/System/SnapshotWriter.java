@@ -0,0 +1,406 @@
+package System;
+
+import dataStructures.*;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a railway system in the binary snapshot format read by SnapshotReader
+ * and, in place, by MappedRailwaySystemClass.
+ * <p>
+ * Layout (all numbers are big-endian ints, offsets are from the start of the file):
+ * <pre>
+ * MAGIC VERSION sequence         (sequence is a long)
+ * nameCount    name*            (string table, name = byteCount UTF-8 bytes)
+ * stationCount nameIndex*       (station table)
+ * lineCount    line*
+ * line = nameIndex stationCount stationIndex*
+ *        scheduleCount train* stopCount* stopStation* stopMinutes*
+ *        templateCount template*
+ * template = train headway tripCount stopCount stopStation* stopMinutes*
+ * nameOffset*                   (offset of each name of the string table)
+ * station*
+ * station = nameIndex lineCount lineNameIndex* passageCount (minutes train)*
+ * lineCount    lineOffset*      (lines ordered by normalized name)
+ * stationCount stationOffset*   (stations ordered by normalized name)
+ * nameOffsetsPosition stationTablePosition lineDirectoryPosition stationDirectoryPosition MAGIC
+ * </pre>
+ * Schedules are written column by column: first every train number, then every stop count,
+ * then the station and time of every stop of every schedule.
+ * A headway template is written as its first trip, its headway and its number of trips.
+ * Everything after the lines only indexes them, so that queries can be answered
+ * without reading the whole file; a station's lines are ordered by name and its passages by time.
+ * The sequence is the number of the last journal record included in the snapshot.
+ * Version 3 snapshots have no templates, version 2 snapshots also have no sequence,
+ * and version 1 snapshots also end after the lines and store names in modified UTF-8.
+ * <p>
+ * A delta snapshot holds only what changed since the system was last marked clean:
+ * <pre>
+ * DELTA_MAGIC DELTA_VERSION sequence
+ * nameCount    name*
+ * removedCount nameIndex*       (lines removed, or replaced by a line below)
+ * stationCount nameIndex*       (stations of the lines below)
+ * lineCount    line*            (lines changed, in the same layout)
+ * </pre>
+ * Version 1 delta snapshots have no templates.
+ * Stations are not written on their own, since their lines and passages follow from the lines.
+ */
+public class SnapshotWriter {
+
+    /** First bytes of every snapshot ("RSYS") */
+    static final int MAGIC = 0x52535953;
+    /** Version of the snapshot format written */
+    static final int VERSION = 4;
+    /** First version of the format with the indexes read in place */
+    static final int FIRST_MAPPED_VERSION = 2;
+    /** Number of bytes of the trailer at the end of the file */
+    static final int TRAILER_SIZE = 5 * 4;
+    /** First bytes of every delta snapshot ("RSYD") */
+    static final int DELTA_MAGIC = 0x52535944;
+    /** Version of the delta snapshot format written */
+    static final int DELTA_VERSION = 2;
+
+    /** Stream the snapshot is written to */
+    private final DataOutputStream out;
+    /** Position of each name in the string table */
+    private final Dictionary<String, Integer> nameIndexes;
+    /** Names in the order of the string table */
+    private final List<String> names;
+    /** Position of each station in the station table, by station identifier */
+    private final Dictionary<Integer, Integer> stationIndexes;
+
+    /**
+     * Creates a writer for the given stream
+     * @param out stream to write to; it is not closed by the writer
+     */
+    public SnapshotWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.nameIndexes = new LinearProbingHashTable<String, Integer>();
+        this.names = new ArrayList<String>();
+        this.stationIndexes = new LinearProbingHashTable<Integer, Integer>();
+    }
+
+    /**
+     * Writes a snapshot of a railway system that includes no journal record
+     * @param sys railway system to write
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(RailwaySystem sys) throws IOException {
+        write(sys, 0);
+    }
+
+    /**
+     * Writes a snapshot of a railway system.
+     * A mapped system that has not been changed is copied from its snapshot.
+     * @param sys railway system to write
+     * @param sequence number of the last journal record included in the system
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(RailwaySystem sys, long sequence) throws IOException {
+        if(sys instanceof MappedRailwaySystemClass) {
+            MappedRailwaySystemClass mapped = (MappedRailwaySystemClass) sys;
+            if(mapped.isMapped() && mapped.getSequence() == sequence) {
+                mapped.copyTo(out);
+                return;
+            }
+            sys = mapped.materialize();
+        }
+        RailwaySystemClass system = (RailwaySystemClass) sys;
+
+        List<Station> stations = collectStations(system);
+        List<Line> lines = collectLines(system);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sequence);
+
+        int[] nameOffsets = writeNames();
+
+        int stationTablePosition = out.size();
+        writeStationTable(stations);
+
+        OrderedDictionary<NameKey, Integer> lineDirectory = new AVLTree<NameKey, Integer>();
+        out.writeInt(lines.size());
+        Iterator<Line> linesIt = lines.iterator();
+        while(linesIt.hasNext()) {
+            Line line = linesIt.next();
+            lineDirectory.insert(line.getKey(), out.size());
+            writeLine(line);
+        }
+
+        int nameOffsetsPosition = out.size();
+        for(int i = 0; i < nameOffsets.length; i++)
+            out.writeInt(nameOffsets[i]);
+
+        OrderedDictionary<NameKey, Integer> stationDirectory = new AVLTree<NameKey, Integer>();
+        Iterator<Station> stationsIt = stations.iterator();
+        while(stationsIt.hasNext()) {
+            Station station = stationsIt.next();
+            stationDirectory.insert(station.getKey(), out.size());
+            writeStation(station);
+        }
+
+        int lineDirectoryPosition = out.size();
+        writeDirectory(lineDirectory);
+        int stationDirectoryPosition = out.size();
+        writeDirectory(stationDirectory);
+
+        out.writeInt(nameOffsetsPosition);
+        out.writeInt(stationTablePosition);
+        out.writeInt(lineDirectoryPosition);
+        out.writeInt(stationDirectoryPosition);
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Writes a delta snapshot with the lines changed and removed since the system was last marked clean.
+     * Applied in order on the snapshot the system was loaded from, and on the deltas written since,
+     * it gives back the current system.
+     * @param sys railway system to write
+     * @param sequence number of the last journal record included in the system
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeDelta(RailwaySystem sys, long sequence) throws IOException {
+        if(sys instanceof MappedRailwaySystemClass)
+            sys = ((MappedRailwaySystemClass) sys).materialize();
+        RailwaySystemClass system = (RailwaySystemClass) sys;
+
+        List<String> removed = new ArrayList<String>(system.removedLines.size());
+        Iterator<Entry<NameKey, String>> removedIt = system.removedLines.iterator();
+        while(removedIt.hasNext()) {
+            String name = removedIt.next().getValue();
+            removed.addLast(name);
+            addName(name);
+        }
+
+        List<Line> lines = new ArrayList<Line>();
+        List<Station> stations = new ArrayList<Station>();
+        Iterator<Entry<NameKey, Line>> linesIt = system.lines.iterator();
+        while(linesIt.hasNext()) {
+            Line line = linesIt.next().getValue();
+            if(!line.isDirty())
+                continue;
+            lines.addLast(line);
+            addName(line.getName());
+            if(system.removedLines.find(line.getKey()) == null)
+                removed.addLast(line.getName());
+
+            Iterator<Station> stationsIt = line.getStationsIt();
+            while(stationsIt.hasNext()) {
+                Station station = stationsIt.next();
+                if(stationIndexes.find(station.getId()) == null) {
+                    stationIndexes.insert(station.getId(), stations.size());
+                    stations.addLast(station);
+                    addName(station.getName());
+                }
+            }
+        }
+
+        out.writeInt(DELTA_MAGIC);
+        out.writeInt(DELTA_VERSION);
+        out.writeLong(sequence);
+        writeNames();
+
+        out.writeInt(removed.size());
+        Iterator<String> removedNamesIt = removed.iterator();
+        while(removedNamesIt.hasNext())
+            out.writeInt(nameIndexes.find(removedNamesIt.next()));
+
+        writeStationTable(stations);
+
+        out.writeInt(lines.size());
+        Iterator<Line> changedIt = lines.iterator();
+        while(changedIt.hasNext())
+            writeLine(changedIt.next());
+        out.flush();
+    }
+
+    /**
+     * Writes the string table
+     * @return offset of each name
+     * @throws IOException if the stream cannot be written
+     */
+    private int[] writeNames() throws IOException {
+        int[] nameOffsets = new int[names.size()];
+        out.writeInt(names.size());
+        for(int i = 0; i < names.size(); i++) {
+            nameOffsets[i] = out.size();
+            byte[] bytes = names.get(i).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        return nameOffsets;
+    }
+
+    /**
+     * Writes the station table, as the name of each station
+     * @param stations stations in the order of the table
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeStationTable(List<Station> stations) throws IOException {
+        out.writeInt(stations.size());
+        Iterator<Station> stationsIt = stations.iterator();
+        while(stationsIt.hasNext())
+            out.writeInt(nameIndexes.find(stationsIt.next().getName()));
+    }
+
+    /**
+     * Numbers the stations of the system, adding their names to the string table
+     * @param system railway system being written
+     * @return stations in the order of the station table
+     */
+    private List<Station> collectStations(RailwaySystemClass system) {
+        List<Station> stations = new ArrayList<Station>(system.stations.size());
+        Iterator<Entry<NameKey, Station>> it = system.stations.iterator();
+
+        while(it.hasNext()) {
+            Station station = it.next().getValue();
+            stationIndexes.insert(station.getId(), stations.size());
+            stations.addLast(station);
+            addName(station.getName());
+        }
+        return stations;
+    }
+
+    /**
+     * Lists the lines of the system, adding their names to the string table
+     * @param system railway system being written
+     * @return lines in the order they are written
+     */
+    private List<Line> collectLines(RailwaySystemClass system) {
+        List<Line> lines = new ArrayList<Line>(system.lines.size());
+        Iterator<Entry<NameKey, Line>> it = system.lines.iterator();
+
+        while(it.hasNext()) {
+            Line line = it.next().getValue();
+            lines.addLast(line);
+            addName(line.getName());
+        }
+        return lines;
+    }
+
+    private void addName(String name) {
+        if(nameIndexes.find(name) == null) {
+            nameIndexes.insert(name, names.size());
+            names.addLast(name);
+        }
+    }
+
+    /**
+     * Writes the lines and the passages of a station, as listed by CE and LC
+     * @param station station to write
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeStation(Station station) throws IOException {
+        out.writeInt(nameIndexes.find(station.getName()));
+
+        List<String> lineNames = new ArrayList<String>();
+        Iterator<Entry<String, Line>> linesIt = station.consultLines();
+        while(linesIt.hasNext())
+            lineNames.addLast(linesIt.next().getKey());
+
+        out.writeInt(lineNames.size());
+        Iterator<String> lineNamesIt = lineNames.iterator();
+        while(lineNamesIt.hasNext())
+            out.writeInt(nameIndexes.find(lineNamesIt.next()));
+
+        List<TimeTrainPairClass> passages = new ArrayList<TimeTrainPairClass>();
+        Iterator<Entry<TimeTrainPairClass, Line>> trainsIt = station.consultTrains();
+        while(trainsIt.hasNext())
+            passages.addLast(trainsIt.next().getKey());
+
+        out.writeInt(passages.size());
+        Iterator<TimeTrainPairClass> passagesIt = passages.iterator();
+        while(passagesIt.hasNext()) {
+            TimeTrainPairClass passage = passagesIt.next();
+            out.writeInt(passage.getTime().toMinutes());
+            out.writeInt(passage.getTrain());
+        }
+    }
+
+    /**
+     * Writes the offsets of a directory, in the order of its names
+     * @param directory offsets of the records, by name
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeDirectory(OrderedDictionary<NameKey, Integer> directory) throws IOException {
+        out.writeInt(directory.size());
+        Iterator<Entry<NameKey, Integer>> it = directory.iterator();
+        while(it.hasNext())
+            out.writeInt(it.next().getValue());
+    }
+
+    /**
+     * Writes a line, its stations, its schedules and its templates
+     * @param line line to write
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeLine(Line line) throws IOException {
+        out.writeInt(nameIndexes.find(line.getName()));
+
+        List<Station> lineStations = new ArrayList<Station>();
+        Iterator<Station> stationsIt = line.getStationsIt();
+        while(stationsIt.hasNext())
+            lineStations.addLast(stationsIt.next());
+
+        out.writeInt(lineStations.size());
+        for(int i = 0; i < lineStations.size(); i++)
+            out.writeInt(stationIndexes.find(lineStations.get(i).getId()));
+
+        List<Schedule> schedules = new ArrayList<Schedule>();
+        Iterator<Entry<Integer, Schedule>> schedulesIt = line.getScheduleIt();
+        while(schedulesIt.hasNext())
+            schedules.addLast(schedulesIt.next().getValue());
+
+        out.writeInt(schedules.size());
+        for(int i = 0; i < schedules.size(); i++)
+            out.writeInt(schedules.get(i).getTrain());
+
+        List<Station> stopStations = new ArrayList<Station>();
+        List<Time> stopTimes = new ArrayList<Time>();
+        for(int i = 0; i < schedules.size(); i++) {
+            int stops = 0;
+            Iterator<Station> stopsIt = schedules.get(i).getStationsIt();
+            Iterator<Time> timesIt = schedules.get(i).getTimesIt();
+            while(stopsIt.hasNext()) {
+                stopStations.addLast(stopsIt.next());
+                stopTimes.addLast(timesIt.next());
+                stops++;
+            }
+            out.writeInt(stops);
+        }
+
+        Iterator<Station> stopStationsIt = stopStations.iterator();
+        while(stopStationsIt.hasNext())
+            out.writeInt(stationIndexes.find(stopStationsIt.next().getId()));
+
+        Iterator<Time> stopTimesIt = stopTimes.iterator();
+        while(stopTimesIt.hasNext())
+            out.writeInt(stopTimesIt.next().toMinutes());
+
+        List<HeadwayTemplate> templates = new ArrayList<HeadwayTemplate>();
+        Iterator<HeadwayTemplate> templatesIt = line.getTemplatesIt();
+        while(templatesIt.hasNext())
+            templates.addLast(templatesIt.next());
+
+        out.writeInt(templates.size());
+        templatesIt = templates.iterator();
+        while(templatesIt.hasNext()) {
+            HeadwayTemplate template = templatesIt.next();
+            TripPattern pattern = template.getPattern();
+            out.writeInt(template.getFirstTrain());
+            out.writeInt(template.getHeadway());
+            out.writeInt(template.getTrips());
+            out.writeInt(pattern.size());
+            for(int i = 0; i < pattern.size(); i++)
+                out.writeInt(stationIndexes.find(pattern.getStationId(i)));
+            for(int i = 0; i < pattern.size(); i++)
+                out.writeInt(template.getMinutes(0, i));
+        }
+    }
+}
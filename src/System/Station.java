@@ -15,6 +15,18 @@ public interface Station extends Comparable<Station>, Serializable {
      */
     String getName();
 
+    /**
+     * Gets the normalized station name, used for lookups and comparisons
+     * @return station name key
+     */
+    NameKey getKey();
+
+    /**
+     * Gets the identifier of the station, interned from its normalized name
+     * @return station identifier
+     */
+    int getId();
+
     /**
      * Adds a line passing through this station
      * @param line line to add
@@ -22,7 +34,8 @@ public interface Station extends Comparable<Station>, Serializable {
     void addLine(Line line);
 
     /**
-     * Removes a line from this station
+     * Removes a line from this station.
+     * The passages of the line's trains must have been removed already.
      * @param line line to remove
      */
     void removeLine(Line line);
@@ -36,17 +49,54 @@ public interface Station extends Comparable<Station>, Serializable {
     void addTrain(String train, Time time, Line line);
 
     /**
-     * Removes a train from this station
+     * Removes a train passage from this station, unless another line has since passed the same train at that time
      * @param train train identifier to remove
+     * @param time time of passage
+     * @param line line of the train
+     */
+    void removeTrain(int train, Time time, Line line);
+
+    /**
+     * Adds a train passing through this station, to be indexed by the next call to restoreTrains
+     * @param train train identifier
+     * @param time time of passage
+     * @param line line of the train
+     */
+    void restoreTrain(String train, Time time, Line line);
+
+    /**
+     * Indexes at once the trains added by restoreTrain since the last call
+     */
+    void restoreTrains();
+
+    /**
+     * Adds the trains of a headway template passing through this station
+     * @param template template whose trips pass the station
+     * @param stop position of the stop at this station in the pattern of the template
+     * @param line line of the template
      */
-    void removeTrain(int train);
+    void addTemplate(HeadwayTemplate template, int stop, Line line);
 
     /**
-     * Gets iterator over trains passing through station
+     * Removes the passages of the trains of a headway template from this station
+     * @param template template to remove, with every stop of it at this station
+     */
+    void removeTemplate(HeadwayTemplate template);
+
+    /**
+     * Gets iterator over trains passing through station, including the trips of headway templates
      * @return iterator of train entries
      */
     Iterator<Entry<TimeTrainPairClass, Line>> consultTrains();
 
+    /**
+     * Gets iterator over a page of the trains passing through station, in the order of consultTrains
+     * @param first position of the first train of the page, from 0
+     * @param count maximum number of trains of the page
+     * @return iterator of train entries, with no entries if first is past the last train
+     */
+    Iterator<Entry<TimeTrainPairClass, Line>> consultTrains(int first, int count);
+
     /**
      * Gets iterator over lines passing through station
      * @return iterator of line entries
@@ -2,6 +2,7 @@ package System;
 
 import dataStructures.*;
 import java.io.Serial;
+import java.io.Serializable;
 
 public class StationClass implements Station, SafeStation {
 
@@ -14,15 +15,36 @@ public class StationClass implements Station, SafeStation {
     protected OrderedDictionary<TimeTrainPairClass, Line> trains;
     /** The station's unique name */
     protected String name;
+    /** The station's name, normalized for lookups and ordering */
+    protected NameKey key;
+    /** The station's identifier, used to compare stations and to index them */
+    protected int id;
+    /** Trains added by restoreTrain and not indexed yet, or null if there are none */
+    protected List<Entry<TimeTrainPairClass, Line>> restoredTrains;
+    /** Stops at this station of the headway templates passing through it, or null if there are none */
+    protected List<TemplateStop> templates;
 
     /**
      * Creates a new station with given name
      * @param name unique name for the station
+     * @param stationIds symbol table the identifier of the station is interned in
      */
-    public StationClass(String name) {
+    public StationClass(String name, SymbolTable stationIds) {
+        this(name, new NameKeyClass(name), stationIds);
+    }
+
+    /**
+     * Creates a new station with given name and its already normalized key
+     * @param name unique name for the station
+     * @param key normalized name of the station
+     * @param stationIds symbol table the identifier of the station is interned in
+     */
+    public StationClass(String name, NameKey key, SymbolTable stationIds) {
         this.lines = new AVLTree<String, Line>();
-        this.trains = new BinarySearchTree<TimeTrainPairClass, Line>();
+        this.trains = new AVLTree<TimeTrainPairClass, Line>();
         this.name = name;
+        this.key = key;
+        this.id = stationIds.intern(key);
     }
 
     @Override
@@ -30,6 +52,16 @@ public class StationClass implements Station, SafeStation {
         return name;
     }
 
+    @Override
+    public NameKey getKey() {
+        return key;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
     @Override
     public void addLine(Line line) {
         lines.insert(line.getName(), line);
@@ -38,11 +70,6 @@ public class StationClass implements Station, SafeStation {
     @Override
     public void removeLine(Line line) {
         lines.remove(line.getName());
-        Iterator<Entry<TimeTrainPairClass, Line>> it = trains.iterator();
-        while(it.hasNext()) {
-            Entry<TimeTrainPairClass, Line> entry = it.next();
-            if(entry.getValue().equals(line)) trains.remove(entry.getKey());
-        }
     }
 
     @Override
@@ -52,15 +79,72 @@ public class StationClass implements Station, SafeStation {
     }
 
     @Override
-    public void removeTrain(int train) {
-        Iterator<Entry<TimeTrainPairClass, Line>> it = trains.iterator();
-        while(it.hasNext()) {
-            Entry<TimeTrainPairClass, Line> entry = it.next();
-            if(entry.getKey().getTrain() == train) {
-                trains.remove(entry.getKey());
-                break;
+    public void removeTrain(int train, Time time, Line line) {
+        TimeTrainPairClass key = new TimeTrainPairClass(time, train);
+        if(trains.find(key) == line)
+            trains.remove(key);
+    }
+
+    @Override
+    public void restoreTrain(String train, Time time, Line line) {
+        if(restoredTrains == null)
+            restoredTrains = new ArrayList<Entry<TimeTrainPairClass, Line>>();
+        restoredTrains.addLast(new EntryClass<TimeTrainPairClass, Line>(new TimeTrainPairClass(time, train), line));
+    }
+
+    /**
+     * Sorts the restored trains and merges them with the indexed ones, then rebuilds the index
+     * from the merged trains in linear time. A restored train replaces an indexed one with the
+     * same key, and the last of the restored trains with the same key is kept, as by insert.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restoreTrains() {
+        if(restoredTrains == null)
+            return;
+        int size = restoredTrains.size();
+        Entry<TimeTrainPairClass, Line>[] restored = (Entry<TimeTrainPairClass, Line>[]) new Entry<?, ?>[size];
+        for(int i = 0; i < size; i++)
+            restored[i] = restoredTrains.get(i);
+        MergeSort.sortByKey(restored, size);
+        restoredTrains = null;
+
+        List<Entry<TimeTrainPairClass, Line>> merged = new ArrayList<Entry<TimeTrainPairClass, Line>>(trains.size() + size);
+        Iterator<Entry<TimeTrainPairClass, Line>> indexed = trains.iterator();
+        Entry<TimeTrainPairClass, Line> current = indexed.hasNext() ? indexed.next() : null;
+        int next = 0;
+        while(current != null || next < size) {
+            if(next == size || (current != null && current.getKey().compareTo(restored[next].getKey()) < 0)) {
+                merged.addLast(current);
+                current = indexed.hasNext() ? indexed.next() : null;
+                continue;
             }
+            Entry<TimeTrainPairClass, Line> entry = restored[next++];
+            while(next < size && restored[next].getKey().compareTo(entry.getKey()) == 0)
+                entry = restored[next++];
+            if(current != null && current.getKey().compareTo(entry.getKey()) == 0)
+                current = indexed.hasNext() ? indexed.next() : null;
+            merged.addLast(entry);
         }
+        trains = new AVLTree<TimeTrainPairClass, Line>(merged.iterator(), merged.size());
+    }
+
+    @Override
+    public void addTemplate(HeadwayTemplate template, int stop, Line line) {
+        if(templates == null)
+            templates = new ArrayList<TemplateStop>();
+        templates.addLast(new TemplateStop(template, stop, line));
+    }
+
+    @Override
+    public void removeTemplate(HeadwayTemplate template) {
+        if(templates == null)
+            return;
+        for(int i = templates.size() - 1; i >= 0; i--)
+            if(templates.get(i).template == template)
+                templates.remove(i);
+        if(templates.isEmpty())
+            templates = null;
     }
 
     @Override
@@ -70,7 +154,27 @@ public class StationClass implements Station, SafeStation {
 
     @Override
     public Iterator<Entry<TimeTrainPairClass, Line>> consultTrains() {
-        return trains.iterator();
+        if(templates == null)
+            return trains.iterator();
+        List<Iterator<Entry<TimeTrainPairClass, Line>>> passages =
+                new ArrayList<Iterator<Entry<TimeTrainPairClass, Line>>>(templates.size() + 1);
+        passages.addLast(trains.iterator());
+        Iterator<TemplateStop> it = templates.iterator();
+        while(it.hasNext())
+            passages.addLast(new TemplatePassageIterator(it.next()));
+        return new MergeIterator<TimeTrainPairClass, Line>(passages, true);
+    }
+
+    /**
+     * Gets a page of the trains passing through the station. Without templates, the page starts at its
+     * first train in the tree; the trips of templates are not in the tree, so with them it is skipped to.
+     */
+    @Override
+    public Iterator<Entry<TimeTrainPairClass, Line>> consultTrains(int first, int count) {
+        if(templates == null)
+            return new PageIterator<Entry<TimeTrainPairClass, Line>>(
+                    trains.iterator(Math.min(first, trains.size())), 0, count);
+        return new PageIterator<Entry<TimeTrainPairClass, Line>>(consultTrains(), first, count);
     }
 
     @Override
@@ -80,7 +184,81 @@ public class StationClass implements Station, SafeStation {
 
     @Override
     public int compareTo(Station o) {
-        return this.name.toUpperCase().compareTo(o.getName().toUpperCase());
+        return key.compareTo(o.getKey());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof Station))
+            return false;
+        return id == ((Station) o).getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    /**
+     * Stop of a headway template at this station
+     */
+    private static class TemplateStop implements Serializable {
+
+        @Serial
+        static final long serialVersionUID = 0L;
+
+        /** Template whose trips stop at the station */
+        final HeadwayTemplate template;
+        /** Position of the stop in the pattern of the template */
+        final int stop;
+        /** Line of the template */
+        final Line line;
+
+        TemplateStop(HeadwayTemplate template, int stop, Line line) {
+            this.template = template;
+            this.stop = stop;
+            this.line = line;
+        }
     }
 
+    /**
+     * Iterator over the passages of the trips of a headway template at one of its stops, in trip order,
+     * which is the order of their times
+     */
+    private static class TemplatePassageIterator implements Iterator<Entry<TimeTrainPairClass, Line>> {
+
+        @Serial
+        static final long serialVersionUID = 0L;
+
+        /** Stop whose passages are iterated */
+        private final TemplateStop templateStop;
+        /** Number of the trip of the next passage */
+        private int trip;
+
+        TemplatePassageIterator(TemplateStop templateStop) {
+            this.templateStop = templateStop;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return trip < templateStop.template.getTrips();
+        }
+
+        @Override
+        public Entry<TimeTrainPairClass, Line> next() throws NoSuchElementException {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            HeadwayTemplate template = templateStop.template;
+            Time time = new TimeClass(template.getMinutes(trip, templateStop.stop));
+            TimeTrainPairClass passage = new TimeTrainPairClass(time, template.getTrain(trip++));
+            return new EntryClass<TimeTrainPairClass, Line>(passage, templateStop.line);
+        }
+
+        @Override
+        public void rewind() {
+            trip = 0;
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package System;
+
+import System.exceptions.StorageException;
+
+/**
+ * Persistent storage of a railway system, made of a snapshot and a journal of the
+ * changes made since the snapshot was written.
+ */
+public interface Storage {
+
+    /**
+     * Loads the system from the snapshot and replays the journal on top of it
+     * @return the railway system, logging its changes in the journal
+     * @throws StorageException if the snapshot exists but cannot be read, so it is not written over,
+     * or if the journal cannot be replayed or opened
+     */
+    RailwaySystem open() throws StorageException;
+
+    /**
+     * Gets the journal the changes are currently logged in
+     * @return the journal
+     */
+    Journal getJournal();
+
+    /**
+     * Starts compacting the journal into a new snapshot, in the background,
+     * once the journal has grown large enough.
+     * If the journal cannot be set aside for the compaction, it is kept and tried again on the next checkpoint.
+     * @throws StorageException if the journal cannot be committed, or opened again after it
+     */
+    void checkpoint() throws StorageException;
+
+    /**
+     * Writes a full snapshot with the delta snapshots written since the last one, and deletes them.
+     * Waits for a running compaction to finish first.
+     * @throws StorageException if the snapshot or the deltas cannot be read, or the new snapshot cannot be written
+     */
+    void merge() throws StorageException;
+
+    /**
+     * Commits and closes the journal, and waits for a running compaction to finish.
+     * A compaction that fails leaves the journal it was compacting to be replayed on the next start.
+     * @throws StorageException if the journal cannot be committed
+     */
+    void close() throws StorageException;
+}
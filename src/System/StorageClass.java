@@ -0,0 +1,375 @@
+package System;
+
+import dataStructures.*;
+import System.exceptions.StorageException;
+import System.legacy.LegacySystemReader;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Storage kept in a snapshot file and in journal files next to it.
+ * <p>
+ * Changes are appended to the journal. Once it grows past the compaction size, the journal is
+ * renamed to the compacting file and a new one is started; a background thread then loads the
+ * snapshot, replays the compacting file on it, and writes the lines it changed to a delta snapshot.
+ * Deltas are applied in order on the snapshot when it is loaded, and once there are enough of them
+ * the compaction merges them into a new full snapshot instead.
+ * Snapshots and deltas record the number of the last journal record they include, so records that
+ * are still in a journal file after being compacted are not applied twice, and deltas left behind
+ * by a merge are skipped.
+ */
+public class StorageClass implements Storage {
+
+    /** Default size of the journal, in bytes, from which it is compacted */
+    public static final long DEFAULT_COMPACTION_SIZE = 4L << 20;
+
+    /** Number of delta snapshots from which the compaction merges them into a full snapshot */
+    public static final int MAX_DELTAS = 8;
+
+    /** Suffix of the journal file */
+    private static final String JOURNAL_SUFFIX = ".journal";
+    /** Suffix of the journal file being compacted */
+    private static final String COMPACTING_SUFFIX = ".compacting";
+    /** Suffix of the file a snapshot is written to before it replaces the snapshot file */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    /** Suffix of the delta snapshot files, followed by the number of their last journal record */
+    private static final String DELTA_SUFFIX = ".delta.";
+
+    /** Snapshot file */
+    private final Path snapshot;
+    /** Journal file */
+    private final Path journalFile;
+    /** Journal file being compacted */
+    private final Path compactingFile;
+    /** File the new snapshot is written to */
+    private final Path temporaryFile;
+    /** Size of the journal, in bytes, from which it is compacted */
+    private final long compactionSize;
+    /** Journal the changes are logged in (null if it could not be opened) */
+    private Journal journal;
+    /** Thread compacting the journal (null if no compaction was started) */
+    private Thread compaction;
+
+    /**
+     * Creates the storage kept in the given snapshot file
+     * @param snapshotFile name of the snapshot file
+     * @param compactionSize size of the journal, in bytes, from which it is compacted
+     */
+    public StorageClass(String snapshotFile, long compactionSize) {
+        this.snapshot = Path.of(snapshotFile);
+        this.journalFile = Path.of(snapshotFile + JOURNAL_SUFFIX);
+        this.compactingFile = Path.of(snapshotFile + JOURNAL_SUFFIX + COMPACTING_SUFFIX);
+        this.temporaryFile = Path.of(snapshotFile + TEMPORARY_SUFFIX);
+        this.compactionSize = compactionSize;
+    }
+
+    public StorageClass(String snapshotFile) {
+        this(snapshotFile, DEFAULT_COMPACTION_SIZE);
+    }
+
+    @Override
+    public RailwaySystem open() {
+        LoadedSnapshot loaded = load();
+        JournalReader reader = new JournalReader(journalFile);
+        long sequence;
+        try {
+            sequence = new JournalReader(compactingFile).replay(loaded.system, loaded.sequence);
+            sequence = reader.replay(loaded.system, sequence);
+        } catch (IOException e) {
+            throw new StorageException("Cannot replay the journal of " + snapshot, e);
+        }
+        journal = openJournal(reader.getValidLength(), sequence);
+
+        if(Files.exists(compactingFile))
+            startCompaction();
+        return new JournaledRailwaySystemClass(loaded.system, this);
+    }
+
+    @Override
+    public Journal getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void checkpoint() {
+        if(journal.size() < compactionSize || Files.exists(compactingFile))
+            return;
+
+        long sequence = journal.getSequence();
+        long size = journal.size();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new StorageException("Cannot write " + journalFile, e);
+        }
+        boolean moved = false;
+        try {
+            Files.move(journalFile, compactingFile, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } catch (IOException e) {
+            report("Cannot compact " + journalFile, e);
+        }
+        journal = openJournal(moved ? 0 : size, sequence);
+        if(moved)
+            startCompaction();
+    }
+
+    @Override
+    public void merge() {
+        awaitCompaction();
+        LoadedSnapshot loaded = load();
+        if(loaded.deltas > 0) {
+            try {
+                writeSnapshot(loaded.system, loaded.sequence);
+            } catch (IOException e) {
+                throw new StorageException("Cannot write " + snapshot, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        IOException failure = null;
+        try {
+            if(journal != null)
+                journal.close();
+        } catch (IOException e) {
+            failure = e;
+        }
+        awaitCompaction();
+        if(failure != null)
+            throw new StorageException("Cannot write " + journalFile, failure);
+    }
+
+    /**
+     * Opens the journal to append records after its complete ones
+     * @param validLength number of bytes of complete records in the journal
+     * @param sequence number of the last record already in the journal or before it
+     * @return the journal
+     * @throws StorageException if the journal cannot be opened
+     */
+    private Journal openJournal(long validLength, long sequence) {
+        try {
+            return new JournalClass(journalFile, validLength, sequence);
+        } catch (IOException e) {
+            throw new StorageException("Cannot open " + journalFile, e);
+        }
+    }
+
+    /**
+     * Reports a failure that leaves the stored system as it was, to be dealt with later
+     * @param message what failed
+     * @param e cause of the failure
+     */
+    private static void report(String message, Exception e) {
+        System.err.println(message + ": " + e.getMessage());
+    }
+
+    private void awaitCompaction() {
+        if(compaction != null) {
+            try {
+                compaction.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void startCompaction() {
+        compaction = new Thread(this::compact, "journal-compaction");
+        compaction.start();
+    }
+
+    /**
+     * Writes the changes of the compacting file to a delta snapshot, or merges them with the
+     * deltas into a full snapshot once there are enough deltas, then deletes that file.
+     * If anything fails, the compacting file is kept and replayed on the next start.
+     */
+    private void compact() {
+        try {
+            LoadedSnapshot loaded = load();
+            long sequence = new JournalReader(compactingFile).replay(loaded.system, loaded.sequence);
+
+            if(loaded.deltas + 1 >= MAX_DELTAS)
+                writeSnapshot(loaded.system, sequence);
+            else if(sequence > loaded.sequence) {
+                try (FileOutputStream out = new FileOutputStream(temporaryFile.toFile())) {
+                    new SnapshotWriter(out).writeDelta(loaded.system, sequence);
+                    out.getFD().sync();
+                }
+                Files.move(temporaryFile, deltaFile(sequence), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.delete(compactingFile);
+        } catch (IOException | StorageException e) {
+            report("Cannot compact " + compactingFile + ", it is replayed on the next start", e);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with a full snapshot of the system, then deletes the deltas it includes
+     * @param system railway system to write
+     * @param sequence number of the last journal record included in the system
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void writeSnapshot(RailwaySystem system, long sequence) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(temporaryFile.toFile())) {
+            new SnapshotWriter(out).write(system, sequence);
+            out.getFD().sync();
+        }
+        Files.move(temporaryFile, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Iterator<Entry<Long, Path>> it = listDeltas().iterator();
+        while(it.hasNext()) {
+            Entry<Long, Path> delta = it.next();
+            if(delta.getKey() <= sequence)
+                Files.deleteIfExists(delta.getValue());
+        }
+    }
+
+    private Path deltaFile(long sequence) {
+        return Path.of(snapshot + DELTA_SUFFIX + sequence);
+    }
+
+    /**
+     * Lists the delta snapshot files next to the snapshot
+     * @return the delta files, by the number of their last journal record
+     * @throws IOException if the directory cannot be read
+     */
+    private OrderedDictionary<Long, Path> listDeltas() throws IOException {
+        OrderedDictionary<Long, Path> deltas = new AVLTree<Long, Path>();
+        Path directory = snapshot.toAbsolutePath().getParent();
+        String prefix = snapshot.getFileName() + DELTA_SUFFIX;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for(Path file : files) {
+                try {
+                    deltas.insert(Long.parseLong(file.getFileName().toString().substring(prefix.length())), file);
+                } catch (NumberFormatException e) {
+                    // Not a delta snapshot, only a file named like one.
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * Loads the snapshot, then applies the deltas written after it, in order.
+     * The system is read whole when there are deltas to apply.
+     * @return the system, the last journal record it includes, and the number of deltas applied
+     * @throws StorageException if the snapshot or a delta cannot be read
+     */
+    private LoadedSnapshot load() {
+        LoadedSnapshot loaded = loadBase();
+        RailwaySystem system = loaded.system;
+        long sequence = loaded.sequence;
+        int applied = 0;
+
+        try {
+            Iterator<Entry<Long, Path>> it = listDeltas().iterator();
+            while(it.hasNext()) {
+                Entry<Long, Path> delta = it.next();
+                if(delta.getKey() <= sequence)
+                    continue;
+                if(system instanceof MappedRailwaySystemClass)
+                    system = ((MappedRailwaySystemClass) system).materialize();
+
+                try (FileInputStream fis = new FileInputStream(delta.getValue().toFile())) {
+                    SnapshotReader reader = new SnapshotReader(fis);
+                    reader.readDelta(system);
+                    sequence = reader.getSequence();
+                }
+                applied++;
+            }
+        } catch (IOException e) {
+            throw new StorageException("Cannot read the delta snapshots of " + snapshot, e);
+        }
+        return new LoadedSnapshot(system, sequence, applied);
+    }
+
+    /**
+     * Loads the snapshot.
+     * Current snapshots are mapped and read in place; older snapshots are read whole,
+     * and files saved before the snapshot format are read with Java serialization.
+     * An empty system is loaded if the file doesn't exist.
+     * @return the system in the snapshot, and the last journal record it includes
+     * @throws StorageException if the file exists but cannot be read
+     */
+    private LoadedSnapshot loadBase() {
+        try {
+            MappedRailwaySystemClass mapped = MappedRailwaySystemClass.open(snapshot);
+            return new LoadedSnapshot(mapped, mapped.getSequence());
+        } catch (NoSuchFileException e) {
+            return new LoadedSnapshot(new RailwaySystemClass(), 0);
+        } catch (StreamCorruptedException e) {
+            return loadSnapshot();
+        } catch (IOException e) {
+            throw new StorageException("Cannot read " + snapshot, e);
+        }
+    }
+
+    /**
+     * Loads a snapshot of a version without indexes
+     * @return the system in the snapshot, and the last journal record it includes
+     * @throws StorageException if the file cannot be read
+     */
+    private LoadedSnapshot loadSnapshot() {
+        try (FileInputStream fis = new FileInputStream(snapshot.toFile())) {
+            SnapshotReader reader = new SnapshotReader(fis);
+            RailwaySystem system = reader.read();
+            return new LoadedSnapshot(system, reader.getSequence());
+        } catch (StreamCorruptedException e) {
+            return new LoadedSnapshot(loadSerialized(), 0);
+        } catch (IOException e) {
+            throw new StorageException("Cannot read " + snapshot, e);
+        }
+    }
+
+    /**
+     * Loads a system saved with Java serialization, inserting its lines and schedules again
+     * @return the loaded system
+     * @throws StorageException if the file is not a saved system, or it is not accepted by this version
+     */
+    private RailwaySystem loadSerialized() {
+        try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream(snapshot.toFile()))) {
+            RailwaySystemClass system = new RailwaySystemClass();
+            new LegacySystemReader(bis).read(system);
+            system.markClean();
+            return system;
+        } catch (IOException e) {
+            throw new StorageException("Cannot read " + snapshot + " as a saved railway system", e);
+        }
+    }
+
+    /**
+     * A loaded snapshot: the system, the number of the last journal record it includes,
+     * and the number of delta snapshots applied on it
+     */
+    private static class LoadedSnapshot {
+
+        /** System in the snapshot */
+        final RailwaySystem system;
+        /** Number of the last journal record included in the snapshot */
+        final long sequence;
+        /** Number of delta snapshots applied on the snapshot */
+        final int deltas;
+
+        LoadedSnapshot(RailwaySystem system, long sequence, int deltas) {
+            this.system = system;
+            this.sequence = sequence;
+            this.deltas = deltas;
+        }
+
+        LoadedSnapshot(RailwaySystem system, long sequence) {
+            this(system, sequence, 0);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package System;
+
+import java.io.Serializable;
+
+/**
+ * Interns the normalized names of stations or lines, giving each name a dense int identifier.
+ * Identifiers are assigned from 0, in the order names are first interned, and a name keeps its
+ * identifier for as long as the table exists, so that every object created for the same name,
+ * even after the first one is removed, gets the same identifier and compares equal to it.
+ */
+public interface SymbolTable extends Serializable {
+
+    /**
+     * Gets the identifier of a name, assigning it the next free identifier if it is new
+     * @param key normalized name
+     * @return identifier of the name
+     */
+    int intern(NameKey key);
+
+    /**
+     * Gets the name with the given identifier
+     * @param id identifier of the name
+     * @return normalized name, or null if no name has that identifier
+     */
+    NameKey getKey(int id);
+
+    /**
+     * Gets the number of names interned, which is also the next identifier to assign
+     * @return number of names interned
+     */
+    int size();
+}
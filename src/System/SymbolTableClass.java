@@ -0,0 +1,45 @@
+package System;
+
+import dataStructures.*;
+
+import java.io.Serial;
+
+public class SymbolTableClass implements SymbolTable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Identifier of each name interned */
+    private final Dictionary<NameKey, Integer> ids;
+    /** Names interned, in the order of their identifiers */
+    private final List<NameKey> keys;
+
+    /**
+     * Creates an empty symbol table
+     */
+    public SymbolTableClass() {
+        this.ids = new LinearProbingHashTable<NameKey, Integer>();
+        this.keys = new ArrayList<NameKey>();
+    }
+
+    @Override
+    public int intern(NameKey key) {
+        Integer id = ids.find(key);
+        if(id == null) {
+            id = keys.size();
+            ids.insert(key, id);
+            keys.addLast(key);
+        }
+        return id;
+    }
+
+    @Override
+    public NameKey getKey(int id) {
+        return id >= 0 && id < keys.size() ? keys.get(id) : null;
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+}
@@ -8,17 +8,24 @@ import java.io.Serializable;
  */
 public interface Time extends Serializable, Comparable<Time> {
     /**
-     * Gets hour component
+     * Gets hour component, with two digits at least.
+     * Times are kept as minutes, so a time read as 8:5 is written as 08:05.
      * @return hour as string
      */
     String hour();
 
     /**
-     * Gets minute component
+     * Gets minute component, with two digits
      * @return minute as string
      */
     String minute();
 
+    /**
+     * Gets the time as minutes since midnight
+     * @return minutes since midnight
+     */
+    int toMinutes();
+
     /**
      * Checks if this time is before another time
      * @param other time to compare with
@@ -7,39 +7,56 @@ public class TimeClass implements Time {
     @Serial
     static final long serialVersionUID = 0L;
 
-    /** Hour component of the time (00-23) */
-    private final String hour;
-    /** Minute component of the time (00-59) */
-    private final String minute;
+    /** Number of minutes in an hour */
+    private static final int MINUTES_PER_HOUR = 60;
+
+    /** Two-digit representations of the numbers 00 to 59 */
+    private static final String[] TWO_DIGITS = new String[MINUTES_PER_HOUR];
+
+    static {
+        for(int i = 0; i < MINUTES_PER_HOUR; i++)
+            TWO_DIGITS[i] = (i < 10 ? "0" : "") + i;
+    }
+
+    /** Minutes since midnight (0-1439) */
+    private final int minutes;
 
     public TimeClass(String hour, String minute) {
-        this.hour = hour;
-        this.minute = minute;
+        this(Integer.parseInt(hour) * MINUTES_PER_HOUR + Integer.parseInt(minute));
+    }
+
+    /**
+     * Creates a time from the number of minutes since midnight
+     * @param minutes minutes since midnight
+     */
+    public TimeClass(int minutes) {
+        this.minutes = minutes;
     }
 
     @Override
     public String hour() {
-        return hour;
+        int hour = minutes / MINUTES_PER_HOUR;
+        return hour < MINUTES_PER_HOUR ? TWO_DIGITS[hour] : String.valueOf(hour);
     }
 
     @Override
     public String minute() {
-        return minute;
+        return TWO_DIGITS[minutes % MINUTES_PER_HOUR];
+    }
+
+    @Override
+    public int toMinutes() {
+        return minutes;
     }
 
     @Override
     public boolean hasTravelTime(Time other) {
-        return this.compareTo(other) < 0;
+        return minutes < other.toMinutes();
     }
 
     @Override
     public int compareTo(Time o) {
-        int intHour = Integer.parseInt(hour);
-        int intMin = Integer.parseInt(minute);
-
-        if (intHour - Integer.parseInt(o.hour()) == 0)
-            return intMin - Integer.parseInt(o.minute());
-        return intHour - Integer.parseInt(o.hour());
+        return Integer.compare(minutes, o.toMinutes());
     }
 
 }
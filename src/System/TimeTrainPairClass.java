@@ -22,8 +22,17 @@ public class TimeTrainPairClass implements TimeTrainPair {
      * @param train train identifier
      */
     public TimeTrainPairClass(Time time, String train) {
+        this(time, Integer.parseInt(train));
+    }
+
+    /**
+     * Creates new time-train pair
+     * @param time time of passage
+     * @param train train identifier
+     */
+    public TimeTrainPairClass(Time time, int train) {
         this.time = time;
-        this.train = Integer.parseInt(train);
+        this.train = train;
     }
 
     @Override
@@ -37,6 +46,6 @@ public class TimeTrainPairClass implements TimeTrainPair {
         int timeCompare = this.time.compareTo(other.getTime());
         if(timeCompare != 0)
             return timeCompare;
-        return this.train - other.getTrain();
+        return Integer.compare(this.train, other.getTrain());
     }
 }
@@ -0,0 +1,63 @@
+package System;
+
+import java.io.Serializable;
+
+/**
+ * Interface representing the sequence of stations a train stops at, which is stored once
+ * and shared by every schedule of a line that stops at the same stations in the same order.
+ */
+public interface TripPattern extends Serializable {
+
+    /**
+     * Gets the number of stops of the pattern
+     * @return number of stops
+     */
+    int size();
+
+    /**
+     * Gets the station of a stop
+     * @param position position of the stop, in travel order
+     * @return station of the stop
+     */
+    Station getStation(int position);
+
+    /**
+     * Gets the identifier of the station of a stop
+     * @param position position of the stop, in travel order
+     * @return identifier of the station of the stop
+     */
+    int getStationId(int position);
+
+    /**
+     * Gets the position of the first stop at a station
+     * @param station station to look up
+     * @return position of the stop, or -1 if the pattern does not stop there
+     */
+    int getFirstStop(Station station);
+
+    /**
+     * Gets the position of the last stop at a station
+     * @param station station to look up
+     * @return position of the stop, or -1 if the pattern does not stop there
+     */
+    int getLastStop(Station station);
+
+    /**
+     * Checks if the pattern stops more than once at some station
+     * @return true if a station repeats
+     */
+    boolean hasRepeatedStations();
+
+    /**
+     * Adds a stop at the end of the pattern; only for a pattern not shared by any schedule yet
+     * @param station station of the stop
+     */
+    void addStop(Station station);
+
+    /**
+     * Copies the first stops of the pattern into a new pattern, which is not shared
+     * @param stops number of stops to copy
+     * @return the new pattern
+     */
+    TripPattern copy(int stops);
+}
@@ -0,0 +1,175 @@
+package System;
+
+import dataStructures.*;
+
+import java.io.Serial;
+
+/**
+ * Trip pattern kept in parallel arrays of stations and station identifiers.
+ * Stations are looked up by identifier, with a scan of the stops of short patterns and a binary
+ * search of an index of the stops ordered by station identifier for the others.
+ * Two patterns are equal if they stop at the same stations in the same order.
+ */
+public class TripPatternClass implements TripPattern {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Number of stops up to which stations are looked up by scanning the stops */
+    private static final int SCANNED_STOPS = 8;
+
+    /** Stations of the stops, in travel order */
+    protected Station[] stations;
+    /** Identifiers of the stations of the stops, in travel order */
+    protected int[] stationIds;
+    /** Number of stops */
+    protected int stops;
+    /** Stops ordered by station identifier, and by position for the same station, or null until needed */
+    protected transient int[] byStation;
+
+    /**
+     * Creates a new pattern without stops
+     * @param stops expected number of stops of the pattern
+     */
+    public TripPatternClass(int stops) {
+        int capacity = Math.max(stops, 1);
+        this.stations = new Station[capacity];
+        this.stationIds = new int[capacity];
+    }
+
+    /**
+     * Creates a new pattern with the first stations of a list
+     * @param stations stations of the stops, in travel order
+     * @param stops number of stations of the list to use
+     */
+    public TripPatternClass(List<Station> stations, int stops) {
+        this(stops);
+        for(int i = 0; i < stops; i++)
+            addStop(stations.get(i));
+    }
+
+    @Override
+    public int size() {
+        return stops;
+    }
+
+    @Override
+    public Station getStation(int position) {
+        return stations[position];
+    }
+
+    @Override
+    public int getStationId(int position) {
+        return stationIds[position];
+    }
+
+    @Override
+    public int getFirstStop(Station station) {
+        int id = station.getId();
+        if(stops <= SCANNED_STOPS) {
+            for(int i = 0; i < stops; i++)
+                if(stationIds[i] == id)
+                    return i;
+            return -1;
+        }
+        int position = firstStop(id);
+        if(position == stops || stationIds[byStation[position]] != id)
+            return -1;
+        return byStation[position];
+    }
+
+    @Override
+    public int getLastStop(Station station) {
+        int id = station.getId();
+        if(stops <= SCANNED_STOPS) {
+            for(int i = stops - 1; i >= 0; i--)
+                if(stationIds[i] == id)
+                    return i;
+            return -1;
+        }
+        int position = firstStop(id + 1) - 1;
+        if(position < 0 || stationIds[byStation[position]] != id)
+            return -1;
+        return byStation[position];
+    }
+
+    @Override
+    public boolean hasRepeatedStations() {
+        for(int i = 0; i < stops; i++)
+            if(getLastStop(stations[i]) != i)
+                return true;
+        return false;
+    }
+
+    @Override
+    public void addStop(Station station) {
+        if(stops == stations.length) {
+            Station[] largerStations = new Station[2 * stops];
+            int[] largerIds = new int[2 * stops];
+            System.arraycopy(stations, 0, largerStations, 0, stops);
+            System.arraycopy(stationIds, 0, largerIds, 0, stops);
+            stations = largerStations;
+            stationIds = largerIds;
+        }
+        stations[stops] = station;
+        stationIds[stops] = station.getId();
+        stops++;
+        byStation = null;
+    }
+
+    @Override
+    public TripPattern copy(int stops) {
+        TripPatternClass copy = new TripPatternClass(stops);
+        for(int i = 0; i < stops; i++)
+            copy.addStop(stations[i]);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof TripPattern))
+            return false;
+        TripPattern other = (TripPattern) o;
+        if(other.size() != stops)
+            return false;
+        for(int i = 0; i < stops; i++)
+            if(other.getStationId(i) != stationIds[i])
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for(int i = 0; i < stops; i++)
+            hash = 31 * hash + stationIds[i];
+        return hash;
+    }
+
+    /**
+     * Binary searches the stops ordered by station for the first one with an identifier
+     * not lower than the given one, building that order the first time it is needed
+     * @param id station identifier to search for
+     * @return position in byStation of that stop, or the number of stops if there is none
+     */
+    private int firstStop(int id) {
+        if(byStation == null) {
+            int[] order = new int[stops];
+            for(int i = 0; i < stops; i++)
+                order[i] = i;
+            MergeSort.sortIndexes(order, stationIds, stops);
+            byStation = order;
+        }
+        int low = 0, high = stops;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(stationIds[byStation[middle]] < id)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
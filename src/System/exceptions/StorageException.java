@@ -0,0 +1,12 @@
+package System.exceptions;
+
+/**
+ * Thrown when the saved system cannot be read, or the changes made to it cannot be saved
+ */
+public class StorageException extends RuntimeException {
+    static final long serialVersionUID = 0L;
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
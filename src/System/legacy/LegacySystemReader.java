@@ -0,0 +1,142 @@
+package System.legacy;
+
+import dataStructures.*;
+import System.RailwaySystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads a railway system saved with Java serialization, before the snapshot format.
+ * The classes the system was saved with have changed since, so the saved objects are read as
+ * the classes of this package, and their lines and schedules are inserted again in a new system.
+ */
+public class LegacySystemReader {
+
+    /** Package of the classes the system was saved with */
+    private static final String SAVED_PACKAGE = "System.";
+    /** Package of the classes they are read as */
+    private static final String LEGACY_PACKAGE = "System.legacy.";
+
+    /** Stream the system is read from */
+    private final InputStream in;
+
+    /**
+     * Creates a reader for the given stream
+     * @param in stream to read from; it is not closed by the reader
+     */
+    public LegacySystemReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the saved system and inserts its lines and schedules in a railway system
+     * @param sys empty railway system to fill
+     * @throws StreamCorruptedException if the stream does not hold a saved railway system
+     * @throws InvalidObjectException if a saved line or schedule is not accepted by the system
+     * @throws IOException if the stream cannot be read
+     */
+    public void read(RailwaySystem sys) throws IOException {
+        Object saved;
+        try {
+            saved = new SavedClassesInputStream(in).readObject();
+        } catch (ClassNotFoundException | RuntimeException e) {
+            throw invalid("Saved system of an unknown version", e);
+        }
+        if(!(saved instanceof RailwaySystemClass))
+            throw new StreamCorruptedException("Not a saved railway system");
+
+        try {
+            Iterator<Entry<String, LineClass>> it = ((RailwaySystemClass) saved).lines.iterator();
+            while(it.hasNext())
+                insertLine(sys, it.next().getValue());
+        } catch (RuntimeException e) {
+            throw invalid("Saved system not accepted by this version", e);
+        }
+    }
+
+    /**
+     * Inserts a saved line and its schedules, in the order of their trains
+     * @param sys railway system to fill
+     * @param line saved line
+     */
+    private static void insertLine(RailwaySystem sys, LineClass line) {
+        List<String> stations = new ArrayList<String>(line.stations.size());
+        Iterator<StationClass> it = line.stations.iterator();
+        while(it.hasNext())
+            stations.addLast(it.next().name);
+        sys.insertLine(line.name, stations);
+
+        Iterator<Entry<String, ScheduleClass>> schedules = line.schedules.iterator();
+        while(schedules.hasNext())
+            insertSchedule(sys, line.name, schedules.next().getValue());
+    }
+
+    /**
+     * Inserts a saved schedule, with the hours and minutes as they were read when it was inserted
+     * @param sys railway system to fill
+     * @param lineName name of the line of the schedule
+     * @param schedule saved schedule
+     */
+    private static void insertSchedule(RailwaySystem sys, String lineName, ScheduleClass schedule) {
+        int size = schedule.orderedStations.size();
+        List<String> stations = new ArrayList<String>(size);
+        List<String[]> times = new ArrayList<String[]>(size);
+        Iterator<StationClass> it = schedule.orderedStations.iterator();
+        while(it.hasNext()) {
+            StationClass station = it.next();
+            TimeClass time = timeAt(schedule, station);
+            stations.addLast(station.name);
+            times.addLast(new String[] { time.hour, time.minute });
+        }
+        sys.insertSchedule(lineName, String.valueOf(schedule.train), stations, times);
+    }
+
+    /**
+     * Finds the time of a schedule at one of its stations.
+     * The times are kept by the station objects themselves, so they are found by identity.
+     * @param schedule saved schedule
+     * @param station one of the stations of the schedule
+     * @return time at the station
+     * @throws IllegalStateException if the schedule has no time at the station
+     */
+    private static TimeClass timeAt(ScheduleClass schedule, StationClass station) {
+        Iterator<? extends Entry<?, TimeClass>> it = schedule.schedule.iterator();
+        while(it.hasNext()) {
+            Entry<?, TimeClass> entry = it.next();
+            if(entry.getKey() == station)
+                return entry.getValue();
+        }
+        throw new IllegalStateException("Saved schedule without a time at one of its stations");
+    }
+
+    private static InvalidObjectException invalid(String message, Exception cause) {
+        InvalidObjectException e = new InvalidObjectException(message);
+        e.initCause(cause);
+        return e;
+    }
+
+    /**
+     * Object stream reading the classes of the railway system saved with Java serialization
+     * as the classes of this package with the same name
+     */
+    private static class SavedClassesInputStream extends ObjectInputStream {
+
+        SavedClassesInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            if(name.startsWith(SAVED_PACKAGE) && name.indexOf('.', SAVED_PACKAGE.length()) < 0)
+                return Class.forName(LEGACY_PACKAGE + name.substring(SAVED_PACKAGE.length()), false,
+                                     LegacySystemReader.class.getClassLoader());
+            return super.resolveClass(desc);
+        }
+    }
+}
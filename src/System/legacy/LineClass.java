@@ -0,0 +1,22 @@
+package System.legacy;
+
+import dataStructures.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Line as it was saved with Java serialization, before the snapshot format
+ */
+class LineClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Name of the line */
+    protected String name;
+    /** Schedules of the line, indexed by train */
+    protected OrderedDictionary<String, ScheduleClass> schedules;
+    /** Stations of the line, in order */
+    protected List<StationClass> stations;
+}
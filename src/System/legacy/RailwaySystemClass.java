@@ -0,0 +1,19 @@
+package System.legacy;
+
+import dataStructures.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Railway system as it was saved with Java serialization, before the snapshot format.
+ * Only the fields needed to insert its lines and schedules again are kept.
+ */
+class RailwaySystemClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Collection of all lines in the system, indexed by name */
+    protected Dictionary<String, LineClass> lines;
+}
@@ -0,0 +1,22 @@
+package System.legacy;
+
+import dataStructures.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Schedule as it was saved with Java serialization, before the snapshot format
+ */
+class ScheduleClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Time at each station of the schedule, indexed by the station */
+    protected OrderedDictionary<?, TimeClass> schedule;
+    /** Stations of the schedule, in order */
+    protected List<StationClass> orderedStations;
+    /** Train of the schedule */
+    protected int train;
+}
@@ -0,0 +1,16 @@
+package System.legacy;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Station as it was saved with Java serialization, before the snapshot format
+ */
+class StationClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Name of the station */
+    protected String name;
+}
@@ -0,0 +1,18 @@
+package System.legacy;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Time as it was saved with Java serialization, before the snapshot format
+ */
+class TimeClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+
+    /** Hour, as it was read */
+    protected String hour;
+    /** Minute, as it was read */
+    protected String minute;
+}
@@ -0,0 +1,14 @@
+package System.legacy;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Train passing through a station, as it was saved with Java serialization, before the
+ * snapshot format. Nothing of it is kept, as the passages are rebuilt with the schedules.
+ */
+class TimeTrainPairClass implements Serializable {
+
+    @Serial
+    static final long serialVersionUID = 0L;
+}
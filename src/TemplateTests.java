@@ -0,0 +1,258 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import dataStructures.*;
+import System.*;
+import System.exceptions.InvalidScheduleException;
+
+public class TemplateTests {
+
+	/** Number of random systems the templates are inserted into */
+	private static final int SEEDS = 10;
+	/** Number of random changes made to build each system */
+	private static final int CHANGES = 200;
+	/** Number of templates inserted into each system */
+	private static final int TEMPLATES = 30;
+	/** First train number of the templates, above the ones of the random changes */
+	private static final int FIRST_TRAIN = 1000;
+	/** Commands that list every schedule and train of the line of the fixed templates */
+	private static final String NORTE_QUERIES = "CH Norte\nLisboa\nCH Norte\nCoimbra\nCH Norte\nPorto\n"
+			+ "LC Lisboa\nLC Coimbra\nLC Porto\nMH Norte\nLisboa\nPorto\n09:40\nMH Norte\nLisboa\nPorto\n10:20\nTA\n";
+
+	/**
+	 * Inserts random templates into random systems, and their trips as an import into copies of them,
+	 * and checks that both are accepted or both rejected, and that the systems then list the same.
+	 */
+	@Test public void acceptsTemplatesAsExpandedTrips() {
+		int accepted = 0;
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Scenarios scenarios = new Scenarios(seed);
+			Random random = new Random(seed);
+			RailwaySystem templated = new RailwaySystemClass();
+			RailwaySystem expanded = new RailwaySystemClass();
+			scenarios.change(CHANGES, templated, expanded);
+			int train = FIRST_TRAIN;
+
+			for (int i = 0; i < TEMPLATES; i++) {
+				int line = random.nextInt(5);
+				if (scenarios.stationsOf(line) == null)
+					continue;
+				List<String> stations = scenarios.tripStations(line);
+				List<String[]> times = scenarios.tripTimes(line, stations);
+				int headway = 5 + random.nextInt(60);
+				int last = minutes(times.getFirst()) + headway * random.nextInt(6) + random.nextInt(headway);
+				String[] lastDeparture = time(Math.min(last, 23 * 60 + 59));
+				String first = String.valueOf(random.nextInt(10) == 0 ? train - 1 : train);
+				Template template = new Template(first, stations, times, headway, lastDeparture);
+				train += template.trains.size();
+
+				String outcome = outcome(() -> templated.insertTemplate(Scenarios.lineName(line), first, stations, times,
+						headway, lastDeparture));
+				assertEquals(outcome(() -> template.expand(expanded, Scenarios.lineName(line))), outcome);
+				if (outcome.equals("accepted"))
+					accepted++;
+			}
+			assertEquals(Scenarios.run(expanded, scenarios.queries()), Scenarios.run(templated, scenarios.queries()));
+		}
+		assertEquals(true, accepted > 0);
+	}
+
+	/**
+	 * Removes the middle trip of a template, and checks that the trips before and after it are
+	 * still listed and can still be removed, while the train of the trip removed is free again.
+	 */
+	@Test public void splitsTemplateOnRemovingMiddleTrip() {
+		RailwaySystem templated = line();
+		RailwaySystem expanded = line();
+		Template template = norteTemplate();
+		template.insert(templated, "Norte");
+		template.expand(expanded, "Norte");
+
+		for (RailwaySystem sys : new RailwaySystem[] { templated, expanded })
+			sys.removeSchedule("Norte", "Lisboa", new String[] { "08", "20" });
+		assertEquals(Scenarios.run(expanded, NORTE_QUERIES), Scenarios.run(templated, NORTE_QUERIES));
+
+		assertEquals(InvalidScheduleException.class.getName(), outcome(() -> templated.insertSchedules("Norte",
+				strings("101"), single(strings("Porto", "Lisboa")), single(times("12:00", "14:00")))));
+		assertEquals(InvalidScheduleException.class.getName(), outcome(() -> templated.insertSchedules("Norte",
+				strings("103"), single(strings("Porto", "Lisboa")), single(times("12:00", "14:00")))));
+		for (RailwaySystem sys : new RailwaySystem[] { templated, expanded })
+			sys.insertSchedules("Norte", strings("102"), single(strings("Porto", "Lisboa")), single(times("12:00", "14:00")));
+		assertEquals(Scenarios.run(expanded, NORTE_QUERIES), Scenarios.run(templated, NORTE_QUERIES));
+
+		for (String departure : new String[] { "08:10", "08:30", "08:00", "08:40" })
+			for (RailwaySystem sys : new RailwaySystem[] { templated, expanded })
+				sys.removeSchedule("Norte", "Lisboa", departure.split(":"));
+		assertEquals(Scenarios.run(expanded, NORTE_QUERIES), Scenarios.run(templated, NORTE_QUERIES));
+	}
+
+	/**
+	 * Writes a system with templates, one of them split, to a snapshot, and checks that it is
+	 * read whole and mapped as written.
+	 */
+	@Test public void keepsTemplatesInSnapshot() throws IOException {
+		RailwaySystem sys = line();
+		norteTemplate().insert(sys, "Norte");
+		sys.insertTemplate("Norte", "200", strings("Porto", "Lisboa"), times("07:00", "09:00"), 30, time(12 * 60));
+		sys.removeSchedule("Norte", "Porto", new String[] { "08", "00" });
+		String expected = Scenarios.run(sys, NORTE_QUERIES);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new SnapshotWriter(out).write(sys, 0);
+		assertEquals(expected, Scenarios.run(new SnapshotReader(new ByteArrayInputStream(out.toByteArray())).read(), NORTE_QUERIES));
+		assertEquals(expected, Scenarios.run(new MappedRailwaySystemClass(ByteBuffer.wrap(out.toByteArray())), NORTE_QUERIES));
+	}
+
+	/**
+	 * Inserts templates and removes trips of them in sessions of a storage, and checks that the
+	 * journal replays them, before and after they are compacted into a delta snapshot.
+	 */
+	@Test public void keepsTemplatesInJournal() throws IOException {
+		Path file = Files.createTempDirectory("templates").resolve("storedsystem.dat");
+		Storage storage = new StorageClass(file.toString());
+		RailwaySystem sys = storage.open();
+		sys.insertLine("Norte", strings("Lisboa", "Coimbra", "Porto"));
+		norteTemplate().insert(sys, "Norte");
+		storage.close();
+
+		storage = new StorageClass(file.toString());
+		sys = storage.open();
+		sys.removeSchedule("Norte", "Lisboa", new String[] { "08", "20" });
+		sys.insertTemplate("Norte", "200", strings("Porto", "Lisboa"), times("07:00", "09:00"), 30, time(12 * 60));
+		String expected = Scenarios.run(sys, NORTE_QUERIES);
+		storage.close();
+
+		storage = new StorageClass(file.toString());
+		assertEquals(expected, Scenarios.run(storage.open(), NORTE_QUERIES));
+		storage.close();
+
+		storage = new StorageClass(file.toString(), 0);
+		storage.open().removeSchedule("Norte", "Porto", new String[] { "08", "00" });
+		storage.close();
+		storage = new StorageClass(file.toString());
+		sys = storage.open();
+		RailwaySystem reference = line();
+		norteTemplate().expand(reference, "Norte");
+		reference.removeSchedule("Norte", "Lisboa", new String[] { "08", "20" });
+		new Template("200", strings("Porto", "Lisboa"), times("07:00", "09:00"), 30, time(12 * 60)).expand(reference, "Norte");
+		reference.removeSchedule("Norte", "Porto", new String[] { "08", "00" });
+		assertEquals(Scenarios.run(reference, NORTE_QUERIES), Scenarios.run(sys, NORTE_QUERIES));
+		storage.close();
+	}
+
+	/**
+	 * Trips of a template, as schedules
+	 */
+	private static class Template {
+
+		private final String first;
+		private final List<String> stations;
+		private final List<String[]> times;
+		private final int headway;
+		private final String[] lastDeparture;
+		/** Trains of the trips */
+		private final List<String> trains = new ArrayList<String>();
+		/** Stations of the trips */
+		private final List<List<String>> tripStations = new ArrayList<List<String>>();
+		/** Times of the trips */
+		private final List<List<String[]>> tripTimes = new ArrayList<List<String[]>>();
+
+		Template(String first, List<String> stations, List<String[]> times, int headway, String[] lastDeparture) {
+			this.first = first;
+			this.stations = stations;
+			this.times = times;
+			this.headway = headway;
+			this.lastDeparture = lastDeparture;
+			for (int trip = 0; minutes(times.getFirst()) + trip * headway <= minutes(lastDeparture); trip++) {
+				trains.addLast(String.valueOf(Integer.parseInt(first) + trip));
+				tripStations.addLast(stations);
+				List<String[]> shifted = new ArrayList<String[]>(times.size());
+				Iterator<String[]> it = times.iterator();
+				while (it.hasNext())
+					shifted.addLast(time(minutes(it.next()) + trip * headway));
+				tripTimes.addLast(shifted);
+			}
+		}
+
+		void insert(RailwaySystem sys, String line) {
+			sys.insertTemplate(line, first, stations, times, headway, lastDeparture);
+		}
+
+		void expand(RailwaySystem sys, String line) {
+			sys.insertSchedules(line, trains, tripStations, tripTimes);
+		}
+	}
+
+	/**
+	 * Gets the template of trains 100 to 104, leaving Lisboa every 10 minutes from 08:00
+	 */
+	private static Template norteTemplate() {
+		return new Template("100", strings("Lisboa", "Coimbra", "Porto"), times("08:00", "08:50", "09:30"), 10, time(8 * 60 + 45));
+	}
+
+	/**
+	 * Change made on a system
+	 */
+	private interface Change {
+		void apply();
+	}
+
+	/**
+	 * Makes a change and tells if it was accepted
+	 * @return "accepted", or the name of the exception that rejected the change
+	 */
+	private static String outcome(Change change) {
+		try {
+			change.apply();
+			return "accepted";
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	/**
+	 * Creates a system with a line from Lisboa to Porto, through Coimbra
+	 */
+	private static RailwaySystem line() {
+		RailwaySystem sys = new RailwaySystemClass();
+		sys.insertLine("Norte", strings("Lisboa", "Coimbra", "Porto"));
+		return sys;
+	}
+
+	private static int minutes(String[] time) {
+		return Integer.parseInt(time[0]) * 60 + Integer.parseInt(time[1]);
+	}
+
+	private static String[] time(int minutes) {
+		return new String[] { String.format("%02d", minutes / 60), String.format("%02d", minutes % 60) };
+	}
+
+	private static <E> List<E> single(E value) {
+		List<E> list = new ArrayList<E>(1);
+		list.addLast(value);
+		return list;
+	}
+
+	private static List<String> strings(String... values) {
+		List<String> list = new ArrayList<String>(values.length);
+		for (String value : values)
+			list.addLast(value);
+		return list;
+	}
+
+	private static List<String[]> times(String... values) {
+		List<String[]> list = new ArrayList<String[]>(values.length);
+		for (String value : values)
+			list.addLast(value.split(":"));
+		return list;
+	}
+}
@@ -39,7 +39,10 @@ public class Tests {
 	@Test public void test12() { test("test12-in.txt","test12-out.txt"); }
 	@Test public void test13() { test("test13-in.txt","test13-out.txt"); }
 	@Test public void test14() { test("test14-in.txt","test14-out.txt"); }
-	@Test public void test15() { test("test15-in.txt","test15-out.txt"); }
+	@Test public void test15() { test("test15-in.txt","test15-out.txt"); }
+	@Test public void test16() { test("test16-in.txt","test16-out.txt"); }
+	@Test public void test17() { test("test17-in.txt","test17-out.txt"); }
+	@Test public void test18() { test("test18-in.txt","test18-out.txt"); }
 
 
 	private static final File BASE = new File("tests");
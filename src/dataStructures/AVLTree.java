@@ -13,6 +13,12 @@ public class AVLTree<K extends Comparable<K>, V>
     extends AdvancedBSTree<K,V> implements OrderedDictionary<K,V>
 {                                                                   
 
+    /**
+     * Serial Version UID of the Class, as computed for its first version,
+     * so that systems saved with that version can still be read.
+     */
+    static final long serialVersionUID = 8798954017374076709L;
+
     protected AVLTree(AVLNode<Entry<K,V>> node) {
         root = node;
     }
@@ -21,10 +27,26 @@ public class AVLTree<K extends Comparable<K>, V>
         this(null);
     }
 
+    /**
+     * Creates a tree from entries sorted by key, in linear time.
+     * The tree built is as balanced as possible, so no rotation is needed.
+     * @param sorted iterator over the entries, in strictly increasing order of key
+     * @param size number of entries of the iterator
+     */
+    public AVLTree(Iterator<Entry<K,V>> sorted, int size) {
+        root = buildSubtree(sorted, size);
+        currentSize = size;
+    }
+
+    @Override
+    BSTNode<Entry<K,V>> newNode(Entry<K,V> entry, BSTNode<Entry<K,V>> left, BSTNode<Entry<K,V>> right) {
+        return new AVLNode<>(entry, null, (AVLNode<Entry<K,V>>) left, (AVLNode<Entry<K,V>>) right);
+    }
+
     /**
      * Rebalance method called by insert and remove.  Traverses the path from
      * zPos to the root. For each node encountered, we recompute its height
-     * and perform a trinode restructuring if it's unbalanced.
+     * and size and perform a trinode restructuring if it's unbalanced.
      * the rebalance is completed with O(log n) running time
      */
     void rebalance(AVLNode<Entry<K,V>> zPos) {
@@ -37,6 +59,7 @@ public class AVLTree<K extends Comparable<K>, V>
         // Traverse up the tree towards the root
         while (zPos != null) {
             zPos.setHeight();  // Update height at current level
+            zPos.setSize();    // and the size, which the rotations keep up to date
 
             if (!zPos.isBalanced()) {
                 // Get the trinode configuration
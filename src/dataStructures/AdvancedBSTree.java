@@ -29,6 +29,10 @@ public abstract class AdvancedBSTree<K extends Comparable<K>, V> extends BinaryS
         X.setLeft(Y);
         Y.setParent(X);
 
+        // Update the sizes, Y first since it is now a child of X
+        Y.setSize();
+        X.setSize();
+
         // Link X to Y's old parent
         X.setParent(parent);
         if (parent == null)
@@ -59,6 +63,10 @@ public abstract class AdvancedBSTree<K extends Comparable<K>, V> extends BinaryS
         X.setRight(Y);
         Y.setParent(X);
 
+        // Update the sizes, Y first since it is now a child of X
+        Y.setSize();
+        X.setSize();
+
         // Link X to Y's old parent
         X.setParent(parent);
         if (parent == null)
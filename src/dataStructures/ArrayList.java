@@ -0,0 +1,218 @@
+package dataStructures;
+
+/**
+ * Array based List Implementation
+ * Elements are stored contiguously in a resizable array,
+ * so positional access takes constant time.
+ * @author AED  Team
+ * @version 1.0
+ * @param <E> Generic Element
+ *
+ */
+public class ArrayList<E> implements List<E>
+{
+
+	/**
+	 * Serial Version UID of the Class
+	 */
+    static final long serialVersionUID = 0L;
+
+    /**
+     * Default capacity of the array.
+     */
+    public static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Memory of the list: elements are kept in positions 0, ..., currentSize-1.
+     */
+    protected E[] elements;
+
+    /**
+     * Number of elements in the list.
+     */
+    protected int currentSize;
+
+    /**
+     * Constructor of an empty array list, with the specified initial capacity.
+     * @param capacity - initial capacity of the array
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList( int capacity )
+    {
+        // Compiler gives a warning.
+        elements = (E[]) new Object[Math.max(capacity, 1)];
+        currentSize = 0;
+    }
+
+    /**
+     * Constructor of an empty array list, with the default capacity.
+     */
+    public ArrayList( )
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    @Override
+    public boolean isEmpty( )
+    {
+        return currentSize == 0;
+    }
+
+
+    @Override
+    public int size( )
+    {
+        return currentSize;
+    }
+
+
+    @Override
+    public Iterator<E> iterator( )
+    {
+        return new ArrayListIterator<E>(elements, currentSize);
+    }
+
+
+    @Override
+    public E getFirst( ) throws EmptyListException
+    {
+        if ( this.isEmpty() )
+            throw new EmptyListException();
+
+        return elements[0];
+    }
+
+
+    @Override
+    public E getLast( ) throws EmptyListException
+    {
+        if ( this.isEmpty() )
+            throw new EmptyListException();
+
+        return elements[currentSize - 1];
+    }
+
+
+    @Override
+    public E get( int position ) throws InvalidPositionException
+    {
+        if ( position < 0 || position >= currentSize )
+            throw new InvalidPositionException();
+
+        return elements[position];
+    }
+
+
+    @Override
+    public int find( E element )
+    {
+        for ( int i = 0; i < currentSize; i++ )
+            if ( elements[i].equals(element) )
+                return i;
+        return -1;
+    }
+
+
+    @Override
+    public void addFirst( E element )
+    {
+        this.add(0, element);
+    }
+
+
+    @Override
+    public void addLast( E element )
+    {
+        if ( this.isFull() )
+            this.grow();
+        elements[currentSize++] = element;
+    }
+
+
+    @Override
+    public void add( int position, E element ) throws InvalidPositionException
+    {
+        if ( position < 0 || position > currentSize )
+            throw new InvalidPositionException();
+
+        if ( this.isFull() )
+            this.grow();
+        for ( int i = currentSize; i > position; i-- )
+            elements[i] = elements[i - 1];
+        elements[position] = element;
+        currentSize++;
+    }
+
+
+    @Override
+    public E removeFirst( ) throws EmptyListException
+    {
+        if ( this.isEmpty() )
+            throw new EmptyListException();
+
+        return this.remove(0);
+    }
+
+
+    @Override
+    public E removeLast( ) throws EmptyListException
+    {
+        if ( this.isEmpty() )
+            throw new EmptyListException();
+
+        E element = elements[--currentSize];
+        elements[currentSize] = null;
+        return element;
+    }
+
+
+    @Override
+    public E remove( int position ) throws InvalidPositionException
+    {
+        if ( position < 0 || position >= currentSize )
+            throw new InvalidPositionException();
+
+        E element = elements[position];
+        for ( int i = position; i < currentSize - 1; i++ )
+            elements[i] = elements[i + 1];
+        elements[--currentSize] = null;
+        return element;
+    }
+
+
+    @Override
+    public boolean remove( E element )
+    {
+        int position = this.find(element);
+        if ( position == -1 )
+            return false;
+
+        this.remove(position);
+        return true;
+    }
+
+
+    /**
+     * Returns true iff the array has no free positions.
+     * @return true if the array is full
+     */
+    protected boolean isFull( )
+    {
+        return currentSize == elements.length;
+    }
+
+
+    /**
+     * Doubles the capacity of the array, keeping its elements.
+     */
+    @SuppressWarnings("unchecked")
+    protected void grow( )
+    {
+        E[] newElements = (E[]) new Object[2 * elements.length];
+        for ( int i = 0; i < currentSize; i++ )
+            newElements[i] = elements[i];
+        elements = newElements;
+    }
+
+}
@@ -0,0 +1,104 @@
+package dataStructures;
+
+/**
+ * Implementation of Two Way Iterator for ArrayList
+ * @author AED  Team
+ * @version 1.0
+ * @param <E> Generic Element
+ *
+ */
+class ArrayListIterator<E> implements TwoWayIterator<E>
+{
+
+	/**
+	 * Serial Version UID of the Class
+	 */
+    static final long serialVersionUID = 0L;
+
+    /**
+     * Array with the elements of the iteration.
+     */
+    protected E[] elements;
+
+    /**
+     * Number of elements in the iteration.
+     */
+    protected int count;
+
+    /**
+     * Position of the next element in the iteration.
+     */
+    protected int nextToReturn;
+
+    /**
+     * Position of the previous element in the iteration.
+     */
+    protected int prevToReturn;
+
+
+    /**
+     * ArrayListIterator constructor
+     * @param elements - array with the elements of the iteration
+     * @param count - number of elements in the iteration
+     */
+    public ArrayListIterator( E[] elements, int count )
+    {
+        this.elements = elements;
+        this.count = count;
+        this.rewind();
+    }
+
+
+    @Override
+    public void rewind( )
+    {
+        nextToReturn = 0;
+        prevToReturn = -1;
+    }
+
+
+    @Override
+    public void fullForward( )
+    {
+        prevToReturn = count - 1;
+        nextToReturn = count;
+    }
+
+
+    @Override
+    public boolean hasNext( )
+    {
+        return nextToReturn < count;
+    }
+
+
+    @Override
+    public boolean hasPrevious( )
+    {
+        return prevToReturn >= 0;
+    }
+
+
+    @Override
+    public E next( ) throws NoSuchElementException
+    {
+        if ( !this.hasNext() )
+            throw new NoSuchElementException();
+
+        prevToReturn = nextToReturn - 1;
+        return elements[nextToReturn++];
+    }
+
+
+    @Override
+    public E previous( ) throws NoSuchElementException
+    {
+        if ( !this.hasPrevious() )
+            throw new NoSuchElementException();
+
+        nextToReturn = prevToReturn + 1;
+        return elements[prevToReturn--];
+    }
+
+
+}
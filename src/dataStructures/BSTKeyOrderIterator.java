@@ -7,11 +7,45 @@ class BSTKeyOrderIterator<K,V> implements Iterator<Entry<K,V>> {
 
 	protected Stack<BSTNode<Entry<K,V>>> p;
 
+	/** Position, in key order, of the first entry given */
+	protected int first;
+
 
 	BSTKeyOrderIterator(BSTNode<Entry<K,V>> root){
+		this(root, 0);
+	}
+
+	/**
+	 * Iterator starting at the entry at a given position in key order
+	 * @param root root of the tree, whose nodes know the sizes of their subtrees
+	 * @param first position of the first entry, from 0 to the size of the tree
+	 */
+	BSTKeyOrderIterator(BSTNode<Entry<K,V>> root, int first){
 		this.root=root;
+		this.first=first;
 		rewind();
 	}
+
+	/**
+	 * Pushes the path from the root to the node at a position, keeping only the nodes
+	 * whose left subtree the path goes into, which are the ones still to be given after it.
+	 * Costs O(height), like pushing the path to the minimum.
+	 */
+	private void pushPathToRank(BSTNode<Entry<K,V>> node, int rank) {
+		while(node != null) {
+			int leftSize = BSTNode.getSize(node.getLeft());
+			if(rank <= leftSize) {
+				p.push(node);
+				if(rank == leftSize)
+					return;
+				node = node.getLeft();
+			}
+			else {
+				rank -= leftSize + 1;
+				node = node.getRight();
+			}
+		}
+	}
 	
 	private void pushPathToMinimum(BSTNode<Entry<K,V>> node) {
 		if(node != null) {
@@ -37,6 +71,9 @@ class BSTKeyOrderIterator<K,V> implements Iterator<Entry<K,V>> {
 
     public void rewind( ){
 		p = new StackInList<BSTNode<Entry<K,V>>>();
-    	pushPathToMinimum(root);
+		if(first == 0)
+			pushPathToMinimum(root);
+		else
+			pushPathToRank(root, first);
     }
 }
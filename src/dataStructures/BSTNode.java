@@ -13,6 +13,12 @@ import java.io.Serializable;
 public class BSTNode<E> implements Serializable
 {
 
+    /**
+     * Serial Version UID of the Class, as computed for its first version,
+     * so that systems saved with that version can still be read.
+     */
+    static final long serialVersionUID = -4575661114698067129L;
+
 
 
     /**
@@ -39,6 +45,12 @@ public class BSTNode<E> implements Serializable
      */
     protected BSTNode<E> parent;
 
+    /**
+     * Number of nodes of the tree rooted at this node.
+     *
+     */
+    protected int size;
+
     /**
      * Constructor for BST nodes
      *
@@ -49,11 +61,43 @@ public class BSTNode<E> implements Serializable
         this.parent = parent;
         this.left = left;
         this.right = right;
+        this.size = 1 + getSize(left) + getSize(right);
     }
     public BSTNode(E elem) {
         this(elem,null,null,null);
     }
 
+    /**
+     * Returns the number of nodes of the tree rooted at the given node.
+     *
+     * @param node - root of the tree, or null for an empty tree
+     * @return number of nodes of the tree
+     */
+    static int getSize( BSTNode<?> node )
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Returns the number of nodes of the tree rooted at this node.
+     *
+     * @return
+     */
+    int getSize( )
+    {
+        return size;
+    }
+
+    /**
+     * Recomputes the number of nodes of the tree rooted at this node from the
+     * (not recursively recomputed) sizes of its subtrees.
+     *
+     */
+    void setSize( )
+    {
+        size = 1 + getSize(left) + getSize(right);
+    }
+
     /**
      * Returns the element of the current node.
      *
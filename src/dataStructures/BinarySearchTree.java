@@ -36,6 +36,56 @@ public class BinarySearchTree<K extends Comparable<K>, V>
         currentSize = 0;
     }
 
+    /**
+     * Tree Constructor - creates a balanced tree from entries sorted by key,
+     * in linear time, without comparing any keys.
+     *
+     * @param sorted - iterator over the entries, in strictly increasing order of key
+     * @param size - number of entries of the iterator
+     */
+    public BinarySearchTree( Iterator<Entry<K,V>> sorted, int size )
+    {
+        root = buildSubtree(sorted, size);
+        currentSize = size;
+    }
+
+    /**
+     * Builds a balanced subtree from the next entries of a sorted iterator.
+     * The middle entry becomes the root, after the entries of its left subtree are read.
+     *
+     * @param sorted - iterator over the entries, in strictly increasing order of key
+     * @param size - number of entries of the subtree
+     * @return root of the subtree, or null if it is empty
+     */
+    BSTNode<Entry<K,V>> buildSubtree( Iterator<Entry<K,V>> sorted, int size )
+    {
+        if ( size == 0 )
+            return null;
+        BSTNode<Entry<K,V>> left = buildSubtree(sorted, size / 2);
+        Entry<K,V> entry = sorted.next();
+        BSTNode<Entry<K,V>> right = buildSubtree(sorted, size - size / 2 - 1);
+
+        BSTNode<Entry<K,V>> node = newNode(entry, left, right);
+        if ( left != null )
+            left.setParent(node);
+        if ( right != null )
+            right.setParent(node);
+        return node;
+    }
+
+    /**
+     * Creates the node of a subtree being built.
+     *
+     * @param entry - entry stored in the node
+     * @param left - left subtree of the node
+     * @param right - right subtree of the node
+     * @return the node
+     */
+    BSTNode<Entry<K,V>> newNode( Entry<K,V> entry, BSTNode<Entry<K,V>> left, BSTNode<Entry<K,V>> right )
+    {
+        return new BSTNode<>(entry, null, left, right);
+    }
+
 
     @Override
     public boolean isEmpty( )                               
@@ -144,6 +194,105 @@ public class BinarySearchTree<K extends Comparable<K>, V>
     }                               
 
 
+    @Override
+    public Entry<K,V> ceilingEntry( K key )
+    {
+        BSTNode<Entry<K,V>> node = root;
+        BSTNode<Entry<K,V>> candidate = null;
+        while ( node != null )
+        {
+            int compResult = key.compareTo( node.getElement().getKey() );
+            if ( compResult == 0 )
+                return node.getElement();
+            else if ( compResult < 0 ) {
+                candidate = node;
+                node = node.getLeft();
+            }
+            else
+                node = node.getRight();
+        }
+        return candidate == null ? null : candidate.getElement();
+    }
+
+
+    @Override
+    public Entry<K,V> floorEntry( K key )
+    {
+        BSTNode<Entry<K,V>> node = root;
+        BSTNode<Entry<K,V>> candidate = null;
+        while ( node != null )
+        {
+            int compResult = key.compareTo( node.getElement().getKey() );
+            if ( compResult == 0 )
+                return node.getElement();
+            else if ( compResult > 0 ) {
+                candidate = node;
+                node = node.getRight();
+            }
+            else
+                node = node.getLeft();
+        }
+        return candidate == null ? null : candidate.getElement();
+    }
+
+
+    @Override
+    public int rank( K key )
+    {
+        BSTNode<Entry<K,V>> node = root;
+        int rank = 0;
+        while ( node != null )
+        {
+            if ( key.compareTo( node.getElement().getKey() ) <= 0 )
+                node = node.getLeft();
+            else {
+                // The node and its left subtree come before the key.
+                rank += BSTNode.getSize(node.getLeft()) + 1;
+                node = node.getRight();
+            }
+        }
+        return rank;
+    }
+
+
+    @Override
+    public Entry<K,V> select( int rank ) throws InvalidPositionException
+    {
+        if ( rank < 0 || rank >= currentSize )
+            throw new InvalidPositionException();
+
+        BSTNode<Entry<K,V>> node = root;
+        while ( true )
+        {
+            int leftSize = BSTNode.getSize(node.getLeft());
+            if ( rank < leftSize )
+                node = node.getLeft();
+            else if ( rank == leftSize )
+                return node.getElement();
+            else {
+                rank -= leftSize + 1;
+                node = node.getRight();
+            }
+        }
+    }
+
+
+    /**
+     * Recomputes the sizes of the nodes on the path from the specified node to the root,
+     * after a node was linked below it or unlinked from below it.
+     *
+     * @param node - lowest node whose subtree changed, or null if the root changed
+     */
+    void updateSizes( BSTNode<Entry<K,V>> node )
+    {
+        while ( node != null )
+        {
+            node.setSize();
+            node = node.getParent();
+        }
+    }
+
+
     /**
      * Returns the node whose key is the specified key;
      * or the parent of the node where the key should exist if no such node exists.
@@ -183,6 +332,7 @@ public class BinarySearchTree<K extends Comparable<K>, V>
         { // Key does not exist, node is "parent"
             BSTNode<Entry<K,V>> newLeaf = new BSTNode<>(new EntryClass<>(key, value));
             this.linkSubtreeInsert(newLeaf, node);
+            this.updateSizes(node);
             currentSize++;
             return null;   
         }                                 
@@ -255,12 +405,16 @@ public class BinarySearchTree<K extends Comparable<K>, V>
         {
             V oldValue = node.getElement().getValue();
 
-	        if ( node.getLeft() == null )
+	        if ( node.getLeft() == null ) {
                 // The left subtree is empty.
                 this.linkSubtreeRemove(node.getRight(), node.getParent(),node);
-            else if ( node.getRight() == null )
+                this.updateSizes(node.getParent());
+            }
+            else if ( node.getRight() == null ) {
                 // The right subtree is empty.
                 this.linkSubtreeRemove(node.getLeft(), node.getParent(),node);
+                this.updateSizes(node.getParent());
+            }
             else
             {
                 // Node has 2 children. Replace the node's entry with
@@ -269,6 +423,7 @@ public class BinarySearchTree<K extends Comparable<K>, V>
                 node.setElement( minNode.getElement() );
                 // Remove the 'minEntry' of the right subtree.
                 this.linkSubtreeRemove(minNode.getRight(), minNode.getParent(),minNode);
+                this.updateSizes(minNode.getParent());
             }
             currentSize--;
             return oldValue;
@@ -285,5 +440,13 @@ public class BinarySearchTree<K extends Comparable<K>, V>
         return new BSTKeyOrderIterator<K,V>(root);
     }
 
+
+    @Override
+    public Iterator<Entry<K,V>> iterator( int rank ) throws InvalidPositionException {
+        if ( rank < 0 || rank > currentSize )
+            throw new InvalidPositionException();
+        return new BSTKeyOrderIterator<K,V>(root, rank);
+    }
+
 }
 
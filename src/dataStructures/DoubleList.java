@@ -129,11 +129,7 @@ public class DoubleList<E> implements List<E>
         if ( position < 0 || position >= currentSize )
             throw new InvalidPositionException();
 
-        DoubleListNode<E> tmp = getNode(0);
-        for(int i = 0; i < position; i++) {
-            tmp = getNode(i).getNext();
-        }
-        return tmp.getElement();
+        return getNode(position).getElement();
     }
 
 
@@ -0,0 +1,191 @@
+package dataStructures;
+
+/**
+ * Open addressing Hash table implementation, with linear probing.
+ * Keys, values and hash codes are kept in parallel arrays,
+ * and removals shift the following entries back instead of leaving tombstones.
+ * @author AED  Team
+ * @version 1.0
+ * @param <K> Generic Key
+ * @param <V> Generic Value
+ */
+
+public class LinearProbingHashTable<K, V>
+    extends HashTable<K, V> {
+
+    /**
+     * Serial Version UID of the Class.
+     */
+    static final long serialVersionUID = 0L;
+
+    /**
+     * The keys of the entries; a null key marks an empty position.
+     */
+    protected K[] keys;
+
+    /**
+     * The values of the entries, in the positions of their keys.
+     */
+    protected V[] values;
+
+    /**
+     * The hash codes of the keys, in the positions of their keys.
+     */
+    protected int[] hashes;
+
+    /**
+     * Constructor of an empty linear probing hash table,
+     * with the specified initial capacity.
+     * The arrays have about twice the capacity, so probe sequences stay short.
+     * maxSize is initialized to the capacity.
+     * @param capacity defines the table capacity.
+     */
+    public LinearProbingHashTable(int capacity) {
+        allocate(HashTable.nextPrime(2 * capacity));
+        maxSize = capacity;
+        currentSize = 0;
+    }
+
+    public LinearProbingHashTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Allocates empty arrays of the specified length.
+     * @param arraySize length of the arrays
+     */
+    @SuppressWarnings("unchecked")
+    private void allocate(int arraySize) {
+        // Compiler gives a warning.
+        keys = (K[]) new Object[arraySize];
+        values = (V[]) new Object[arraySize];
+        hashes = new int[arraySize];
+    }
+
+    /**
+     * Returns the (non negative) hash code of the specified key.
+     * The bits of key.hashCode() are mixed first, because linear probing
+     * turns runs of consecutive hash codes (e.g. Integer keys) into one long cluster.
+     * @param key to be encoded
+     * @return hash code of the specified key
+     */
+    protected int hashCode(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h & Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the position where the search for a hash code starts.
+     * @param hashCode hash code of a key
+     * @return first position of the probe sequence
+     */
+    protected int home(int hashCode) {
+        return hashCode % keys.length;
+    }
+
+    /**
+     * Returns the position of the specified key,
+     * or the empty position where it should be inserted.
+     * @param key to be searched
+     * @param hashCode hash code of the key
+     * @return see above
+     */
+    protected int findPosition(K key, int hashCode) {
+        int position = home(hashCode);
+        while (keys[position] != null
+                && (hashes[position] != hashCode || !keys[position].equals(key)))
+            position = (position + 1) % keys.length;
+        return position;
+    }
+
+    @Override
+    public V find(K key) {
+        int position = findPosition(key, hashCode(key));
+        return keys[position] == null ? null : values[position];
+    }
+
+    @Override
+    public V insert(K key, V value) {
+        if (this.isFull())
+            this.rehash();
+
+        int hashCode = hashCode(key);
+        int position = findPosition(key, hashCode);
+        if (keys[position] != null) {
+            V oldValue = values[position];
+            values[position] = value;
+            return oldValue;
+        }
+
+        keys[position] = key;
+        values[position] = value;
+        hashes[position] = hashCode;
+        currentSize++;
+        return null;
+    }
+
+    @Override
+    public V remove(K key) {
+        int hole = findPosition(key, hashCode(key));
+        if (keys[hole] == null)
+            return null;
+
+        V oldValue = values[hole];
+        int position = hole;
+        while (true) {
+            position = (position + 1) % keys.length;
+            if (keys[position] == null)
+                break;
+            // Move back every entry whose probe sequence passes through the hole.
+            int home = home(hashes[position]);
+            boolean reachesHole = hole <= position ? home <= hole || home > position
+                                                   : home <= hole && home > position;
+            if (reachesHole) {
+                keys[hole] = keys[position];
+                values[hole] = values[position];
+                hashes[hole] = hashes[position];
+                hole = position;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        currentSize--;
+        return oldValue;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+        return new LinearProbingHashTableIterator<>(keys, values);
+    }
+
+    /**
+     * Doubles the maximum number of entries and moves every entry
+     * to new arrays sized for that capacity.
+     */
+    protected void rehash() {
+        int arraySize = HashTable.nextPrime(2 * maxSize * 2);
+        if (arraySize == 0)
+            return; // Already at the largest prime table.
+
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(arraySize);
+        maxSize = maxSize * 2;
+
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != null) {
+                int position = home(oldHashes[i]);
+                while (keys[position] != null)
+                    position = (position + 1) % keys.length;
+                keys[position] = oldKeys[i];
+                values[position] = oldValues[i];
+                hashes[position] = oldHashes[i];
+            }
+    }
+}
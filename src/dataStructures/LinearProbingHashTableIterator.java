@@ -0,0 +1,68 @@
+package dataStructures;
+
+/**
+ * Iterator of the entries of a LinearProbingHashTable
+ * @author AED  Team
+ * @version 1.0
+ * @param <K> Generic Key
+ * @param <V> Generic Value
+ */
+class LinearProbingHashTableIterator<K, V>
+    implements Iterator<Entry<K, V>> {
+
+    /**
+     * Serial Version UID of the Class.
+     */
+    static final long serialVersionUID = 0L;
+
+    /**
+     * The keys of the table; a null key marks an empty position.
+     */
+    protected K[] keys;
+
+    /**
+     * The values of the table, in the positions of their keys.
+     */
+    protected V[] values;
+
+    /**
+     * Position of the next entry in the iteration (keys.length if none).
+     */
+    protected int current;
+
+    public LinearProbingHashTableIterator(K[] keys, V[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.rewind();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return current < keys.length;
+    }
+
+    @Override
+    public Entry<K, V> next() throws NoSuchElementException {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Entry<K, V> entry = new EntryClass<>(keys[current], values[current]);
+        current = nextPosition(current + 1);
+        return entry;
+    }
+
+    @Override
+    public void rewind() {
+        current = nextPosition(0);
+    }
+
+    /**
+     * Returns the first occupied position starting at the specified one.
+     * @param position where the search starts
+     * @return position of the next entry, or keys.length if there is none
+     */
+    private int nextPosition(int position) {
+        while (position < keys.length && keys[position] == null)
+            position++;
+        return position;
+    }
+}
@@ -0,0 +1,84 @@
+package dataStructures;
+
+/**
+ * Iterator over the entries of several iterators ordered by key, merged in order of key.
+ * Entries with equal keys are given in the order of their iterators, or only the first of them
+ * if the iterators are merged as a dictionary.
+ * Meant for a few iterators, since the next entry is chosen by comparing the next one of each.
+ * @version 1.0
+ * @param <K> Generic type Key, must extend comparable
+ * @param <V> Generic type Value
+ */
+public class MergeIterator<K extends Comparable<K>, V> implements Iterator<Entry<K,V>> {
+
+    static final long serialVersionUID = 0L;
+
+    /** Iterators merged, each ordered by key */
+    private final Iterator<Entry<K,V>>[] iterators;
+    /** Next entry of each iterator, or null if it has no more entries */
+    private final Entry<K,V>[] heads;
+    /** Whether only the first of the entries with equal keys is given */
+    private final boolean distinct;
+
+    /**
+     * Merges iterators ordered by key, giving every entry
+     * @param iterators iterators to merge
+     */
+    public MergeIterator(List<Iterator<Entry<K,V>>> iterators) {
+        this(iterators, false);
+    }
+
+    /**
+     * Merges iterators ordered by key
+     * @param iterators iterators to merge
+     * @param distinct true to give only the first of the entries with equal keys, as a dictionary would keep one
+     */
+    @SuppressWarnings("unchecked")
+    public MergeIterator(List<Iterator<Entry<K,V>>> iterators, boolean distinct) {
+        this.distinct = distinct;
+        this.iterators = (Iterator<Entry<K,V>>[]) new Iterator<?>[iterators.size()];
+        this.heads = (Entry<K,V>[]) new Entry<?,?>[iterators.size()];
+        for (int i = 0; i < this.iterators.length; i++)
+            this.iterators[i] = iterators.get(i);
+        this.rewind();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return firstHead() != -1;
+    }
+
+    @Override
+    public Entry<K,V> next() throws NoSuchElementException {
+        int smallest = firstHead();
+        if (smallest == -1)
+            throw new NoSuchElementException();
+        Entry<K,V> entry = heads[smallest];
+        heads[smallest] = iterators[smallest].hasNext() ? iterators[smallest].next() : null;
+        if (distinct)
+            for (int i = 0; i < heads.length; i++)
+                while (heads[i] != null && heads[i].getKey().compareTo(entry.getKey()) == 0)
+                    heads[i] = iterators[i].hasNext() ? iterators[i].next() : null;
+        return entry;
+    }
+
+    @Override
+    public void rewind() {
+        for (int i = 0; i < iterators.length; i++) {
+            iterators[i].rewind();
+            heads[i] = iterators[i].hasNext() ? iterators[i].next() : null;
+        }
+    }
+
+    /**
+     * Finds the iterator whose next entry comes first
+     * @return position of the iterator, or -1 if no iterator has more entries
+     */
+    private int firstHead() {
+        int smallest = -1;
+        for (int i = 0; i < heads.length; i++)
+            if (heads[i] != null && (smallest == -1 || heads[i].getKey().compareTo(heads[smallest].getKey()) < 0))
+                smallest = i;
+        return smallest;
+    }
+}
@@ -0,0 +1,87 @@
+package dataStructures;
+
+/**
+ * Stable merge sort of entries by key, bottom-up, for entries that are
+ * collected first and then indexed at once.
+ * @version 1.0
+ */
+public class MergeSort {
+
+    private MergeSort() {
+    }
+
+    /**
+     * Sorts the first entries of an array by key; entries with equal keys keep their order.
+     * @param entries array of entries to sort
+     * @param size number of entries of the array to sort
+     * @param <K> Generic type Key, must extend comparable
+     * @param <V> Generic type Value
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> void sortByKey(Entry<K,V>[] entries, int size) {
+        Entry<K,V>[] source = entries;
+        Entry<K,V>[] target = (Entry<K,V>[]) new Entry<?,?>[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                merge(source, target, low, middle, high);
+            }
+            Entry<K,V>[] merged = target;
+            target = source;
+            source = merged;
+        }
+        if (source != entries)
+            System.arraycopy(source, 0, entries, 0, size);
+    }
+
+    /**
+     * Sorts the first indexes of an array by the keys they index; equal keys keep their order.
+     * @param indexes array of positions of the keys to sort
+     * @param keys keys of the positions
+     * @param size number of indexes of the array to sort
+     */
+    public static void sortIndexes(int[] indexes, int[] keys, int size) {
+        int[] source = indexes;
+        int[] target = new int[size];
+
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low, right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right == high || (left < middle && keys[source[left]] <= keys[source[right]]))
+                        target[i] = source[left++];
+                    else
+                        target[i] = source[right++];
+                }
+            }
+            int[] merged = target;
+            target = source;
+            source = merged;
+        }
+        if (source != indexes)
+            System.arraycopy(source, 0, indexes, 0, size);
+    }
+
+    /**
+     * Merges two adjacent sorted runs of the source into the target
+     * @param source array with the runs
+     * @param target array the merged run is written to
+     * @param low start of the first run
+     * @param middle end of the first run, and start of the second
+     * @param high end of the second run
+     */
+    private static <K extends Comparable<K>, V> void merge(Entry<K,V>[] source, Entry<K,V>[] target,
+                                                           int low, int middle, int high) {
+        int left = low, right = middle;
+        for (int i = low; i < high; i++) {
+            if (right == high || (left < middle && source[left].getKey().compareTo(source[right].getKey()) <= 0))
+                target[i] = source[left++];
+            else
+                target[i] = source[right++];
+        }
+    }
+}
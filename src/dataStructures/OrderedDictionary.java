@@ -29,6 +29,54 @@ public interface OrderedDictionary<K extends Comparable<K>, V>
      */
     Entry<K,V> maxEntry( ) throws EmptyDictionaryException;
 
+    /**
+     * Returns the entry with the smallest key greater than or equal
+     * to the specified key, or null if there is no such entry.
+     *
+     * @param key
+     * @return
+     */
+    Entry<K,V> ceilingEntry( K key );
+
+    /**
+     * Returns the entry with the largest key less than or equal
+     * to the specified key, or null if there is no such entry.
+     *
+     * @param key
+     * @return
+     */
+    Entry<K,V> floorEntry( K key );
+
+    /**
+     * Returns the number of entries whose keys are smaller
+     * than the specified key, which need not be in the dictionary.
+     *
+     * @param key
+     * @return position the key has or would have in key order
+     */
+    int rank( K key );
+
+    /**
+     * Returns the entry at the specified position in key order,
+     * the entry with the smallest key being at position 0.
+     *
+     * @param rank
+     * @return
+     * @throws InvalidPositionException if rank is not a position in the dictionary
+     */
+    Entry<K,V> select( int rank ) throws InvalidPositionException;
+
+    /**
+     * Returns an iterator of the entries in the dictionary, in key order,
+     * starting at the entry at the specified position; rewinding it
+     * goes back to that entry.
+     *
+     * @param rank - position of the first entry, or the size of the dictionary for no entries
+     * @return
+     * @throws InvalidPositionException if rank is negative or greater than the size
+     */
+    Iterator<Entry<K,V>> iterator( int rank ) throws InvalidPositionException;
+
     /* (non-Javadoc)
      * Returns an iterator of the entries in the dictionary 
      * which preserves the key order relation.
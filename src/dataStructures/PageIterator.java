@@ -0,0 +1,66 @@
+package dataStructures;
+
+/**
+ * Iterator over a page of another iterator: skips its first elements and gives at most
+ * a number of the next ones. Rewinding it rewinds the other iterator and skips them again.
+ * Iterators that can start at a position themselves should be given with nothing to skip.
+ * @version 1.0
+ * @param <E> Generic Element
+ */
+public class PageIterator<E> implements Iterator<E> {
+
+    static final long serialVersionUID = 0L;
+
+    /** Iterator the page is taken from */
+    private final Iterator<E> iterator;
+    /** Number of elements of the iterator before the page */
+    private final int skip;
+    /** Maximum number of elements of the page */
+    private final int count;
+    /** Number of elements of the page already given */
+    private int given;
+
+    /**
+     * Creates a page of an iterator
+     * @param iterator iterator the page is taken from
+     * @param skip number of elements of the iterator before the page
+     * @param count maximum number of elements of the page
+     * @throws InvalidPositionException if skip or count is negative
+     */
+    public PageIterator(Iterator<E> iterator, int skip, int count) throws InvalidPositionException {
+        if (skip < 0 || count < 0)
+            throw new InvalidPositionException();
+        this.iterator = iterator;
+        this.skip = skip;
+        this.count = count;
+        skipToPage();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return given < count && iterator.hasNext();
+    }
+
+    @Override
+    public E next() throws NoSuchElementException {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        given++;
+        return iterator.next();
+    }
+
+    @Override
+    public void rewind() {
+        iterator.rewind();
+        skipToPage();
+    }
+
+    /**
+     * Skips the elements before the page
+     */
+    private void skipToPage() {
+        for (int i = 0; i < skip && iterator.hasNext(); i++)
+            iterator.next();
+        given = 0;
+    }
+}
@@ -49,7 +49,7 @@ public class SepChainHashTable<K extends Comparable<K>, V>
      * @return hash value of the specified key
      */
     protected int hash(K key) {
-        return Math.abs(key.hashCode()) % table.length;
+        return (key.hashCode() & Integer.MAX_VALUE) % table.length;
     }
 
     @Override
@@ -61,12 +61,18 @@ public class SepChainHashTable<K extends Comparable<K>, V>
     public V insert(K key, V value) {
         if (this.isFull())
             this.rehash();
-        return table[this.hash(key)].insert(key, value);
+        V oldValue = table[this.hash(key)].insert(key, value);
+        if (oldValue == null)
+            currentSize++;
+        return oldValue;
     }
 
     @Override
     public V remove(K key) {
-        return table[this.hash(key)].remove(key);
+        V oldValue = table[this.hash(key)].remove(key);
+        if (oldValue != null)
+            currentSize--;
+        return oldValue;
     }
 
     @Override
@@ -74,22 +80,27 @@ public class SepChainHashTable<K extends Comparable<K>, V>
         return new OpenHashTableIterator<>(table);
     }
 
+    /**
+     * Doubles the maximum number of entries and moves every entry
+     * to a new array of dictionaries sized for that capacity,
+     * keeping the load factor below 1.
+     */
     protected void rehash() {
         Iterator<Entry<K, V>> oldTable = iterator();
+        int arraySize = HashTable.nextPrime((int) (1.1 * maxSize * 2));
+        if (arraySize == 0)
+            return; // Already at the largest prime table.
         maxSize = maxSize * 2;
-        int arraySize = HashTable.nextPrime((int) (1.1 * maxSize));
         // Compiler gives a warning.
         @SuppressWarnings("unchecked")
         Dictionary<K, V>[] newTable = (Dictionary<K, V>[]) new Dictionary[arraySize];
-        table = newTable;
-
-        for (int i = 0; i < maxSize; i++)
-            table[i] = new OrderedDoubleList<K,V>();
+        for (int i = 0; i < arraySize; i++)
+            newTable[i] = new OrderedDoubleList<K,V>();
 
-        currentSize = 0;
+        table = newTable;
         while (oldTable.hasNext()) {
             Entry<K, V> entry = oldTable.next();
-            insert(entry.getKey(), entry.getValue());
+            table[this.hash(entry.getKey())].insert(entry.getKey(), entry.getValue());
         }
     }
 }